@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.Function;
 import javax.inject.Inject;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -27,9 +28,11 @@ import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskCollection;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.internal.build.event.BuildEventListenerRegistryInternal;
 import org.gradle.jvm.tasks.Jar;
@@ -38,12 +41,15 @@ import run.halo.gradle.docker.DockerClientService;
 import run.halo.gradle.docker.DockerCreateContainer;
 import run.halo.gradle.docker.DockerPullImage;
 import run.halo.gradle.docker.DockerRemoveContainer;
+import run.halo.gradle.docker.DockerStartContainer;
+import run.halo.gradle.docker.ImagePullService;
 import run.halo.gradle.extension.HaloExtension;
 import run.halo.gradle.extension.HaloPluginExtension;
 import run.halo.gradle.openapi.ApiClientGeneratorTask;
 import run.halo.gradle.openapi.CleanupApiServerContainer;
 import run.halo.gradle.openapi.OpenApiDocsGeneratorTask;
 import run.halo.gradle.role.RoleTemplateGenerateTask;
+import run.halo.gradle.steps.HaloHttpClientService;
 import run.halo.gradle.utils.YamlUtils;
 import run.halo.gradle.watch.WatchTask;
 
@@ -145,10 +151,25 @@ public class HaloDevtoolsPlugin implements Plugin<Project> {
                 haloExtension.getContainerName(),
                 defaultContainerName
             );
-            project.getTasks().create("pullHaloImage", DockerPullImage.class, it -> {
-                it.getImage().set(imageName);
-                it.setGroup(GROUP);
-                it.setDescription("Pull halo server image from docker hub.");
+            final Provider<ImagePullService> imagePullService = project.getGradle()
+                .getSharedServices().registerIfAbsent(ImagePullService.NAME,
+                    ImagePullService.class, spec -> {
+                    });
+            DockerPullImage pullImage =
+                project.getTasks().create("pullHaloImage", DockerPullImage.class, it -> {
+                    it.getImage().set(imageName);
+                    it.getImagePullService().set(imagePullService);
+                    it.usesService(imagePullService);
+                    // join the background pull once the plugin has been built
+                    it.mustRunAfter("build");
+                    it.setGroup(GROUP);
+                    it.setDescription("Pull halo server image from docker hub.");
+                });
+            // pull the image while the plugin is being built
+            project.getGradle().getTaskGraph().whenReady(graph -> {
+                if (graph.hasTask(pullImage)) {
+                    pullImage.pullInBackground();
+                }
             });
 
             DockerCreateContainer createContainer =
@@ -235,6 +256,25 @@ public class HaloDevtoolsPlugin implements Plugin<Project> {
 
             project.getTasks().withType(AbstractDockerRemoteApiTask.class)
                 .configureEach(task -> task.getDockerClientService().set(serviceProvider));
+            // declared, so that Gradle keeps the service open until the tasks are done
+            final Provider<HaloHttpClientService> httpClientService =
+                HaloHttpClientService.register(project);
+            useHttpClientService(project.getTasks().withType(HaloServerTask.class),
+                HaloServerTask::getHttpClientService, httpClientService);
+            useHttpClientService(project.getTasks().withType(WatchTask.class),
+                WatchTask::getHttpClientService, httpClientService);
+            useHttpClientService(project.getTasks().withType(ReloadPluginTask.class),
+                ReloadPluginTask::getHttpClientService, httpClientService);
+            useHttpClientService(project.getTasks().withType(OpenApiDocsGeneratorTask.class),
+                OpenApiDocsGeneratorTask::getHttpClientService, httpClientService);
+            project.getTasks().withType(DockerStartContainer.class).configureEach(task -> {
+                task.getConsoleBufferSize().set(haloExtension.getConsoleBufferSize());
+                task.getConsoleOverflow().set(haloExtension.getConsoleOverflow());
+                task.getLogFilter().set(project.provider(
+                    () -> haloExtension.getLogs().createFilter()));
+                task.getLogTail().set(haloExtension.getLogs().getTail());
+                task.getLogSince().set(haloExtension.getLogs().getSince());
+            });
 
             Provider<CleanupApiServerContainer> cleanupOpenApiDocServerContainer =
                 project.getGradle().getSharedServices()
@@ -263,12 +303,23 @@ public class HaloDevtoolsPlugin implements Plugin<Project> {
                                         .map(Task::getPath));
                                 parameters.getSupportedTaskPaths()
                                     .add(project.getTasks().named("watch").map(Task::getPath));
+                                parameters.getReuseContainer()
+                                    .set(haloExtension.getReuseContainer());
                             });
                         });
             buildEvents.onOperationCompletion(haloServerBuildOperationListenerProvider);
         });
     }
 
+    private static <T extends Task> void useHttpClientService(TaskCollection<T> tasks,
+        Function<T, Property<HaloHttpClientService>> property,
+        Provider<HaloHttpClientService> httpClientService) {
+        tasks.configureEach(task -> {
+            property.apply(task).set(httpClientService);
+            task.usesService(httpClientService);
+        });
+    }
+
     private String safeProjectPath(Project project) {
         String projectPath = project.getPath().replaceFirst("^:", "").replaceAll(":", "_");
         return StringUtils.defaultIfBlank(projectPath, "root");
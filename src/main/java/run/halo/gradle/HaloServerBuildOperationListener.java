@@ -49,6 +49,13 @@ public abstract class HaloServerBuildOperationListener
          * @return supported task paths
          */
         SetProperty<String> getSupportedTaskPaths();
+
+        /**
+         * Whether the container is kept running for the next build instead of being removed.
+         *
+         * @return {@code true} to keep the container
+         */
+        Property<Boolean> getReuseContainer();
     }
 
     @Override
@@ -69,7 +76,8 @@ public abstract class HaloServerBuildOperationListener
         if (details instanceof ExecuteTaskBuildOperationDetails executeTaskDetails) {
             String path = executeTaskDetails.getTask().getPath();
             Set<String> supportedTaskPaths = getParameters().getSupportedTaskPaths().get();
-            if (!supportedTaskPaths.contains(path)) {
+            if (!supportedTaskPaths.contains(path)
+                || getParameters().getReuseContainer().getOrElse(false)) {
                 return;
             }
             DockerClientService dockerClientService =
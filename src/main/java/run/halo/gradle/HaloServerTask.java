@@ -2,9 +2,15 @@ package run.halo.gradle;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 import run.halo.gradle.docker.DockerStartContainer;
+import run.halo.gradle.docker.FrameConsumerResultCallback;
+import run.halo.gradle.steps.HaloHttpClientService;
+import run.halo.gradle.steps.LogReadinessProbe;
 import run.halo.gradle.steps.PluginClient;
 import run.halo.gradle.steps.SetupHaloStep;
 
@@ -17,18 +23,36 @@ public class HaloServerTask extends DockerStartContainer {
     public static final String TASK_NAME = "haloServer";
     private final AtomicBoolean isInitializing = new AtomicBoolean(false);
     private final PluginClient pluginClient;
+    private LogReadinessProbe readinessProbe;
+
+    /**
+     * The HTTP client shared by the build to call Halo.
+     */
+    @Internal
+    @Getter
+    final Property<HaloHttpClientService> httpClientService =
+        getProject().getObjects().property(HaloHttpClientService.class);
 
     public HaloServerTask() {
-        this.pluginClient = new PluginClient(getProject());
+        this.pluginClient = new PluginClient(getProject(), httpClientService);
     }
 
     @Override
     @TaskAction
     public void runRemoteCommand() {
         if (isInitializing.compareAndSet(false, true)) {
+            // a container kept from a previous build still runs the previous plugin
+            boolean reused = isContainerRunning();
+            // the output of a running container may not show its start any more
+            readinessProbe = reused ? null : new LogReadinessProbe();
             CompletableFuture<Void> initializeFuture = CompletableFuture.runAsync(() -> {
-                new SetupHaloStep(pluginClient.getSiteOption()).execute();
-                pluginClient.checkPluginState();
+                new SetupHaloStep(pluginClient.getSiteOption(), pluginClient.getHttpClient(),
+                    readinessProbe).execute();
+                if (reused) {
+                    pluginClient.reloadPlugin();
+                } else {
+                    pluginClient.checkPluginState();
+                }
             });
             initializeFuture.exceptionally(e -> {
                 log.error(e.getMessage(), e);
@@ -37,4 +61,11 @@ public class HaloServerTask extends DockerStartContainer {
         }
         super.runRemoteCommand();
     }
+
+    @Override
+    protected void configureOutput(FrameConsumerResultCallback callback) {
+        if (readinessProbe != null) {
+            readinessProbe.attachTo(callback);
+        }
+    }
 }
@@ -1,10 +1,14 @@
 package run.halo.gradle;
 
+import lombok.Getter;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.work.DisableCachingByDefault;
 import run.halo.gradle.extension.HaloExtension;
 import run.halo.gradle.extension.HaloPluginExtension;
+import run.halo.gradle.steps.HaloHttpClientService;
 import run.halo.gradle.steps.PluginClient;
 
 /**
@@ -21,8 +25,16 @@ public class ReloadPluginTask extends DefaultTask {
 
     private final PluginClient pluginClient;
 
+    /**
+     * The HTTP client shared by the build to call Halo.
+     */
+    @Internal
+    @Getter
+    final Property<HaloHttpClientService> httpClientService =
+        getProject().getObjects().property(HaloHttpClientService.class);
+
     public ReloadPluginTask() {
-        this.pluginClient = new PluginClient(getProject());
+        this.pluginClient = new PluginClient(getProject(), httpClientService);
     }
 
     @TaskAction
@@ -0,0 +1,180 @@
+package run.halo.gradle.docker;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the output of a container to the console on a dedicated thread, so that a slow terminal
+ * does not slow down the thread reading the output of the container.
+ *
+ * <p>The frames are queued in a bounded buffer and written in batches. When the buffer is full
+ * the {@link OverflowPolicy} decides whether the reading thread waits or the frame is dropped.
+ */
+@Slf4j
+public class ConsoleSink implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int MAX_BATCH_SIZE = 512;
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * What happens to a frame when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for the console, the output of the container is slowed down to the speed of the
+         * console as if it was written directly.
+         */
+        BLOCK,
+        /**
+         * Drop the frame silently.
+         */
+        DROP,
+        /**
+         * Drop the frame and write the number of dropped lines per level once the console
+         * catches up, for example {@code … 4,312 DEBUG lines suppressed}.
+         */
+        SUMMARIZE
+    }
+
+    private final PrintStream out;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Function<OutputFrame, String> formatter;
+
+    private final BlockingQueue<OutputFrame> buffer;
+
+    private final Map<String, AtomicLong> suppressed = new ConcurrentHashMap<>();
+
+    private final Thread writer;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a sink and starts its writer thread.
+     *
+     * @param out the console
+     * @param capacity the number of frames buffered before the overflow policy applies
+     * @param overflowPolicy what happens to the frames when the buffer is full
+     * @param formatter formats a frame to a line, {@code null} skips the frame
+     */
+    public ConsoleSink(PrintStream out, int capacity, OverflowPolicy overflowPolicy,
+        Function<OutputFrame, String> formatter) {
+        this.out = out;
+        this.overflowPolicy = overflowPolicy;
+        this.formatter = formatter;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeLoop, "Halo Console Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue the given frame, without waiting for the console unless the policy is
+     * {@link OverflowPolicy#BLOCK}.
+     *
+     * @param frame the frame to write
+     */
+    public void accept(OutputFrame frame) {
+        if (buffer.offer(frame)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    // the frame is dropped if the writer has stopped
+                    while (!buffer.offer(frame, 100, TimeUnit.MILLISECONDS)) {
+                        if (!writer.isAlive()) {
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            case SUMMARIZE -> {
+                LogLevel level = LogLevel.parse(frame.getBytes());
+                suppressed.computeIfAbsent(level == null ? "" : level.name(),
+                    key -> new AtomicLong()).incrementAndGet();
+            }
+            default -> {
+                // dropped
+            }
+        }
+    }
+
+    /**
+     * Write the buffered frames and stop the writer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<OutputFrame> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        StringBuilder text = new StringBuilder();
+        try {
+            while (!closed || !buffer.isEmpty()) {
+                OutputFrame first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, MAX_BATCH_SIZE - 1);
+                appendSuppressed(text);
+                for (OutputFrame frame : batch) {
+                    String line = formatter.apply(frame);
+                    if (line != null) {
+                        text.append(line).append(System.lineSeparator());
+                    }
+                }
+                write(text);
+                batch.clear();
+            }
+            appendSuppressed(text);
+            write(text);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write the container output: {}", e.getMessage());
+        }
+    }
+
+    private void write(StringBuilder text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        out.print(text);
+        out.flush();
+        text.setLength(0);
+    }
+
+    private void appendSuppressed(StringBuilder text) {
+        for (var entry : suppressed.entrySet()) {
+            long count = entry.getValue().getAndSet(0);
+            if (count > 0) {
+                String level = entry.getKey().isEmpty() ? "" : entry.getKey() + " ";
+                text.append("… %,d %slines suppressed".formatted(count, level))
+                    .append(System.lineSeparator());
+            }
+        }
+    }
+}
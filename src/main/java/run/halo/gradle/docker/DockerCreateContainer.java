@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.github.dockerjava.api.command.CreateContainerCmd;
 import com.github.dockerjava.api.command.CreateContainerResponse;
 import com.github.dockerjava.api.command.InspectContainerCmd;
+import com.github.dockerjava.api.command.RemoveContainerCmd;
 import com.github.dockerjava.api.exception.DockerException;
 import com.github.dockerjava.api.model.AccessMode;
 import com.github.dockerjava.api.model.Bind;
@@ -201,14 +202,24 @@ public class DockerCreateContainer extends AbstractOpenApiDocsTask {
 
         try (CreateContainerCmd containerCommand = getDockerClient().createContainerCmd(imageId)) {
             setContainerCommandConfig(containerCommand);
+            if (haloExtension.getReuseContainer() && containerName.isPresent()) {
+                String reuseKey = ReusableContainer.key(containerCommand, isDebugPortRandom());
+                var existing = ReusableContainer.find(getDockerClient(), containerName.get(),
+                    reuseKey);
+                if (existing != null) {
+                    log.info("Reusing container [{}]", containerName.get());
+                    writeContainerId(existing.getId());
+                    return;
+                }
+                removeOutdatedContainer(containerName.get());
+                ReusableContainer.label(containerCommand, reuseKey);
+            }
             CreateContainerResponse container = containerCommand.exec();
 
             final String localContainerName =
                 containerName.getOrNull() == null ? container.getId() : containerName.get();
             log.info("Created container with ID [{}]", localContainerName);
-            File targetFile = containerIdFile.get().getAsFile();
-            Files.createDirectories(targetFile.toPath().getParent());
-            Files.writeString(targetFile.toPath(), container.getId());
+            writeContainerId(container.getId());
             Action<? super Object> nextHandler = getNextHandler();
             if (nextHandler != null) {
                 nextHandler.execute(container);
@@ -218,6 +229,28 @@ public class DockerCreateContainer extends AbstractOpenApiDocsTask {
         }
     }
 
+    private void writeContainerId(String id) throws IOException {
+        File targetFile = containerIdFile.get().getAsFile();
+        Files.createDirectories(targetFile.toPath().getParent());
+        Files.writeString(targetFile.toPath(), id);
+    }
+
+    /**
+     * Remove the container kept from a previous build with another configuration.
+     *
+     * <p>A container with the same name that was not created by this plugin is not removed, so
+     * creating the container then fails because the name is already in use.
+     */
+    private void removeOutdatedContainer(String name) {
+        if (new CheckContainerExistsStep(getDockerClient(), name).execute()) {
+            log.info("Removing container [{}] created with another configuration", name);
+            try (RemoveContainerCmd removeContainerCmd = getDockerClient()
+                .removeContainerCmd(name)) {
+                removeContainerCmd.withForce(true).exec();
+            }
+        }
+    }
+
     private void setContainerCommandConfig(CreateContainerCmd containerCommand) {
         if (containerName.getOrNull() != null) {
             containerCommand.withName(containerName.get());
@@ -337,6 +370,11 @@ public class DockerCreateContainer extends AbstractOpenApiDocsTask {
         return haloExtension.getDebugPort();
     }
 
+    @Internal
+    boolean isDebugPortRandom() {
+        return jvmDebugPort() == null && haloExtension.isDebugPortRandom();
+    }
+
     @Nullable
     private Integer jvmDebugPort() {
         RuntimeMXBean runtimeMXBean = ManagementFactory.getRuntimeMXBean();
@@ -1,5 +1,6 @@
 package run.halo.gradle.docker;
 
+import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.InspectImageCmd;
 import com.github.dockerjava.api.command.InspectImageResponse;
 import com.github.dockerjava.api.command.PullImageCmd;
@@ -12,6 +13,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.gradle.api.Action;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 
 @Slf4j
@@ -38,27 +40,69 @@ public class DockerPullImage extends AbstractDockerRemoteApiTask {
     @Optional
     final Property<String> platform = getProject().getObjects().property(String.class);
 
+    /**
+     * The service the image is pulled in the background with, see {@link #pullInBackground()}.
+     */
+    @Internal
+    final Property<ImagePullService> imagePullService =
+        getProject().getObjects().property(ImagePullService.class);
+
     @Override
     public void runRemoteCommand() {
-        log.info("Pulling image '{}'.", image.get());
-        if (checkImageExits()) {
-            log.info("Image [{}] already exists, skipping pull.", image.get());
-            return;
+        try {
+            if (imagePullService.isPresent() && imagePullService.get().await(image.get(),
+                getLogger())) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        pull(getDockerClient(), image.get(), platform.getOrNull(), getNextHandler());
+    }
+
+    /**
+     * Start pulling the image in the background, the task then only waits for the pull to
+     * complete. Requires the {@link #getImagePullService() image pull service}.
+     */
+    public void pullInBackground() {
+        // resolve the task state on the calling thread
+        DockerClient dockerClient = getDockerClient();
+        String imageName = image.get();
+        String platformName = platform.getOrNull();
+        Action<? super Object> nextHandler = getNextHandler();
+        imagePullService.get().start(imageName,
+            () -> pull(dockerClient, imageName, platformName, nextHandler));
+    }
+
+    /**
+     * Pull the image unless it already exists.
+     *
+     * @return {@code true} if the image has been pulled
+     */
+    private static boolean pull(DockerClient dockerClient, String image, String platform,
+        Action<? super Object> nextHandler) {
+        log.info("Pulling image '{}'.", image);
+        if (checkImageExits(dockerClient, image)) {
+            log.info("Image [{}] already exists, skipping pull.", image);
+            return false;
         }
-        try (PullImageCmd pullImageCmd = getDockerClient().pullImageCmd(image.get())) {
-            if (platform.getOrNull() != null) {
-                pullImageCmd.withPlatform(platform.get());
+        try (PullImageCmd pullImageCmd = dockerClient.pullImageCmd(image)) {
+            if (platform != null) {
+                pullImageCmd.withPlatform(platform);
             }
 
-            PullImageResultCallback callback = createCallback(getNextHandler());
+            PullImageResultCallback callback = createCallback(nextHandler);
             pullImageCmd.exec(callback).awaitCompletion();
+            return true;
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         }
     }
 
-    private boolean checkImageExits() {
-        try (InspectImageCmd inspectImageCmd = getDockerClient().inspectImageCmd(image.get())) {
+    private static boolean checkImageExits(DockerClient dockerClient, String image) {
+        try (InspectImageCmd inspectImageCmd = dockerClient.inspectImageCmd(image)) {
             InspectImageResponse response = inspectImageCmd.exec();
             if (response != null) {
                 return true;
@@ -69,7 +113,7 @@ public class DockerPullImage extends AbstractDockerRemoteApiTask {
         return false;
     }
 
-    private PullImageResultCallback createCallback(Action<? super Object> nextHandler) {
+    private static PullImageResultCallback createCallback(Action<? super Object> nextHandler) {
         return new PullImageResultCallback() {
             @Override
             public void onNext(PullResponseItem item) {
@@ -1,13 +1,19 @@
 package run.halo.gradle.docker;
 
+import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import com.github.dockerjava.api.command.AttachContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.LogContainerCmd;
 import com.github.dockerjava.api.command.StartContainerCmd;
 import com.github.dockerjava.api.command.WaitContainerCmd;
 import com.github.dockerjava.api.command.WaitContainerResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
 import com.github.dockerjava.api.model.WaitResponse;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.provider.Property;
@@ -26,22 +32,95 @@ public class DockerStartContainer extends DockerExistingContainer {
     final Property<Integer> awaitStatusTimeout =
         getProject().getObjects().property(Integer.class);
 
+    /**
+     * The number of lines of the container output buffered for the console.
+     */
+    @Internal
+    @Getter
+    final Property<Integer> consoleBufferSize = getProject().getObjects()
+        .property(Integer.class).convention(ConsoleSink.DEFAULT_CAPACITY);
+
+    /**
+     * What happens to the lines of the container output when the console cannot keep up.
+     */
+    @Internal
+    @Getter
+    final Property<ConsoleSink.OverflowPolicy> consoleOverflow = getProject().getObjects()
+        .property(ConsoleSink.OverflowPolicy.class)
+        .convention(ConsoleSink.OverflowPolicy.SUMMARIZE);
+
+    /**
+     * The lines of the container output written to the console.
+     */
+    @Internal
+    @Getter
+    final Property<LogFilter> logFilter = getProject().getObjects().property(LogFilter.class);
+
+    /**
+     * The number of lines of the previous output written when attaching to a running container,
+     * a negative number writes all of them.
+     */
+    @Internal
+    @Getter
+    final Property<Integer> logTail = getProject().getObjects().property(Integer.class)
+        .convention(100);
+
+    /**
+     * Only the previous output since this time is written when attaching to a running
+     * container, see {@link LogFilter#parseSince(String, Instant)}.
+     */
+    @Internal
+    @Getter
+    final Property<String> logSince = getProject().getObjects().property(String.class);
+
     @Override
     public void runRemoteCommand() {
-        getLogger().quiet("Starting container with ID [{}].", containerId.get());
-        try (StartContainerCmd containerCommand = getDockerClient()
-            .startContainerCmd(containerId.get())) {
-            containerCommand.exec();
+        final FrameConsumerResultCallback callback = new FrameConsumerResultCallback();
+        ToStringConsumer toStringConsumer = new ToStringConsumer(consoleBufferSize.get(),
+            consoleOverflow.get(), logFilter.getOrNull());
+        callback.addConsumer(OutputFrame.OutputType.STDOUT, toStringConsumer);
+        callback.addConsumer(OutputFrame.OutputType.STDERR, toStringConsumer);
+        configureOutput(callback);
+
+        InspectContainerResponse container = inspectContainer();
+        if (ReusableContainer.isRunning(container)) {
+            // a container kept from a previous build is still running
+            getLogger().quiet("Attaching to running container with ID [{}].", containerId.get());
+            followLogs(callback, logTail.getOrNull(),
+                LogFilter.parseSince(logSince.getOrNull(), Instant.now()));
+        } else if (startedAt(container) != null) {
+            startContainer();
+            // only the output of this start, not the output of the previous ones
+            followLogs(callback, null, startedAt(inspectContainer()));
+        } else {
+            startContainer();
+            attach(callback);
+        }
+
+        try (WaitContainerCmd containerCommand =
+                 getDockerClient().waitContainerCmd(getContainerId().get())) {
+            WaitContainerResultCallback callback =
+                containerCommand.exec(createCallback(getNextHandler()));
+            exitCode = awaitStatusTimeout.getOrNull() != null ? callback.awaitStatusCode(
+                awaitStatusTimeout.get(), TimeUnit.SECONDS) : callback.awaitStatusCode();
+            getLogger().quiet("Container exited with code " + getExitCode());
         } catch (Exception e) {
-            throw new GradleException("Failed to start container", e);
+            throw new GradleException("Failed to wait for container to exit", e);
         }
+    }
 
+    /**
+     * Add the consumers of the container output, before the container is started or attached
+     * to.
+     *
+     * @param callback the callback receiving the output of the container
+     */
+    protected void configureOutput(FrameConsumerResultCallback callback) {
+    }
+
+    private void attach(FrameConsumerResultCallback callback) {
         try (AttachContainerCmd attachContainerCmd = getDockerClient().attachContainerCmd(
             containerId.get())) {
-            final FrameConsumerResultCallback callback = new FrameConsumerResultCallback();
-            ToStringConsumer toStringConsumer = new ToStringConsumer();
-            callback.addConsumer(OutputFrame.OutputType.STDOUT, toStringConsumer);
-            callback.addConsumer(OutputFrame.OutputType.STDERR, toStringConsumer);
             attachContainerCmd.withStdErr(true)
                 .withStdOut(true)
                 .withFollowStream(true)
@@ -50,17 +129,71 @@ public class DockerStartContainer extends DockerExistingContainer {
         } catch (Exception e) {
             throw new GradleException("Failed to attach to container", e);
         }
+    }
 
-        try (WaitContainerCmd containerCommand =
-                 getDockerClient().waitContainerCmd(getContainerId().get())) {
-            WaitContainerResultCallback callback =
-                containerCommand.exec(createCallback(getNextHandler()));
-            exitCode = awaitStatusTimeout.getOrNull() != null ? callback.awaitStatusCode(
-                awaitStatusTimeout.get(), TimeUnit.SECONDS) : callback.awaitStatusCode();
-            getLogger().quiet("Container exited with code " + getExitCode());
+    private void followLogs(FrameConsumerResultCallback callback, Integer tail, Instant since) {
+        try (LogContainerCmd logContainerCmd = getDockerClient().logContainerCmd(
+            containerId.get())) {
+            logContainerCmd.withStdErr(true)
+                .withStdOut(true)
+                .withFollowStream(true);
+            if (tail != null && tail >= 0) {
+                logContainerCmd.withTail(tail);
+            }
+            if (since != null) {
+                // the lines of the second before since are skipped by their timestamp
+                logContainerCmd.withSince((int) since.getEpochSecond())
+                    .withTimestamps(true);
+                callback.setSince(since);
+            }
+            logContainerCmd.exec(callback);
         } catch (Exception e) {
-            throw new GradleException("Failed to wait for container to exit", e);
+            throw new GradleException("Failed to follow the logs of the container", e);
+        }
+    }
+
+    private void startContainer() {
+        getLogger().quiet("Starting container with ID [{}].", containerId.get());
+        try (StartContainerCmd containerCommand = getDockerClient()
+            .startContainerCmd(containerId.get())) {
+            containerCommand.exec();
+        } catch (Exception e) {
+            throw new GradleException("Failed to start container", e);
+        }
+    }
+
+    /**
+     * Whether the container is already running, in which case it is attached to but not
+     * started again.
+     *
+     * @return {@code true} if the container is running
+     */
+    @Internal
+    protected boolean isContainerRunning() {
+        return ReusableContainer.isRunning(inspectContainer());
+    }
+
+    private InspectContainerResponse inspectContainer() {
+        try (InspectContainerCmd inspectContainerCmd = getDockerClient()
+            .inspectContainerCmd(containerId.get())) {
+            return inspectContainerCmd.exec();
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns when the container was last started, or {@code null} if it has never been
+     * started.
+     */
+    private static Instant startedAt(InspectContainerResponse container) {
+        if (container == null || container.getState() == null
+            || StringUtils.isBlank(container.getState().getStartedAt())) {
+            return null;
         }
+        Instant startedAt = Instant.parse(container.getState().getStartedAt());
+        // a container that has never been started reports 0001-01-01T00:00:00Z
+        return startedAt.isAfter(Instant.EPOCH) ? startedAt : null;
     }
 
     @Internal
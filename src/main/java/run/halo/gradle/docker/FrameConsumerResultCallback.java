@@ -4,12 +4,16 @@ import com.github.dockerjava.api.async.ResultCallbackTemplate;
 import com.github.dockerjava.api.model.Frame;
 import com.github.dockerjava.api.model.StreamType;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
@@ -24,23 +28,29 @@ public class FrameConsumerResultCallback extends
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FrameConsumerResultCallback.class);
 
-    private static final byte[] EMPTY_LINE = new byte[0];
-
-    private static final Pattern ANSI_COLOR_PATTERN = Pattern.compile("\u001B\\[[0-9;]+m");
-
     private static final String LINE_BREAK_REGEX = "((\\r?\\n)|(\\r))";
 
-    private static final Pattern LINE_BREAK_PATTERN = Pattern.compile(LINE_BREAK_REGEX);
-
     static final Pattern LINE_BREAK_AT_END_PATTERN = Pattern.compile(LINE_BREAK_REGEX + "$");
 
-    private final Map<OutputFrame.OutputType, Consumer<OutputFrame>> consumers;
+    /**
+     * The length of a timestamp such as {@code 2024-01-01T10:00:00.123456789Z}.
+     */
+    private static final int MAX_TIMESTAMP_LENGTH = 40;
+
+    private final Map<OutputFrame.OutputType, List<Consumer<OutputFrame>>> consumers;
 
     private final CountDownLatch completionLatch = new CountDownLatch(1);
 
-    private final StringBuilder logString = new StringBuilder();
+    /**
+     * Splits the raw frames into lines, one decoder per color preference of the consumers,
+     * created with the first raw frame.
+     */
+    private List<RawLines> rawLines;
 
-    private OutputFrame brokenFrame;
+    /**
+     * The output logged before this time is skipped, see {@link #setSince(Instant)}.
+     */
+    private volatile Instant since;
 
     public FrameConsumerResultCallback() {
         consumers = new HashMap<>();
@@ -48,29 +58,44 @@ public class FrameConsumerResultCallback extends
 
     /**
      * Set this callback to use the specified consumer for the given output type.
-     * The same consumer can be configured for more than one output type.
+     * The same consumer can be configured for more than one output type, and more than one
+     * consumer for the same output type, they are called in the order they were added.
      *
      * @param outputType the output type to configure
      * @param consumer the consumer to use for that output type
      */
     public void addConsumer(OutputFrame.OutputType outputType, Consumer<OutputFrame> consumer) {
-        consumers.put(outputType, consumer);
+        consumers.computeIfAbsent(outputType, type -> new ArrayList<>()).add(consumer);
+    }
+
+    /**
+     * Skip the output logged before the given time. Docker only accepts whole seconds, so the
+     * logs have to be requested with their timestamps, which are removed from the frames.
+     *
+     * @param since the time of the first output consumed, {@code null} consumes all of it
+     */
+    public void setSince(Instant since) {
+        this.since = since;
     }
 
     @Override
     public void onNext(Frame frame) {
         if (frame != null) {
             OutputFrame outputFrame = OutputFrame.forFrame(frame);
+            Instant since = this.since;
+            if (outputFrame != null && since != null) {
+                outputFrame = skipBefore(outputFrame, since);
+            }
             if (outputFrame != null) {
-                Consumer<OutputFrame> consumer = consumers.get(outputFrame.getType());
-                if (consumer == null) {
+                List<Consumer<OutputFrame>> typeConsumers = consumers.get(outputFrame.getType());
+                if (typeConsumers == null) {
                     LOGGER.error("got frame with type {}, for which no handler is configured",
                         frame.getStreamType());
                 } else if (outputFrame.getBytes() != null && outputFrame.getBytes().length > 0) {
                     if (frame.getStreamType() == StreamType.RAW) {
-                        processRawFrame(outputFrame, consumer);
+                        processRawFrame(outputFrame, typeConsumers);
                     } else {
-                        processOtherFrame(outputFrame, consumer);
+                        processOtherFrame(outputFrame, typeConsumers);
                     }
                 }
             }
@@ -88,18 +113,12 @@ public class FrameConsumerResultCallback extends
 
     @Override
     public void close() throws IOException {
-        OutputFrame lastLine = null;
-
-        if (logString.length() > 0) {
-            lastLine =
-                new OutputFrame(OutputFrame.OutputType.STDOUT, logString.toString().getBytes());
-        }
+        flushRawLines();
 
         // send an END frame to every consumer... but only once per consumer.
-        for (Consumer<OutputFrame> consumer : new HashSet<>(consumers.values())) {
-            if (lastLine != null) {
-                consumer.accept(lastLine);
-            }
+        Set<Consumer<OutputFrame>> allConsumers = new LinkedHashSet<>();
+        consumers.values().forEach(allConsumers::addAll);
+        for (Consumer<OutputFrame> consumer : allConsumers) {
             consumer.accept(OutputFrame.END);
         }
         super.close();
@@ -115,72 +134,115 @@ public class FrameConsumerResultCallback extends
         return completionLatch;
     }
 
-    private synchronized void processRawFrame(OutputFrame outputFrame,
-        Consumer<OutputFrame> consumer) {
-        String utf8String = outputFrame.getUtf8String();
-        byte[] bytes = outputFrame.getBytes();
-
-        // Merging the strings by bytes to solve the problem breaking non-latin unicode symbols.
-        if (brokenFrame != null) {
-            bytes = merge(brokenFrame.getBytes(), bytes);
-            utf8String = new String(bytes);
-            brokenFrame = null;
-        }
-        // Logger chunks can break the string in middle of multibyte unicode character.
-        // Backup the bytes to reconstruct proper char sequence with bytes from next frame.
-        int lastCharacterType = Character.getType(utf8String.charAt(utf8String.length() - 1));
-        if (lastCharacterType == Character.OTHER_SYMBOL) {
-            brokenFrame = new OutputFrame(outputFrame.getType(), bytes);
+    /**
+     * Send the unterminated last line to the consumers of the raw frames.
+     */
+    private synchronized void flushRawLines() {
+        if (rawLines == null) {
             return;
         }
+        for (RawLines lines : rawLines) {
+            byte[] lastLine = lines.decoder().flush();
+            if (lastLine != null) {
+                acceptLine(lastLine, lines.consumers());
+            }
+        }
+    }
+
+    private synchronized void processRawFrame(OutputFrame outputFrame,
+        List<Consumer<OutputFrame>> typeConsumers) {
+        if (rawLines == null) {
+            rawLines = createRawLines(typeConsumers);
+        }
+        for (RawLines lines : rawLines) {
+            lines.decoder().decode(outputFrame.getBytes());
+        }
+    }
+
+    /**
+     * Split the consumers by color preference, so that each line is decoded once per
+     * preference rather than once per consumer.
+     */
+    private static List<RawLines> createRawLines(List<Consumer<OutputFrame>> typeConsumers) {
+        List<Consumer<OutputFrame>> withColorCodes = new ArrayList<>();
+        List<Consumer<OutputFrame>> withoutColorCodes = new ArrayList<>();
+        for (Consumer<OutputFrame> consumer : typeConsumers) {
+            (isRemoveColorCodes(consumer) ? withoutColorCodes : withColorCodes).add(consumer);
+        }
+        List<RawLines> rawLines = new ArrayList<>(2);
+        if (!withoutColorCodes.isEmpty()) {
+            rawLines.add(new RawLines(new LineDecoder(true,
+                line -> acceptLine(line, withoutColorCodes)), withoutColorCodes));
+        }
+        if (!withColorCodes.isEmpty()) {
+            rawLines.add(new RawLines(new LineDecoder(false,
+                line -> acceptLine(line, withColorCodes)), withColorCodes));
+        }
+        return rawLines;
+    }
 
-        utf8String = processAnsiColorCodes(utf8String, consumer);
-        normalizeLogLines(utf8String, consumer);
+    private static void acceptLine(byte[] line, List<Consumer<OutputFrame>> lineConsumers) {
+        for (Consumer<OutputFrame> consumer : lineConsumers) {
+            consumer.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, line));
+        }
     }
 
     private synchronized void processOtherFrame(OutputFrame outputFrame,
-        Consumer<OutputFrame> consumer) {
-        String utf8String = outputFrame.getUtf8String();
+        List<Consumer<OutputFrame>> typeConsumers) {
+        accept(outputFrame.getType(), outputFrame.getBytes(), typeConsumers);
+    }
 
-        utf8String = processAnsiColorCodes(utf8String, consumer);
-        consumer.accept(new OutputFrame(outputFrame.getType(), utf8String.getBytes()));
+    private static void accept(OutputFrame.OutputType type, byte[] bytes,
+        List<Consumer<OutputFrame>> typeConsumers) {
+        byte[] withoutColorCodes = null;
+        for (Consumer<OutputFrame> consumer : typeConsumers) {
+            if (isRemoveColorCodes(consumer)) {
+                if (withoutColorCodes == null) {
+                    withoutColorCodes = LineDecoder.removeColorCodes(bytes);
+                }
+                consumer.accept(new OutputFrame(type, withoutColorCodes));
+            } else {
+                consumer.accept(new OutputFrame(type, bytes));
+            }
+        }
     }
 
-    private void normalizeLogLines(String utf8String, Consumer<OutputFrame> consumer) {
-        // Reformat strings to normalize new lines.
-        List<String> lines = new ArrayList<>(Arrays.asList(LINE_BREAK_PATTERN.split(utf8String)));
-        if (lines.isEmpty()) {
-            consumer.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, EMPTY_LINE));
-            return;
+    /**
+     * Remove the timestamp the frame starts with.
+     *
+     * @return the frame without its timestamp, or {@code null} if it was logged before the given
+     * time
+     */
+    static OutputFrame skipBefore(OutputFrame frame, Instant since) {
+        byte[] bytes = frame.getBytes();
+        if (bytes == null) {
+            return frame;
         }
-        if (utf8String.startsWith("\n") || utf8String.startsWith("\r")) {
-            lines.add(0, "");
+        int end = 0;
+        while (end < bytes.length && end < MAX_TIMESTAMP_LENGTH && bytes[end] != ' ') {
+            end++;
         }
-        if (utf8String.endsWith("\n") || utf8String.endsWith("\r")) {
-            lines.add("");
+        if (end == bytes.length || bytes[end] != ' ') {
+            return frame;
         }
-        for (int i = 0; i < lines.size() - 1; i++) {
-            String line = lines.get(i);
-            if (i == 0 && logString.length() > 0) {
-                line = logString.toString() + line;
-                logString.setLength(0);
-            }
-            consumer.accept(new OutputFrame(OutputFrame.OutputType.STDOUT, line.getBytes()));
+        Instant timestamp;
+        try {
+            timestamp = Instant.parse(new String(bytes, 0, end, StandardCharsets.US_ASCII));
+        } catch (DateTimeParseException e) {
+            // not a timestamp
+            return frame;
+        }
+        if (timestamp.isBefore(since)) {
+            return null;
         }
-        logString.append(lines.get(lines.size() - 1));
+        return new OutputFrame(frame.getType(), Arrays.copyOfRange(bytes, end + 1, bytes.length));
     }
 
-    private String processAnsiColorCodes(String utf8String, Consumer<OutputFrame> consumer) {
-        if (!(consumer instanceof BaseConsumer) || ((BaseConsumer) consumer).isRemoveColorCodes()) {
-            return ANSI_COLOR_PATTERN.matcher(utf8String).replaceAll("");
-        }
-        return utf8String;
+    private static boolean isRemoveColorCodes(Consumer<OutputFrame> consumer) {
+        return !(consumer instanceof BaseConsumer) || ((BaseConsumer<?>) consumer)
+            .isRemoveColorCodes();
     }
 
-    private byte[] merge(byte[] str1, byte[] str2) {
-        byte[] mergedString = new byte[str1.length + str2.length];
-        System.arraycopy(str1, 0, mergedString, 0, str1.length);
-        System.arraycopy(str2, 0, mergedString, str1.length, str2.length);
-        return mergedString;
+    private record RawLines(LineDecoder decoder, List<Consumer<OutputFrame>> consumers) {
     }
 }
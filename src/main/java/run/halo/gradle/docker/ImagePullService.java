@@ -0,0 +1,111 @@
+package run.halo.gradle.docker;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service that pulls images in the background, so that the pull of the Halo image
+ * overlaps with the build of the plugin instead of running before or after it.
+ *
+ * <p>A pull is started once the task graph is known to create the Halo container, and joined by
+ * the {@link DockerPullImage} task right before the container is created.
+ */
+@Slf4j
+public abstract class ImagePullService
+    implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+
+    public static final String NAME = "haloImagePull";
+
+    private final Map<String, BackgroundPull> pulls = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "Halo Image Pull");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Start pulling the given image in the background, unless it is already being pulled.
+     *
+     * @param image the image
+     * @param pull pulls the image, returns {@code false} if the image already existed
+     */
+    public void start(String image, BooleanSupplier pull) {
+        pulls.computeIfAbsent(image, key -> {
+            log.info("Pulling image '{}' in the background.", key);
+            var backgroundPull = new BackgroundPull(System.nanoTime());
+            backgroundPull.future = CompletableFuture.supplyAsync(() -> {
+                boolean pulled = pull.getAsBoolean();
+                backgroundPull.finishedAt = System.nanoTime();
+                return pulled;
+            }, executor);
+            return backgroundPull;
+        });
+    }
+
+    /**
+     * Wait for the background pull of the given image to complete.
+     *
+     * @param image the image
+     * @param logger the logger of the waiting task, the time saved is reported to
+     * @return {@code false} if the image is not pulled in the background
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await(String image, Logger logger) throws InterruptedException {
+        BackgroundPull backgroundPull = pulls.get(image);
+        if (backgroundPull == null) {
+            return false;
+        }
+        long waitStartedAt = System.nanoTime();
+        boolean pulled;
+        try {
+            pulled = backgroundPull.future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+        if (pulled) {
+            long waited = System.nanoTime() - waitStartedAt;
+            long pulling = backgroundPull.finishedAt - backgroundPull.startedAt;
+            logger.quiet(String.format("Pulled image %s in %.1fs alongside the build, saved %.1fs",
+                image, seconds(pulling), seconds(pulling - waited)));
+        }
+        return true;
+    }
+
+    private static double seconds(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(nanos, 0)) / 1000.0;
+    }
+
+    @Override
+    public void close() {
+        // a failed build does not wait for the pull, the image is pulled again next time
+        executor.shutdownNow();
+    }
+
+    private static final class BackgroundPull {
+
+        private final long startedAt;
+
+        private volatile long finishedAt;
+
+        private CompletableFuture<Boolean> future;
+
+        private BackgroundPull(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+}
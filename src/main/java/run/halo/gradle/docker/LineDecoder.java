@@ -0,0 +1,195 @@
+package run.halo.gradle.docker;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Splits the raw output of a container into lines, working on the bytes of the frames.
+ *
+ * <p>A line ends with {@code \n}, {@code \r\n} or {@code \r}, and ANSI color codes such as
+ * {@code ESC[0;32m} are optionally removed. Line breaks and escape sequences are made of ASCII
+ * bytes, which never occur inside a multibyte UTF-8 character, so a character split across two
+ * frames is simply carried over with the rest of the line, and the bytes are never decoded.
+ *
+ * <p>This class is not thread-safe.
+ */
+final class LineDecoder {
+
+    private static final byte ESC = 0x1B;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private enum State {
+        TEXT,
+        /**
+         * After a {@code \r}, a following {@code \n} belongs to the same line break.
+         */
+        CARRIAGE_RETURN,
+        /**
+         * After an {@code ESC}.
+         */
+        ESCAPE,
+        /**
+         * After an {@code ESC[}, reading the parameters of a color code.
+         */
+        COLOR_CODE
+    }
+
+    private final boolean removeColorCodes;
+
+    private final Consumer<byte[]> lineConsumer;
+
+    private byte[] line = new byte[256];
+
+    private int length;
+
+    private State state = State.TEXT;
+
+    /**
+     * Where the escape sequence being read starts in the line.
+     */
+    private int escapeStart;
+
+    /**
+     * Creates a decoder.
+     *
+     * @param removeColorCodes whether the ANSI color codes are removed from the lines
+     * @param lineConsumer receives the lines without their line break
+     */
+    LineDecoder(boolean removeColorCodes, Consumer<byte[]> lineConsumer) {
+        this.removeColorCodes = removeColorCodes;
+        this.lineConsumer = lineConsumer;
+    }
+
+    /**
+     * Decode the given bytes, the last line is kept until its line break is decoded.
+     *
+     * @param bytes the bytes of a frame
+     */
+    void decode(byte[] bytes) {
+        for (byte b : bytes) {
+            switch (state) {
+                case CARRIAGE_RETURN -> {
+                    state = State.TEXT;
+                    if (b != '\n') {
+                        text(b);
+                    }
+                }
+                case ESCAPE -> {
+                    if (b == '[') {
+                        append(b);
+                        state = State.COLOR_CODE;
+                    } else {
+                        state = State.TEXT;
+                        text(b);
+                    }
+                }
+                case COLOR_CODE -> {
+                    if ((b >= '0' && b <= '9') || b == ';') {
+                        append(b);
+                    } else if (b == 'm' && length > escapeStart + 2) {
+                        // drop the color code
+                        length = escapeStart;
+                        state = State.TEXT;
+                    } else {
+                        // not a color code, it is kept as it is
+                        state = State.TEXT;
+                        text(b);
+                    }
+                }
+                default -> text(b);
+            }
+        }
+    }
+
+    /**
+     * Take the last line, an incomplete escape sequence is kept as it is.
+     *
+     * @return the bytes of the last line or {@code null} if it is empty
+     */
+    byte[] flush() {
+        state = State.TEXT;
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = Arrays.copyOf(line, length);
+        length = 0;
+        return bytes;
+    }
+
+    private void text(byte b) {
+        switch (b) {
+            case '\n' -> emit();
+            case '\r' -> {
+                emit();
+                state = State.CARRIAGE_RETURN;
+            }
+            case ESC -> {
+                if (removeColorCodes) {
+                    escapeStart = length;
+                    state = State.ESCAPE;
+                }
+                append(b);
+            }
+            default -> append(b);
+        }
+    }
+
+    private void append(byte b) {
+        if (length == line.length) {
+            line = Arrays.copyOf(line, length * 2);
+        }
+        line[length++] = b;
+    }
+
+    private void emit() {
+        byte[] bytes = length == 0 ? EMPTY : Arrays.copyOf(line, length);
+        length = 0;
+        lineConsumer.accept(bytes);
+    }
+
+    /**
+     * Remove the ANSI color codes from the given bytes.
+     *
+     * @param bytes the bytes
+     * @return the given bytes if they contain no escape sequence
+     */
+    static byte[] removeColorCodes(byte[] bytes) {
+        int i = 0;
+        while (i < bytes.length && bytes[i] != ESC) {
+            i++;
+        }
+        if (i == bytes.length) {
+            return bytes;
+        }
+        byte[] result = new byte[bytes.length];
+        System.arraycopy(bytes, 0, result, 0, i);
+        int length = i;
+        while (i < bytes.length) {
+            int end = colorCodeEnd(bytes, i);
+            if (end > 0) {
+                i = end;
+            } else {
+                result[length++] = bytes[i++];
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Returns the index after the color code starting at the given index, or {@code -1}.
+     */
+    private static int colorCodeEnd(byte[] bytes, int start) {
+        if (bytes[start] != ESC || start + 1 >= bytes.length || bytes[start + 1] != '[') {
+            return -1;
+        }
+        int i = start + 2;
+        while (i < bytes.length && ((bytes[i] >= '0' && bytes[i] <= '9') || bytes[i] == ';')) {
+            i++;
+        }
+        if (i == start + 2 || i == bytes.length || bytes[i] != 'm') {
+            return -1;
+        }
+        return i + 1;
+    }
+}
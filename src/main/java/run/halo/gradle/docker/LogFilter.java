@@ -0,0 +1,135 @@
+package run.halo.gradle.docker;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Decides which lines of the container output are written to the console.
+ *
+ * <p>A log entry is kept if its level is at least the minimum level, it matches one of the
+ * include patterns if there are any, and it matches none of the exclude patterns. The lines
+ * without a level, such as the lines of a stack trace, belong to the previous entry and are kept
+ * with it.
+ *
+ * <p>The level is read from the bytes of the line, a line is only decoded if there are
+ * patterns. This class is not thread-safe.
+ */
+public class LogFilter implements Predicate<OutputFrame> {
+
+    private final LogLevel minLevel;
+
+    private final List<Pattern> includes;
+
+    private final List<Pattern> excludes;
+
+    private boolean inEntry;
+
+    private boolean keepEntry;
+
+    /**
+     * Creates a filter.
+     *
+     * @param minLevel the minimum level of the entries, {@code null} keeps every level
+     * @param includes the entries are kept only if they match one of these regular expressions,
+     * unless it is empty
+     * @param excludes the entries matching one of these regular expressions are dropped
+     */
+    public LogFilter(@Nullable LogLevel minLevel, List<String> includes, List<String> excludes) {
+        this.minLevel = minLevel;
+        this.includes = includes.stream().map(Pattern::compile).toList();
+        this.excludes = excludes.stream().map(Pattern::compile).toList();
+    }
+
+    /**
+     * Whether the filter keeps every line.
+     *
+     * @return {@code true} if there is no minimum level and no pattern
+     */
+    public boolean isKeepAll() {
+        return minLevel == null && includes.isEmpty() && excludes.isEmpty();
+    }
+
+    @Override
+    public boolean test(OutputFrame frame) {
+        if (frame.getType() == OutputFrame.OutputType.END) {
+            return true;
+        }
+        LogLevel level = LogLevel.parse(frame.getBytes());
+        if (level == null && inEntry) {
+            return keepEntry;
+        }
+        boolean keep = (level == null || minLevel == null || level.compareTo(minLevel) >= 0)
+            && matches(frame.getBytes());
+        if (level != null) {
+            inEntry = true;
+            keepEntry = keep;
+        }
+        return keep;
+    }
+
+    private boolean matches(byte[] bytes) {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            return true;
+        }
+        String line = bytes == null ? "" : new String(bytes, StandardCharsets.UTF_8);
+        if (!includes.isEmpty() && includes.stream().noneMatch(p -> p.matcher(line).find())) {
+            return false;
+        }
+        return excludes.stream().noneMatch(p -> p.matcher(line).find());
+    }
+
+    /**
+     * Parse the minimum level of a filter.
+     *
+     * @param level the name of a level, case-insensitive
+     * @return the level or {@code null} if blank
+     * @throws IllegalArgumentException if it is not a level
+     */
+    @Nullable
+    public static LogLevel parseLevel(@Nullable String level) {
+        if (StringUtils.isBlank(level)) {
+            return null;
+        }
+        return LogLevel.valueOf(level.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Parse the start of the previous output shown when attaching to a running container.
+     *
+     * @param since a timestamp such as {@code 2024-01-01T10:00:00Z}, or a duration before
+     * {@code now} such as {@code 10m}, {@code 2h} or {@code PT30S}
+     * @param now the current time
+     * @return the start or {@code null} if blank
+     * @throws IllegalArgumentException if it is neither a timestamp nor a duration
+     */
+    @Nullable
+    public static Instant parseSince(@Nullable String since, Instant now) {
+        if (StringUtils.isBlank(since)) {
+            return null;
+        }
+        String value = since.trim().toUpperCase(Locale.ROOT);
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            // not a timestamp
+        }
+        try {
+            if (value.endsWith("D")) {
+                return now.minus(Duration.parse("P" + value));
+            }
+            return now.minus(Duration.parse(value.startsWith("P") ? value : "PT" + value));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid since '" + since
+                + "', expected a timestamp such as 2024-01-01T10:00:00Z or a duration such as "
+                + "10m", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package run.halo.gradle.docker;
+
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * The levels of the lines written by Halo in the Spring Boot log format, for example
+ * {@code 2024-01-01T10:00:00.000+08:00  INFO 1 --- [main] run.halo.app.Application : ...}.
+ */
+public enum LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR;
+
+    /**
+     * Only the beginning of a line is searched for its level.
+     */
+    private static final int SEARCH_LIMIT = 80;
+
+    private static final LogLevel[] LEVELS = values();
+
+    private final byte[] bytes = name().getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Find the level in the beginning of the given line.
+     *
+     * @param line the bytes of the line
+     * @return the level or {@code null} if the line has no level, such as the lines of a stack
+     * trace
+     */
+    @Nullable
+    public static LogLevel parse(byte[] line) {
+        if (line == null) {
+            return null;
+        }
+        int limit = Math.min(line.length, SEARCH_LIMIT);
+        for (int i = 0; i < limit; i++) {
+            // a level is a whole word
+            if (i > 0 && line[i - 1] != ' ') {
+                continue;
+            }
+            for (LogLevel level : LEVELS) {
+                if (level.isAt(line, i)) {
+                    return level;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isAt(byte[] line, int offset) {
+        int end = offset + bytes.length;
+        if (end > line.length || (end < line.length && line[end] != ' ')) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (line[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package run.halo.gradle.docker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Matches the lines of the container output against patterns compiled once, so that waiting
+ * for a line does not compile anything per frame.
+ *
+ * <p>Literal patterns are searched at once with an Aho–Corasick automaton over the bytes of the
+ * line, without decoding it. Regular expressions are decoded and searched with precompiled
+ * {@link Pattern}s. Instances are immutable and thread-safe.
+ */
+public abstract class LogMatcher implements Predicate<OutputFrame> {
+
+    /**
+     * Find a pattern in the given line.
+     *
+     * @param line the bytes of the line
+     * @return the index of the pattern found first, or {@code -1} if none is found
+     */
+    public abstract int indexOf(byte[] line);
+
+    @Override
+    public boolean test(OutputFrame frame) {
+        byte[] bytes = frame.getBytes();
+        return bytes != null && indexOf(bytes) >= 0;
+    }
+
+    /**
+     * Create a matcher for the lines containing any of the given strings.
+     *
+     * @param literals the strings to search for
+     * @return the matcher
+     */
+    public static LogMatcher literal(String... literals) {
+        return new Literal(literals);
+    }
+
+    /**
+     * Create a matcher for the lines containing a match of any of the given regular expressions.
+     *
+     * @param regexes the regular expressions to search for
+     * @return the matcher
+     */
+    public static LogMatcher regex(String... regexes) {
+        return new Regex(regexes);
+    }
+
+    /**
+     * An Aho–Corasick automaton whose transitions are resolved when it is built, so that the
+     * search takes one table lookup per byte.
+     */
+    static final class Literal extends LogMatcher {
+
+        private static final int ALPHABET = 256;
+
+        /**
+         * The next state for each state and byte, {@code transitions[state * 256 + byte]}.
+         */
+        private final int[] transitions;
+
+        /**
+         * The lowest index of the patterns ending in each state, {@code -1} if none.
+         */
+        private final int[] outputs;
+
+        Literal(String... literals) {
+            if (literals.length == 0) {
+                throw new IllegalArgumentException("At least one literal is required");
+            }
+            List<int[]> trie = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            trie.add(newState());
+            ends.add(-1);
+            for (int i = 0; i < literals.length; i++) {
+                byte[] bytes = literals[i].getBytes(StandardCharsets.UTF_8);
+                if (bytes.length == 0) {
+                    throw new IllegalArgumentException("Literals must not be empty");
+                }
+                int state = 0;
+                for (byte b : bytes) {
+                    int next = trie.get(state)[b & 0xFF];
+                    if (next < 0) {
+                        next = trie.size();
+                        trie.add(newState());
+                        ends.add(-1);
+                        trie.get(state)[b & 0xFF] = next;
+                    }
+                    state = next;
+                }
+                if (ends.get(state) < 0) {
+                    ends.set(state, i);
+                }
+            }
+
+            int size = trie.size();
+            this.transitions = new int[size * ALPHABET];
+            this.outputs = new int[size];
+            int[] fail = new int[size];
+            for (int state = 0; state < size; state++) {
+                outputs[state] = ends.get(state);
+            }
+
+            // breadth-first, so that the failure state of a state is resolved before it
+            Queue<Integer> queue = new ArrayDeque<>();
+            for (int b = 0; b < ALPHABET; b++) {
+                int next = trie.get(0)[b];
+                if (next < 0) {
+                    transitions[b] = 0;
+                } else {
+                    transitions[b] = next;
+                    fail[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                int failure = fail[state];
+                outputs[state] = lowest(outputs[state], outputs[failure]);
+                for (int b = 0; b < ALPHABET; b++) {
+                    int next = trie.get(state)[b];
+                    int fallback = transitions[failure * ALPHABET + b];
+                    if (next < 0) {
+                        transitions[state * ALPHABET + b] = fallback;
+                    } else {
+                        transitions[state * ALPHABET + b] = next;
+                        fail[next] = fallback;
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public int indexOf(byte[] line) {
+            int state = 0;
+            for (byte b : line) {
+                state = transitions[state * ALPHABET + (b & 0xFF)];
+                if (outputs[state] >= 0) {
+                    return outputs[state];
+                }
+            }
+            return -1;
+        }
+
+        private static int[] newState() {
+            int[] state = new int[ALPHABET];
+            Arrays.fill(state, -1);
+            return state;
+        }
+
+        private static int lowest(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            return b < 0 ? a : Math.min(a, b);
+        }
+    }
+
+    static final class Regex extends LogMatcher {
+
+        private final Pattern[] patterns;
+
+        Regex(String... regexes) {
+            if (regexes.length == 0) {
+                throw new IllegalArgumentException("At least one regular expression is required");
+            }
+            this.patterns = Arrays.stream(regexes).map(Pattern::compile).toArray(Pattern[]::new);
+        }
+
+        @Override
+        public int indexOf(byte[] line) {
+            String text = new String(line, StandardCharsets.UTF_8);
+            for (int i = 0; i < patterns.length; i++) {
+                if (patterns[i].matcher(text).find()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package run.halo.gradle.docker;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.HostConfig;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import run.halo.gradle.model.Constant;
+
+/**
+ * Supports keeping a Halo container running between builds, so that the next build only reloads
+ * the plugin into it instead of starting Halo again.
+ *
+ * <p>A reusable container is labeled with {@link Constant#REUSE_KEY_CONTAINER_LABEL}, a key
+ * derived from the image and the configuration the container is created with. A container is
+ * reused only while the key of the container to create is the same, so that a new version of
+ * Halo or a change of the configuration creates a new container.
+ */
+@Slf4j
+@UtilityClass
+public class ReusableContainer {
+
+    private static final String DEBUG_OPTIONS_ENV = "JAVA_TOOL_OPTIONS=";
+
+    private static final Pattern DEBUG_PORT_PATTERN = Pattern.compile("(address=[^,]*:)\\d+");
+
+    /**
+     * Compute the reuse key of the container created by the given command, whose debug port,
+     * if any, is configured.
+     *
+     * @param command the configured command
+     * @return the reuse key
+     */
+    public static String key(CreateContainerCmd command) {
+        return key(command, false);
+    }
+
+    /**
+     * Compute the reuse key of the container created by the given command.
+     *
+     * @param command the configured command
+     * @param randomDebugPort whether the debug port of the command has been picked at random, it
+     * is then left out of the key so that the next build can reuse the container
+     * @return the reuse key
+     */
+    public static String key(CreateContainerCmd command, boolean randomDebugPort) {
+        HostConfig hostConfig = command.getHostConfig();
+        Bind[] binds = hostConfig == null ? null : hostConfig.getBinds();
+        return key(command.getImage(), command.getCmd(), command.getEnv(),
+            binds == null ? null : Arrays.stream(binds).map(Bind::toString).toArray(String[]::new),
+            randomDebugPort);
+    }
+
+    static String key(String image, String[] cmd, String[] env, String[] binds,
+        boolean randomDebugPort) {
+        List<String> settings = new ArrayList<>();
+        settings.add(image);
+        settings.add(String.join(" ", nullToEmpty(cmd)));
+        for (String variable : nullToEmpty(env)) {
+            // a port picked at random differs on every build, the other debug options still count
+            settings.add(randomDebugPort && variable.startsWith(DEBUG_OPTIONS_ENV)
+                ? DEBUG_PORT_PATTERN.matcher(variable).replaceAll("$1") : variable);
+        }
+        settings.addAll(Arrays.asList(nullToEmpty(binds)));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(String.join("\n", settings)
+                .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Add the labels of a reusable container with the given key to the command.
+     *
+     * @param command the configured command
+     * @param key the reuse key of the command
+     */
+    public static void label(CreateContainerCmd command, String key) {
+        Map<String, String> labels = new HashMap<>();
+        if (command.getLabels() != null) {
+            labels.putAll(command.getLabels());
+        }
+        labels.put(Constant.REUSE_KEY_CONTAINER_LABEL, key);
+        command.withLabels(labels);
+    }
+
+    /**
+     * Find the container with the given name if it can be reused for the given key.
+     *
+     * @param dockerClient the docker client
+     * @param containerName the name or ID of the container
+     * @param key the reuse key of the container to create
+     * @return the container or {@code null} if there is no container with the same key
+     */
+    public static InspectContainerResponse find(DockerClient dockerClient, String containerName,
+        String key) {
+        InspectContainerResponse container;
+        try (InspectContainerCmd inspectContainerCmd =
+                 dockerClient.inspectContainerCmd(containerName)) {
+            container = inspectContainerCmd.exec();
+        } catch (NotFoundException e) {
+            return null;
+        }
+        Map<String, String> labels = container.getConfig().getLabels();
+        if (labels == null || !key.equals(labels.get(Constant.REUSE_KEY_CONTAINER_LABEL))) {
+            log.info("Container [{}] was created with another configuration, not reusing it.",
+                containerName);
+            return null;
+        }
+        return container;
+    }
+
+    /**
+     * Whether the given container is running.
+     *
+     * @param container the inspected container
+     * @return {@code true} if it is running
+     */
+    public static boolean isRunning(InspectContainerResponse container) {
+        return container != null && container.getState() != null
+            && Boolean.TRUE.equals(container.getState().getRunning());
+    }
+
+    private static String[] nullToEmpty(String[] values) {
+        return values == null ? new String[0] : values;
+    }
+}
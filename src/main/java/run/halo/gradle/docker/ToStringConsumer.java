@@ -2,27 +2,58 @@ package run.halo.gradle.docker;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Writes the output of a container to the console through a {@link ConsoleSink}, so that the
+ * container output is not slowed down by the console.
+ */
 @Slf4j
 public class ToStringConsumer extends BaseConsumer<ToStringConsumer> {
 
+    private final ConsoleSink sink;
+
+    private final LogFilter filter;
+
+    public ToStringConsumer() {
+        this(ConsoleSink.DEFAULT_CAPACITY, ConsoleSink.OverflowPolicy.SUMMARIZE, null);
+    }
+
+    /**
+     * Creates a consumer writing to {@link System#out}.
+     *
+     * @param capacity the number of lines buffered for the console
+     * @param overflowPolicy what happens to the lines when the buffer is full
+     * @param filter the lines written to the console, {@code null} writes all of them
+     */
+    public ToStringConsumer(int capacity, ConsoleSink.OverflowPolicy overflowPolicy,
+        LogFilter filter) {
+        this.sink = new ConsoleSink(System.out, capacity, overflowPolicy,
+            ToStringConsumer::format);
+        this.filter = filter == null || filter.isKeepAll() ? null : filter;
+    }
+
     @Override
     public void accept(OutputFrame outputFrame) {
+        if (outputFrame.getType() == OutputFrame.OutputType.END) {
+            // write the remaining lines before the task goes on
+            sink.close();
+            return;
+        }
+        // filtered before the buffer, so that the dropped lines take no room in it
+        if (filter == null || filter.test(outputFrame)) {
+            sink.accept(outputFrame);
+        }
+    }
+
+    static String format(OutputFrame outputFrame) {
         OutputFrame.OutputType outputType = outputFrame.getType();
 
         String utf8String = outputFrame.getUtf8String();
         utf8String = FrameConsumerResultCallback.LINE_BREAK_AT_END_PATTERN.matcher(utf8String)
             .replaceAll("");
-        switch (outputType) {
-            case END:
-                break;
-            case STDOUT:
-                System.out.println(utf8String);
-                break;
-            case STDERR:
-                System.out.println("\033[31;m" + utf8String + "\033[0m");
-                break;
-            default:
-                throw new IllegalArgumentException("Unexpected outputType " + outputType);
-        }
+        return switch (outputType) {
+            case END -> null;
+            case STDOUT -> utf8String;
+            case STDERR -> "\033[31;m" + utf8String + "\033[0m";
+        };
     }
 }
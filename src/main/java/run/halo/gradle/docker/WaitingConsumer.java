@@ -1,59 +1,132 @@
 package run.halo.gradle.docker;
 
-import java.util.concurrent.LinkedBlockingDeque;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A consumer for container output that buffers lines in a
- * {@link java.util.concurrent.BlockingDeque} and enables tests
+ * A consumer for container output that buffers lines in a ring buffer and enables tests
  * to wait for a matching condition.
+ *
+ * <p>The buffer is bounded: when the frames are not consumed fast enough, the oldest ones are
+ * dropped, so that a chatty container does not fill the memory while nobody waits. The frames
+ * are taken from the buffer while waiting, use a {@link LogMatcher} to test them without
+ * compiling anything per frame.
  */
 public class WaitingConsumer extends BaseConsumer<WaitingConsumer> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(WaitingConsumer.class);
 
-    private final LinkedBlockingDeque<OutputFrame> frames = new LinkedBlockingDeque<>();
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The deadline of a wait without limit.
+     */
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final OutputFrame[] buffer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private int head;
+
+    private int size;
+
+    private long droppedFrames;
+
+    public WaitingConsumer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a consumer buffering at most the given number of frames.
+     *
+     * @param capacity the number of frames kept until they are waited for
+     */
+    public WaitingConsumer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+        }
+        this.buffer = new OutputFrame[capacity];
+    }
 
     @Override
     public void accept(OutputFrame frame) {
-        frames.add(frame);
+        lock.lock();
+        try {
+            if (size == buffer.length) {
+                // overwrite the oldest frame
+                buffer[head] = null;
+                head = (head + 1) % buffer.length;
+                size--;
+                droppedFrames++;
+            }
+            buffer[(head + size) % buffer.length] = frame;
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Get access to the underlying frame buffer. Modifying the buffer contents is likely to
-     * cause problems if the
-     * waitUntil() methods are also being used, as they feed on the same data.
+     * Get a copy of the frames in the buffer, from the oldest to the newest.
      *
-     * @return the collection of frames
+     * @return the frames not waited for yet
      */
-    public LinkedBlockingDeque<OutputFrame> getFrames() {
-        return frames;
+    public List<OutputFrame> getFrames() {
+        lock.lock();
+        try {
+            List<OutputFrame> frames = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                frames.add(buffer[(head + i) % buffer.length]);
+            }
+            return frames;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of frames dropped because the buffer was full.
+     *
+     * @return the number of dropped frames
+     */
+    public long getDroppedFrames() {
+        lock.lock();
+        try {
+            return droppedFrames;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Wait until any frame (usually, line) of output matches the provided predicate.
      * <p>
      * Note that lines will often have a trailing newline character, and this is not stripped off
-     * before the
-     * predicate is tested.
+     * before the predicate is tested.
      *
      * @param predicate a predicate to test against each frame
      */
     public void waitUntil(Predicate<OutputFrame> predicate) throws TimeoutException {
-        // ~2.9 million centuries ought to be enough for anyone
-        waitUntil(predicate, Long.MAX_VALUE, 1);
+        waitUntil(predicate, Long.MAX_VALUE, TimeUnit.NANOSECONDS, 1);
     }
 
     /**
      * Wait until any frame (usually, line) of output matches the provided predicate.
      * <p>
      * Note that lines will often have a trailing newline character, and this is not stripped off
-     * before the
-     * predicate is tested.
+     * before the predicate is tested.
      *
      * @param predicate a predicate to test against each frame
      * @param limit maximum time to wait
@@ -68,8 +141,7 @@ public class WaitingConsumer extends BaseConsumer<WaitingConsumer> {
      * Wait until any frame (usually, line) of output matches the provided predicate.
      * <p>
      * Note that lines will often have a trailing newline character, and this is not stripped off
-     * before the
-     * predicate is tested.
+     * before the predicate is tested.
      *
      * @param predicate a predicate to test against each frame
      * @param limit maximum time to wait
@@ -77,37 +149,27 @@ public class WaitingConsumer extends BaseConsumer<WaitingConsumer> {
      * @param times number of times the predicate has to match
      */
     public void waitUntil(Predicate<OutputFrame> predicate, long limit, TimeUnit limitUnit,
-        int times)
-        throws TimeoutException {
-        long expiry = limitUnit.toMillis(limit) + System.currentTimeMillis();
-
-        waitUntil(predicate, expiry, times);
-    }
-
-    private void waitUntil(Predicate<OutputFrame> predicate, long expiry, int times)
-        throws TimeoutException {
+        int times) throws TimeoutException {
+        long deadline = deadline(limit, limitUnit);
         int numberOfMatches = 0;
-        while (System.currentTimeMillis() < expiry) {
-            try {
-                OutputFrame frame = frames.take();
-
-                final String trimmedFrameText = frame.getUtf8String().replaceFirst("\n$", "");
-                LOGGER.debug("{}: {}", frame.getType(), trimmedFrameText);
-
-                if (predicate.test(frame)) {
-                    numberOfMatches++;
-
-                    if (numberOfMatches == times) {
-                        return;
-                    }
-                }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+        while (true) {
+            OutputFrame frame = poll(deadline);
+            if (frame == null) {
+                throw new TimeoutException(
+                    "Expiry time reached before the output matched " + times + " time(s)");
+            }
+            if (frame == OutputFrame.END) {
+                // nothing can match any more
+                throw new TimeoutException("End of output reached before the output matched "
+                    + times + " time(s)");
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("{}: {}", frame.getType(), trimmedText(frame));
+            }
+            if (predicate.test(frame) && ++numberOfMatches == times) {
+                return;
             }
         }
-
-        // did not return before expiry was reached
-        throw new TimeoutException();
     }
 
     /**
@@ -115,7 +177,7 @@ public class WaitingConsumer extends BaseConsumer<WaitingConsumer> {
      */
     public void waitUntilEnd() {
         try {
-            waitUntilEnd(Long.MAX_VALUE);
+            waitUntilEnd(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
         } catch (TimeoutException e) {
             // timeout condition can never occur in a realistic timeframe
             throw new IllegalStateException(e);
@@ -129,22 +191,69 @@ public class WaitingConsumer extends BaseConsumer<WaitingConsumer> {
      * @param limitUnit maximum time to wait (units)
      */
     public void waitUntilEnd(long limit, TimeUnit limitUnit) throws TimeoutException {
-        long expiry = limitUnit.toMillis(limit) + System.currentTimeMillis();
-
-        waitUntilEnd(expiry);
+        long deadline = deadline(limit, limitUnit);
+        while (true) {
+            OutputFrame frame = poll(deadline);
+            if (frame == null) {
+                throw new TimeoutException("Expiry time reached before end of output");
+            }
+            if (frame == OutputFrame.END) {
+                return;
+            }
+        }
     }
 
-    private void waitUntilEnd(Long expiry) throws TimeoutException {
-        while (System.currentTimeMillis() < expiry) {
-            try {
-                OutputFrame frame = frames.take();
-                if (frame == OutputFrame.END) {
-                    return;
+    /**
+     * Take the oldest frame, waiting until the deadline if the buffer is empty.
+     *
+     * @param deadline the deadline in {@link System#nanoTime()} or {@link #NO_DEADLINE}
+     * @return the frame or {@code null} if the deadline is reached
+     */
+    private OutputFrame poll(long deadline) {
+        lock.lock();
+        try {
+            while (size == 0) {
+                if (deadline == NO_DEADLINE) {
+                    notEmpty.await();
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
                 }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+                notEmpty.awaitNanos(remaining);
             }
+            OutputFrame frame = buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            size--;
+            return frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for output", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long deadline(long limit, TimeUnit limitUnit) {
+        long nanos = limitUnit.toNanos(limit);
+        // centuries, the sum would overflow
+        if (nanos >= Long.MAX_VALUE / 2) {
+            return NO_DEADLINE;
+        }
+        return System.nanoTime() + nanos;
+    }
+
+    private static String trimmedText(OutputFrame frame) {
+        byte[] bytes = frame.getBytes();
+        if (bytes == null) {
+            return "";
+        }
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\n') {
+            length--;
         }
-        throw new TimeoutException("Expiry time reached before end of output");
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
     }
 }
@@ -1,5 +1,7 @@
 package run.halo.gradle.extension;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nonnull;
 import lombok.Data;
 import org.apache.commons.lang3.ObjectUtils;
@@ -10,6 +12,8 @@ import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.provider.Property;
+import run.halo.gradle.docker.ConsoleSink;
+import run.halo.gradle.docker.LogFilter;
 import run.halo.gradle.utils.DebugUtils;
 
 /**
@@ -48,6 +52,22 @@ public class HaloExtension {
 
     private Boolean suspend = false;
 
+    /**
+     * Whether the Halo container is kept running after the build, so that the next build only
+     * reloads the plugin into it instead of starting Halo again.
+     */
+    private Boolean reuseContainer = false;
+
+    /**
+     * The number of lines of the Halo output buffered for the console.
+     */
+    private Integer consoleBufferSize = ConsoleSink.DEFAULT_CAPACITY;
+
+    /**
+     * What happens to the lines of the Halo output when the console cannot keep up.
+     */
+    private ConsoleSink.OverflowPolicy consoleOverflow = ConsoleSink.OverflowPolicy.SUMMARIZE;
+
     private RegularFileProperty additionalConfigFile;
 
     @Nonnull
@@ -55,6 +75,21 @@ public class HaloExtension {
         return ObjectUtils.defaultIfNull(suspend, false);
     }
 
+    @Nonnull
+    public Boolean getReuseContainer() {
+        return ObjectUtils.defaultIfNull(reuseContainer, false);
+    }
+
+    @Nonnull
+    public Integer getConsoleBufferSize() {
+        return ObjectUtils.defaultIfNull(consoleBufferSize, ConsoleSink.DEFAULT_CAPACITY);
+    }
+
+    @Nonnull
+    public ConsoleSink.OverflowPolicy getConsoleOverflow() {
+        return ObjectUtils.defaultIfNull(consoleOverflow, ConsoleSink.OverflowPolicy.SUMMARIZE);
+    }
+
     @Nonnull
     public Integer getPort() {
         return ObjectUtils.defaultIfNull(port, 8090);
@@ -82,8 +117,18 @@ public class HaloExtension {
         }
     }
 
+    /**
+     * Whether {@link #getDebugPort()} picks an available port at random, i.e. no debug port is
+     * configured.
+     */
+    public boolean isDebugPortRandom() {
+        return debugPort == null;
+    }
+
     private Docker docker;
 
+    private Logs logs = new Logs();
+
     public HaloExtension(ObjectFactory objectFactory) {
         this.docker = new Docker(objectFactory);
         this.additionalConfigFile = objectFactory.fileProperty();
@@ -93,6 +138,51 @@ public class HaloExtension {
         action.execute(docker);
     }
 
+    public void logs(Action<? super Logs> action) {
+        action.execute(logs);
+    }
+
+    /**
+     * Which lines of the Halo output are written to the console.
+     */
+    @Data
+    public static class Logs {
+
+        /**
+         * The minimum level of the log entries, for example {@code INFO} to hide the
+         * {@code DEBUG} entries of Halo. Every entry is written if not set.
+         */
+        private String level;
+
+        /**
+         * Regular expressions, if not empty only the log entries matching one of them are
+         * written.
+         */
+        private List<String> includes = new ArrayList<>();
+
+        /**
+         * Regular expressions, the log entries matching one of them are not written.
+         */
+        private List<String> excludes = new ArrayList<>();
+
+        /**
+         * The number of lines of the previous output written when attaching to a running
+         * container, a negative number writes all of them.
+         */
+        private Integer tail = 100;
+
+        /**
+         * Only the previous output since this time is written when attaching to a running
+         * container, either a timestamp such as {@code 2024-01-01T10:00:00Z} or a duration
+         * such as {@code 10m}.
+         */
+        private String since;
+
+        public LogFilter createFilter() {
+            return new LogFilter(LogFilter.parseLevel(level), includes, excludes);
+        }
+    }
+
     public static class Docker {
 
         private final Property<String> url;
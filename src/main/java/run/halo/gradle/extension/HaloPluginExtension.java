@@ -33,6 +33,56 @@ public class HaloPluginExtension {
 
     private NamedDomainObjectContainer<WatchTarget> watchDomains;
 
+    /**
+     * The number of threads used to scan the watched directories, {@code 1} scans them one
+     * after another.
+     */
+    private int watchParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether the watch task adapts the poll interval and quiet period to the file activity, in
+     * which case {@link #watchPollInterval} and {@link #watchQuietPeriod} are upper bounds.
+     */
+    private boolean watchAdaptive = true;
+
+    /**
+     * The time in milliseconds between two polls of the watched directories, only used when
+     * file system events are not available.
+     */
+    private long watchPollInterval = 2000;
+
+    /**
+     * The time in milliseconds without further changes required before a build is triggered.
+     */
+    private long watchQuietPeriod = 500;
+
+    /**
+     * Whether the watch task compares the content of the modified files, so that files written
+     * again with the same content do not trigger a build.
+     */
+    private boolean watchVerifyContent = true;
+
+    /**
+     * Whether the watch task appends the timings of every build to
+     * {@code build/halo-devtools/watch-metrics.jsonl}.
+     */
+    private boolean watchMetrics;
+
+    /**
+     * Whether the watch task redefines the changed classes through the debug port when only
+     * method bodies changed, instead of reloading the plugin. Requires the debug mode.
+     */
+    private boolean watchHotSwap = true;
+
+    /**
+     * The time in milliseconds to wait for the plugin to start after Halo has been set up or
+     * the plugin has been reloaded. When the plugin has neither started nor failed in time, the
+     * {@code reloadPlugin} and {@code generateOpenApiDocs} tasks fail, the {@code haloServer} and
+     * {@code watch} tasks log the error and keep running, the watch task waits for the next
+     * change.
+     */
+    private long pluginReadyTimeout = 300_000;
+
     public HaloPluginExtension(Project project) {
         this.watchDomains = project.container(WatchTarget.class);
         this.mainClass = project.getObjects().property(String.class);
@@ -7,4 +7,6 @@ package run.halo.gradle.model;
 public enum Constant {
     ;
     public final static String DEFAULT_CONTAINER_LABEL = "halo.container.createdBy";
+
+    public final static String REUSE_KEY_CONTAINER_LABEL = "halo.container.reuseKey";
 }
@@ -74,7 +74,8 @@ public abstract class CleanupApiServerContainer
             return false;
         }
         if (task instanceof OpenApiDocsGeneratorTask openApiDocsGeneratorTask) {
-            return !openApiDocsGeneratorTask.getUseExistingServer().getOrElse(false);
+            return !openApiDocsGeneratorTask.getUseExistingServer().getOrElse(false)
+                && !openApiDocsGeneratorTask.getReuseContainer().getOrElse(false);
         }
         return true;
     }
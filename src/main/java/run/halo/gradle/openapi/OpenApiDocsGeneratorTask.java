@@ -58,11 +58,14 @@ import org.gradle.api.tasks.Optional;
 import org.jetbrains.annotations.NotNull;
 import run.halo.gradle.docker.FrameConsumerResultCallback;
 import run.halo.gradle.docker.OutputFrame;
+import run.halo.gradle.docker.ReusableContainer;
 import run.halo.gradle.docker.ToStringConsumer;
 import run.halo.gradle.extension.HaloExtension;
 import run.halo.gradle.extension.HaloPluginExtension;
 import run.halo.gradle.model.Constant;
 import run.halo.gradle.steps.HaloSiteOption;
+import run.halo.gradle.steps.HaloHttpClientService;
+import run.halo.gradle.steps.LogReadinessProbe;
 import run.halo.gradle.steps.PluginClient;
 import run.halo.gradle.steps.SetupHaloStep;
 import run.halo.gradle.utils.Assert;
@@ -104,12 +107,28 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
     @Input
     final Property<Boolean> useExistingServer = getProject().getObjects().property(Boolean.class);
 
+    /**
+     * Whether the container is kept running after the task, so that the next run only reloads
+     * the plugin into it.
+     */
+    @Internal
+    final Property<Boolean> reuseContainer = getProject().getObjects().property(Boolean.class);
+
+    /**
+     * The HTTP client shared by the build to call Halo.
+     */
+    @Internal
+    final Property<HaloHttpClientService> httpClientService =
+        getProject().getObjects().property(HaloHttpClientService.class);
+
     public OpenApiDocsGeneratorTask() {
         var openApi = getPluginExtension().getOpenApi();
         requestHeaders.convention(openApi.getRequestHeaders());
         waitTimeInSeconds.convention(openApi.getWaitTimeInSeconds());
         port.convention(openApi.getApiDocsPort());
         useExistingServer.convention(openApi.getUseExistingServer());
+        reuseContainer.convention(getProject().getExtensions().getByType(HaloExtension.class)
+            .getReuseContainer());
     }
 
     @Override
@@ -131,7 +150,9 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
         try (var dockerClient = getDockerClient()) {
             prepareApiDocsServer(dockerClient);
             generateApiDocs(outputDirFile);
-            removeContainer(dockerClient);
+            if (!reuseContainer.get()) {
+                removeContainer(dockerClient);
+            }
         }
     }
 
@@ -160,10 +181,18 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
     private void prepareApiDocsServer(DockerClient dockerClient) {
         String imageId = getImageId().get();
         try {
-            removeContainer(dockerClient);
-
             var containerCommand = dockerClient.createContainerCmd(imageId);
             setContainerCommandConfig(containerCommand);
+            if (reuseContainer.get()) {
+                String reuseKey = ReusableContainer.key(containerCommand);
+                if (reloadIntoRunningContainer(dockerClient, reuseKey)) {
+                    containerCommand.close();
+                    return;
+                }
+                ReusableContainer.label(containerCommand, reuseKey);
+            }
+            removeContainer(dockerClient);
+
             var container = containerCommand.exec();
 
             this.containerId.convention(container.getId());
@@ -177,9 +206,14 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
             dockerClient.startContainerCmd(container.getId()).exec();
 
             final FrameConsumerResultCallback callback = new FrameConsumerResultCallback();
-            ToStringConsumer toStringConsumer = new ToStringConsumer();
+            var haloExtension = getProject().getExtensions().getByType(HaloExtension.class);
+            ToStringConsumer toStringConsumer = new ToStringConsumer(
+                haloExtension.getConsoleBufferSize(), haloExtension.getConsoleOverflow(),
+                haloExtension.getLogs().createFilter());
             callback.addConsumer(OutputFrame.OutputType.STDOUT, toStringConsumer);
             callback.addConsumer(OutputFrame.OutputType.STDERR, toStringConsumer);
+            var readinessProbe = new LogReadinessProbe();
+            readinessProbe.attachTo(callback);
 
             dockerClient.attachContainerCmd(container.getId())
                 .withStdErr(true)
@@ -189,7 +223,7 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
                 .exec(callback);
 
             var siteOption = createHaloSiteOption();
-            waitForSetup(siteOption);
+            waitForSetup(siteOption, readinessProbe);
             waitForPluginReady(siteOption);
 
         } catch (Exception e) {
@@ -197,6 +231,32 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
         }
     }
 
+    /**
+     * Reload the plugin into the container kept from a previous run, if it is still running
+     * with the same configuration.
+     *
+     * @return {@code false} if the container has to be created
+     */
+    private boolean reloadIntoRunningContainer(DockerClient dockerClient, String reuseKey) {
+        var container = ReusableContainer.find(dockerClient, CONTAINER_NAME, reuseKey);
+        if (!ReusableContainer.isRunning(container)) {
+            return false;
+        }
+        var client = createPluginClient(createHaloSiteOption());
+        long reloadedVersion;
+        try {
+            reloadedVersion = client.requestReload();
+        } catch (RuntimeException e) {
+            log.warn("Container [{}] is not responding, creating a new one: {}", CONTAINER_NAME,
+                e.getMessage());
+            return false;
+        }
+        this.containerId.convention(container.getId());
+        System.out.println("Reloading the plugin into the running container " + CONTAINER_NAME);
+        client.awaitReloaded(reloadedVersion);
+        return true;
+    }
+
     void removeContainer(DockerClient dockerClient) {
         try {
             dockerClient.removeContainerCmd(CONTAINER_NAME)
@@ -291,14 +351,19 @@ public class OpenApiDocsGeneratorTask extends AbstractOpenApiDocsTask {
         }
     }
 
-    private void waitForSetup(HaloSiteOption siteOption) {
-        new SetupHaloStep(siteOption).execute();
+    private void waitForSetup(HaloSiteOption siteOption, LogReadinessProbe readinessProbe) {
+        var httpClient = httpClientService.get().getHttpClient();
+        new SetupHaloStep(siteOption, httpClient, readinessProbe).execute();
     }
 
     private void waitForPluginReady(HaloSiteOption siteOption) {
+        createPluginClient(siteOption).checkPluginState();
+    }
+
+    private PluginClient createPluginClient(HaloSiteOption siteOption) {
         var pluginName = getPluginExtension().getPluginName();
-        var client = new PluginClient(pluginName, siteOption);
-        client.checkPluginState();
+        return new PluginClient(pluginName, siteOption,
+            httpClientService);
     }
 
     private HaloSiteOption createHaloSiteOption() {
@@ -1,16 +1,15 @@
 package run.halo.gradle.steps;
 
 import static org.apache.commons.lang3.BooleanUtils.isNotTrue;
+import static org.apache.commons.lang3.BooleanUtils.isTrue;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.function.Supplier;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import run.halo.gradle.model.Condition;
 import run.halo.gradle.model.Plugin;
-import run.halo.gradle.utils.RetryUtils;
 
 @Slf4j
 @UtilityClass
@@ -18,19 +17,21 @@ class CheckPluginStateHelper {
     public static final String ANSI_RED = "\u001B[31m";
     public static final String ANSI_RESET = "\u001B[0m";
 
-    public static void checkState(Supplier<Plugin> pluginSupplier) {
-        RetryUtils.withRetry(20, 100, () -> {
-            try {
-                checkPluginState(pluginSupplier);
-                return true;
-            } catch (WaitPluginStartedException e) {
-                return false;
-            }
-        });
+    /**
+     * Wait for the plugin to settle and print its state.
+     *
+     * @param readiness the readiness of the plugin
+     * @param afterVersion the version the plugin must be newer than, negative for any version
+     * @return {@code true} if the plugin has started, {@code false} if it has failed, is
+     * disabled or does not exist
+     */
+    public static boolean checkState(PluginReadiness readiness, long afterVersion) {
+        Plugin plugin = readiness.await(afterVersion);
+        printState(plugin);
+        return plugin != null && isTrue(plugin.getSpec().getEnabled()) && isStarted(plugin);
     }
 
-    private static void checkPluginState(Supplier<Plugin> pluginSupplier) {
-        var plugin = pluginSupplier.get();
+    private static void printState(Plugin plugin) {
         if (plugin == null) {
             return;
         }
@@ -44,12 +45,7 @@ class CheckPluginStateHelper {
         }
         if (isFailed(plugin)) {
             printFailedReason(plugin.getStatus());
-            return;
         }
-        var pluginName = plugin.getMetadata().getName();
-        throw new WaitPluginStartedException(
-            "Waiting for plugin " + pluginName + " to start, current status: "
-            + plugin.getStatus().getPhase());
     }
 
     private static void printFailedReason(Plugin.PluginStatus status) {
@@ -92,12 +88,6 @@ class CheckPluginStateHelper {
         System.out.println(ANSI_RESET);
     }
 
-    static class WaitPluginStartedException extends RuntimeException {
-        public WaitPluginStartedException(String message) {
-            super(message);
-        }
-    }
-
     private static boolean isStarted(Plugin plugin) {
         return plugin.getStatus().getPhase() == Plugin.Phase.STARTED;
     }
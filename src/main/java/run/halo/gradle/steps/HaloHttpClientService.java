@@ -0,0 +1,114 @@
+package run.halo.gradle.steps;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service for the HTTP client used to call the Halo REST APIs.
+ *
+ * <p>All the requests of a build share the same pool of keep-alive connections, so that polling
+ * the state of a plugin does not open a new connection for every request. The client is closed
+ * along with the build service at the end of the build.
+ */
+public abstract class HaloHttpClientService
+    implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+
+    public static final String NAME = "haloHttpClient";
+
+    /**
+     * The requests only target a single Halo server, the extra connections serve the requests
+     * made concurrently by the setup and the watch task.
+     */
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 5;
+
+    private static final int MAX_CONNECTIONS = 10;
+
+    private static final Timeout CONNECT_TIMEOUT = Timeout.ofSeconds(5);
+
+    /**
+     * Reloading a plugin waits for it to be stopped and started again.
+     */
+    private static final Timeout RESPONSE_TIMEOUT = Timeout.ofSeconds(60);
+
+    private static final Timeout CONNECTION_REQUEST_TIMEOUT = Timeout.ofSeconds(30);
+
+    /**
+     * Connections idle for longer are checked before being reused, the server may have been
+     * restarted in the meantime.
+     */
+    private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(2);
+
+    private static final TimeValue MAX_IDLE_TIME = TimeValue.ofSeconds(30);
+
+    private volatile CloseableHttpClient httpClient;
+
+    /**
+     * Register the build service with the given project, or return the one already registered.
+     *
+     * @param project the project
+     * @return the build service provider
+     */
+    public static Provider<HaloHttpClientService> register(Project project) {
+        return project.getGradle().getSharedServices()
+            .registerIfAbsent(NAME, HaloHttpClientService.class, spec -> {
+            });
+    }
+
+    /**
+     * Returns the shared HTTP client, created on first use.
+     *
+     * @return the HTTP client, must not be closed by the caller
+     */
+    public CloseableHttpClient getHttpClient() {
+        CloseableHttpClient client = this.httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = this.httpClient;
+                if (client == null) {
+                    client = createHttpClient();
+                    this.httpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    static CloseableHttpClient createHttpClient() {
+        var connectionConfig = ConnectionConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT)
+            .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+            .build();
+        var connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+            .setMaxConnTotal(MAX_CONNECTIONS)
+            .setDefaultConnectionConfig(connectionConfig)
+            .build();
+        var requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT)
+            .setResponseTimeout(RESPONSE_TIMEOUT)
+            .build();
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictIdleConnections(MAX_IDLE_TIME)
+            .build();
+    }
+
+    @Override
+    public void close() {
+        CloseableHttpClient client = this.httpClient;
+        if (client != null) {
+            client.close(CloseMode.GRACEFUL);
+        }
+    }
+}
@@ -3,19 +3,37 @@ package run.halo.gradle.steps;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+import run.halo.gradle.utils.BackoffPolicy;
 import run.halo.gradle.utils.JsonUtils;
 import run.halo.gradle.utils.RetryUtils;
+import run.halo.gradle.utils.RetryUtils.RetryOptions;
 
+@Slf4j
 @UtilityClass
 public class HttpUtils {
 
+    /**
+     * Bounds a health check, a server that is starting may accept connections long before it
+     * responds. The connect timeout is the one of the connection pool.
+     */
+    private static final Timeout HEALTH_CHECK_TIMEOUT = Timeout.ofSeconds(5);
+
+    private static final RequestConfig HEALTH_CHECK_CONFIG = RequestConfig.custom()
+        .setConnectionRequestTimeout(HEALTH_CHECK_TIMEOUT)
+        .setResponseTimeout(HEALTH_CHECK_TIMEOUT)
+        .build();
+
     public static String getEntityString(CloseableHttpResponse response) {
         try (response) {
             return EntityUtils.toString(response.getEntity());
@@ -28,18 +46,51 @@ public class HttpUtils {
         return response.getCode() >= 200 && response.getCode() < 300;
     }
 
-    public static void waitForReadiness(URI externalUrl, CloseableHttpClient client) {
+    /**
+     * Wait for Halo to report that it is up, checking it at most every second. No check is
+     * started when less than the time of a check is left before the timeout.
+     *
+     * @param externalUrl the external URL of Halo
+     * @param client the HTTP client
+     * @param timeout the time after which to give up
+     * @throws IllegalStateException if Halo is not up before the timeout
+     */
+    public static void waitForReadiness(URI externalUrl, CloseableHttpClient client,
+        Duration timeout) {
+        var options = RetryOptions.builder()
+            .backoff(BackoffPolicy.exponential(Duration.ofMillis(100), Duration.ofSeconds(1)))
+            .deadline(timeout)
+            .minAttemptTime(Duration.ofMillis(HEALTH_CHECK_TIMEOUT.toMilliseconds()))
+            .listener((attempt, failure, delay) -> {
+                if (attempt % 10 == 0) {
+                    log.info("Waiting for Halo to start, attempt {}", attempt);
+                }
+            })
+            .build();
+        boolean up = RetryUtils.retry(options, () -> isReady(externalUrl, client));
+        if (!up) {
+            throw new IllegalStateException(
+                "Halo is not up after " + timeout.toSeconds() + "s: " + externalUrl);
+        }
+    }
+
+    /**
+     * Check once whether Halo reports that it is up.
+     *
+     * @param externalUrl the external URL of Halo
+     * @param client the HTTP client
+     * @return {@code true} if it is up, {@code false} if it is not or cannot be reached
+     */
+    public static boolean isReady(URI externalUrl, CloseableHttpClient client) {
         var httpGet = new HttpGet(externalUrl.resolve("/actuator/health"));
-        RetryUtils.withRetry(20, 400, () -> {
-            try {
-                var response = client.execute(httpGet);
-                var body = getEntityString(response);
-                return isSuccessful(response) && isUp(body);
-            } catch (IOException e) {
-                // ignore
-                return false;
-            }
-        });
+        httpGet.setConfig(HEALTH_CHECK_CONFIG);
+        try (var response = client.execute(httpGet)) {
+            var body = getEntityString(response);
+            return isSuccessful(response) && isUp(body);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Halo is not ready yet: {}", e.getMessage());
+            return false;
+        }
     }
 
     static boolean isUp(String body) throws JsonProcessingException {
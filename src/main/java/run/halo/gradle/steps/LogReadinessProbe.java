@@ -0,0 +1,105 @@
+package run.halo.gradle.steps;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import run.halo.gradle.docker.FrameConsumerResultCallback;
+import run.halo.gradle.docker.LogMatcher;
+import run.halo.gradle.docker.OutputFrame;
+import run.halo.gradle.docker.WaitingConsumer;
+
+/**
+ * Detects that Halo is ready from its output instead of polling its health endpoint.
+ *
+ * <p>Spring Boot logs {@code Started Application in 8.1 seconds} as soon as Halo is started, the
+ * health endpoint is then checked once to confirm it. In case the line is missed, for example
+ * because Halo logs it differently, the health endpoint is also checked every few seconds while
+ * waiting for it.
+ */
+@Slf4j
+public class LogReadinessProbe {
+
+    static final LogMatcher STARTED = LogMatcher.literal("Started Application in ");
+
+    /**
+     * The time between the health checks while the line is not logged.
+     */
+    static final Duration CHECK_INTERVAL = Duration.ofSeconds(5);
+
+    private final WaitingConsumer output = new WaitingConsumer();
+
+    private final Duration checkInterval;
+
+    public LogReadinessProbe() {
+        this(CHECK_INTERVAL);
+    }
+
+    LogReadinessProbe(Duration checkInterval) {
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * Read the output of the Halo container, must be called before it starts.
+     *
+     * @param callback the callback receiving the output of the container
+     */
+    public void attachTo(FrameConsumerResultCallback callback) {
+        callback.addConsumer(OutputFrame.OutputType.STDOUT, output);
+        callback.addConsumer(OutputFrame.OutputType.STDERR, output);
+    }
+
+    /**
+     * Wait for Halo to be ready, polling its health endpoint if it cannot be confirmed from its
+     * output.
+     *
+     * @param externalUrl the external URL of Halo
+     * @param client the HTTP client
+     * @param timeout the time after which to give up
+     * @throws IllegalStateException if Halo is not up before the timeout
+     */
+    public void awaitReadiness(URI externalUrl, CloseableHttpClient client, Duration timeout) {
+        long start = System.nanoTime();
+        if (awaitStarted(timeout, () -> HttpUtils.isReady(externalUrl, client))) {
+            log.info("Halo is ready after {} ms, detected from its output",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return;
+        }
+        Duration remaining = timeout.minusNanos(System.nanoTime() - start);
+        HttpUtils.waitForReadiness(externalUrl, client,
+            remaining.isNegative() ? Duration.ZERO : remaining);
+        log.info("Halo is ready after {} ms, detected from its health endpoint",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Wait for the line logged when Halo is started and confirm it with the given check.
+     *
+     * @param timeout the time after which to give up
+     * @param check the health check
+     * @return {@code true} if Halo is ready, {@code false} if the check failed after the line
+     * was logged or the timeout is reached
+     */
+    boolean awaitStarted(Duration timeout, BooleanSupplier check) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                output.waitUntil(STARTED, Math.min(checkInterval.toNanos(), remaining),
+                    TimeUnit.NANOSECONDS, 1);
+                return check.getAsBoolean();
+            } catch (TimeoutException e) {
+                // not logged yet, or logged before the output was attached
+                if (check.getAsBoolean()) {
+                    return true;
+                }
+            }
+        }
+    }
+}
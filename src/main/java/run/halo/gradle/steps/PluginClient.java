@@ -1,97 +1,193 @@
 package run.halo.gradle.steps;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
 import run.halo.gradle.extension.HaloExtension;
 import run.halo.gradle.extension.HaloPluginExtension;
 import run.halo.gradle.model.Plugin;
 import run.halo.gradle.utils.JsonUtils;
-import run.halo.gradle.utils.RetryUtils;
 
 @Getter
 public class PluginClient {
     private final String pluginName;
-    private final HttpClientFactory clientFactory;
+    private final Provider<HaloHttpClientService> httpClientService;
     private final HaloSiteOption siteOption;
     private final URI baseUri;
+    @Getter(AccessLevel.NONE)
+    private final String authorization;
+    private final Duration readyTimeout;
 
-    public PluginClient(Project project) {
-        this(project.getExtensions().getByType(HaloPluginExtension.class).getPluginName(),
-            HaloSiteOption.from(project.getExtensions().getByType(HaloExtension.class)));
+    /**
+     * Creates a client for the plugin of the given project.
+     *
+     * @param project the project of the plugin
+     * @param httpClientService the build service of the HTTP client, only resolved when a request
+     * is made
+     */
+    public PluginClient(Project project, Provider<HaloHttpClientService> httpClientService) {
+        this(project.getExtensions().getByType(HaloPluginExtension.class),
+            HaloSiteOption.from(project.getExtensions().getByType(HaloExtension.class)),
+            httpClientService);
     }
 
-    public PluginClient(String pluginName, HaloSiteOption siteOption) {
+    private PluginClient(HaloPluginExtension pluginExtension, HaloSiteOption siteOption,
+        Provider<HaloHttpClientService> httpClientService) {
+        this(pluginExtension.getPluginName(), siteOption, httpClientService,
+            Duration.ofMillis(pluginExtension.getPluginReadyTimeout()));
+    }
+
+    public PluginClient(String pluginName, HaloSiteOption siteOption,
+        Provider<HaloHttpClientService> httpClientService) {
+        this(pluginName, siteOption, httpClientService, PluginReadiness.DEFAULT_TIMEOUT);
+    }
+
+    public PluginClient(String pluginName, HaloSiteOption siteOption,
+        Provider<HaloHttpClientService> httpClientService, Duration readyTimeout) {
         this.pluginName = pluginName;
         this.siteOption = siteOption;
         this.baseUri = siteOption.externalUrl();
-        this.clientFactory = new HttpClientFactory(siteOption);
+        this.httpClientService = httpClientService;
+        this.authorization = getBasicAuthenticationHeader(siteOption);
+        this.readyTimeout = readyTimeout;
+    }
+
+    /**
+     * Returns the HTTP client shared by the build, it must not be closed.
+     *
+     * @return the shared HTTP client
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClientService.get().getHttpClient();
     }
 
     public void reloadPlugin() {
-        try (var client = clientFactory.create()) {
-            var httpPut =
-                buildPut("/apis/api.console.halo.run/v1alpha1/plugins/" + pluginName + "/reload");
-            var response = client.execute(httpPut);
+        awaitReloaded(requestReload());
+    }
+
+    /**
+     * Ask Halo to reload the plugin without waiting for it to start.
+     *
+     * @return the version of the plugin resource returned by the reload request
+     */
+    public long requestReload() {
+        var httpPut =
+            buildPut("/apis/api.console.halo.run/v1alpha1/plugins/" + pluginName + "/reload");
+        // the response is closed to release the connection back to the pool
+        try (var response = getHttpClient().execute(httpPut)) {
             if (!HttpUtils.isSuccessful(response)) {
                 throw new RuntimeException("Reload plugin failed, " + response.getReasonPhrase());
             }
-            var plugin = pluginResponseToEntity(response);
-            var reloadedVersion = plugin.getMetadata().getVersion();
-
-            RetryUtils.withRetry(10, 100, () -> {
-                var latestPlugin = getPlugin();
-                if (latestPlugin == null) {
-                    return false;
-                }
-                var latestVersion = latestPlugin.getMetadata().getVersion();
-                return latestVersion > reloadedVersion;
-            });
-            CheckPluginStateHelper.checkState(this::getPlugin);
+            var plugin = readPluginState(response);
+            if (plugin == null || plugin.getMetadata().getVersion() == null) {
+                throw new IllegalArgumentException("Failed to parse plugin response");
+            }
+            return plugin.getMetadata().getVersion();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Wait until the reload requested by {@link #requestReload()} has been picked up and the
+     * plugin has started.
+     *
+     * @param reloadedVersion the version returned by {@link #requestReload()}
+     * @return {@code true} if the plugin has started, {@code false} if it has failed or is
+     * disabled
+     */
+    public boolean awaitReloaded(long reloadedVersion) {
+        return CheckPluginStateHelper.checkState(readiness(), reloadedVersion);
+    }
+
     public Plugin getPlugin() {
         var httpGet = buildGet("/apis/plugin.halo.run/v1alpha1/plugins/" + pluginName);
-        try (var client = clientFactory.create()) {
-            var response = client.execute(httpGet);
-            if (!HttpUtils.isSuccessful(response)) {
-                throw new FailedToGetPluginException(
-                    "Failed to get plugin: " + response.getReasonPhrase());
+        try (var response = getHttpClient().execute(httpGet)) {
+            checkPluginResponse(response);
+            var entity = response.getEntity();
+            try {
+                return JsonUtils.reader(Plugin.class).readValue(entity.getContent());
+            } finally {
+                EntityUtils.consume(entity);
             }
-            var entity = HttpUtils.getEntityString(response);
-            return JsonUtils.mapper().readValue(entity, Plugin.class);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the plugin with only the fields that tell whether it is ready, i.e. the name and
+     * version of its metadata, its display name and enabled flag, and its phase and first
+     * condition. Cheaper than {@link #getPlugin()} for polling.
+     *
+     * @return the plugin with its state
+     */
+    public Plugin getPluginState() {
+        var httpGet = buildGet("/apis/plugin.halo.run/v1alpha1/plugins/" + pluginName);
+        try (var response = getHttpClient().execute(httpGet)) {
+            checkPluginResponse(response);
+            return readPluginState(response);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     public void checkPluginState() {
-        CheckPluginStateHelper.checkState(this::getPlugin);
+        CheckPluginStateHelper.checkState(readiness(), -1);
     }
 
-    private static Plugin pluginResponseToEntity(CloseableHttpResponse response) {
-        var entity = HttpUtils.getEntityString(response);
+    private PluginReadiness readiness() {
+        return new PluginReadiness(this::getPluginState, PluginReadiness.DEFAULT_POLL_INTERVAL,
+            readyTimeout);
+    }
+
+    private static void checkPluginResponse(CloseableHttpResponse response) {
+        if (!HttpUtils.isSuccessful(response)) {
+            throw new FailedToGetPluginException(
+                "Failed to get plugin: " + response.getReasonPhrase());
+        }
+    }
+
+    private static Plugin readPluginState(CloseableHttpResponse response) throws IOException {
+        var entity = response.getEntity();
         try {
-            return JsonUtils.mapper().readValue(entity, Plugin.class);
-        } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Failed to parse plugin response");
+            return PluginStateDecoder.decode(entity.getContent());
+        } finally {
+            // drain the skipped fields without parsing them so the connection can be reused
+            EntityUtils.consume(entity);
         }
     }
 
     private HttpGet buildGet(String path) {
-        return new HttpGet(baseUri.resolve(path));
+        return authorize(new HttpGet(baseUri.resolve(path)));
     }
 
     private HttpPut buildPut(String path) {
-        return new HttpPut(baseUri.resolve(path));
+        return authorize(new HttpPut(baseUri.resolve(path)));
+    }
+
+    private <T extends HttpUriRequestBase> T authorize(T request) {
+        request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        return request;
+    }
+
+    private static String getBasicAuthenticationHeader(HaloSiteOption haloSiteOption) {
+        String valueToEncode = haloSiteOption.username() + ":" + haloSiteOption.password();
+        return "Basic " + Base64.getEncoder()
+            .encodeToString(valueToEncode.getBytes(StandardCharsets.UTF_8));
     }
 
     public static class FailedToGetPluginException extends RuntimeException {
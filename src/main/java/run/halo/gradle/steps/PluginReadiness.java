@@ -0,0 +1,118 @@
+package run.halo.gradle.steps;
+
+import static org.apache.commons.lang3.BooleanUtils.isNotTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import run.halo.gradle.model.Plugin;
+import run.halo.gradle.utils.Assert;
+import run.halo.gradle.utils.BackoffPolicy;
+import run.halo.gradle.utils.RetryUtils;
+import run.halo.gradle.utils.RetryUtils.RetryOptions;
+import run.halo.gradle.utils.RetryUtils.Sleeper;
+
+/**
+ * Waits for a plugin to settle, i.e. to be started, to have failed or to be disabled.
+ *
+ * <p>The Halo REST API has no watch or long-poll support for extensions, so the plugin is polled
+ * at a short fixed interval with a random jitter, which keeps the detection latency within one
+ * interval of the plugin being ready instead of growing with every attempt. When waiting for a
+ * reload, the states older than the {@code metadata.version} returned by the reload request are
+ * ignored. The wait fails once the deadline is reached.
+ */
+class PluginReadiness {
+
+    static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(100);
+
+    static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(5);
+
+    /**
+     * The jitter as a fraction of the poll interval, the delays are spread evenly around it.
+     */
+    private static final double JITTER = 0.25;
+
+    private final Supplier<Plugin> pluginSupplier;
+
+    private final BackoffPolicy backoff;
+
+    private final Duration timeout;
+
+    private final Sleeper sleeper;
+
+    PluginReadiness(Supplier<Plugin> pluginSupplier, Duration pollInterval, Duration timeout) {
+        this(pluginSupplier, pollInterval, timeout, Sleeper.DEFAULT);
+    }
+
+    PluginReadiness(Supplier<Plugin> pluginSupplier, Duration pollInterval, Duration timeout,
+        Sleeper sleeper) {
+        Assert.notNull(pluginSupplier, "pluginSupplier must not be null");
+        Assert.isTrue(!pollInterval.isNegative() && !pollInterval.isZero(),
+            "pollInterval must be positive");
+        Assert.isTrue(!timeout.isNegative(), "timeout must not be negative");
+        this.pluginSupplier = pluginSupplier;
+        this.backoff = BackoffPolicy.constant(pollInterval, JITTER);
+        this.timeout = timeout;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Wait until the plugin has settled.
+     *
+     * @param afterVersion the version the settled plugin must be newer than, or a negative value
+     * to accept any version
+     * @return the settled plugin, or {@code null} if the plugin does not exist
+     * @throws IllegalStateException if the plugin has not settled before the deadline
+     */
+    Plugin await(long afterVersion) {
+        AtomicReference<Plugin> settled = new AtomicReference<>();
+        AtomicReference<String> lastState = new AtomicReference<>("unknown");
+        var options = RetryOptions.builder()
+            .backoff(this.backoff)
+            .deadline(this.timeout)
+            .sleeper(this.sleeper)
+            .listener((attempt, failure, delay) -> {
+                // e.g. the server is restarting
+                if (failure != null) {
+                    lastState.set(failure.getMessage());
+                }
+            })
+            .build();
+        boolean succeeded = RetryUtils.retry(options, () -> {
+            Plugin plugin = this.pluginSupplier.get();
+            if (isSettled(plugin, afterVersion)) {
+                settled.set(plugin);
+                return true;
+            }
+            lastState.set(describe(plugin));
+            return false;
+        });
+        if (!succeeded) {
+            throw new IllegalStateException("Timed out after " + this.timeout.toMillis()
+                + "ms waiting for the plugin to start, last state: " + lastState.get());
+        }
+        return settled.get();
+    }
+
+    static boolean isSettled(Plugin plugin, long afterVersion) {
+        if (plugin == null) {
+            return true;
+        }
+        if (afterVersion >= 0) {
+            Long version = plugin.getMetadata().getVersion();
+            if (version == null || version <= afterVersion) {
+                return false;
+            }
+        }
+        if (isNotTrue(plugin.getSpec().getEnabled())) {
+            return true;
+        }
+        Plugin.Phase phase = plugin.getStatus().getPhase();
+        return phase == Plugin.Phase.STARTED || phase == Plugin.Phase.FAILED;
+    }
+
+    private static String describe(Plugin plugin) {
+        return "version " + plugin.getMetadata().getVersion()
+            + ", phase " + plugin.getStatus().getPhase();
+    }
+}
@@ -0,0 +1,180 @@
+package run.halo.gradle.steps;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import lombok.experimental.UtilityClass;
+import run.halo.gradle.model.Condition;
+import run.halo.gradle.model.ConditionList;
+import run.halo.gradle.model.Metadata;
+import run.halo.gradle.model.Plugin;
+import run.halo.gradle.utils.JsonUtils;
+
+/**
+ * Decodes the state of a plugin from a response body without binding the whole plugin.
+ *
+ * <p>Only the fields needed to tell whether a plugin is ready are read: the name and version of
+ * the metadata, the display name and enabled flag of the spec, and the phase and first condition
+ * of the status. The other fields are skipped by the parser, and the parsing stops once the
+ * metadata, spec and status have been read.
+ */
+@UtilityClass
+class PluginStateDecoder {
+
+    private static final int METADATA = 1;
+
+    private static final int SPEC = 1 << 1;
+
+    private static final int STATUS = 1 << 2;
+
+    private static final int ALL = METADATA | SPEC | STATUS;
+
+    /**
+     * Decode a plugin with only its state populated.
+     *
+     * @param inputStream the JSON of the plugin, not closed
+     * @return the plugin or {@code null} if the body is {@code null}
+     * @throws IOException if the body cannot be read or is not a plugin
+     */
+    static Plugin decode(InputStream inputStream) throws IOException {
+        try (JsonParser parser = JsonUtils.mapper().getFactory().createParser(inputStream)) {
+            // the caller decides what happens to the rest of the body
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return decode(parser);
+        }
+    }
+
+    static Plugin decode(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, token, JsonToken.START_OBJECT);
+        Plugin plugin = new Plugin();
+        plugin.setMetadata(new Metadata());
+        plugin.setSpec(new Plugin.PluginSpec());
+        int read = 0;
+        while (read != ALL && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "metadata" -> {
+                    readMetadata(parser, plugin.getMetadata());
+                    read |= METADATA;
+                }
+                case "spec" -> {
+                    readSpec(parser, plugin.getSpec());
+                    read |= SPEC;
+                }
+                case "status" -> {
+                    readStatus(parser, plugin.getStatus());
+                    read |= STATUS;
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return plugin;
+    }
+
+    private static void readMetadata(JsonParser parser, Metadata metadata) throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name" -> metadata.setName(parser.getValueAsString());
+                case "version" -> metadata.setVersion(isNull(value) ? null : parser.getLongValue());
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readSpec(JsonParser parser, Plugin.PluginSpec spec) throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "displayName" -> spec.setDisplayName(parser.getValueAsString());
+                case "enabled" ->
+                    spec.setEnabled(isNull(value) ? null : parser.getValueAsBoolean());
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readStatus(JsonParser parser, Plugin.PluginStatus status)
+        throws IOException {
+        if (!isObject(parser)) {
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "phase" -> status.setPhase(readPhase(parser, value));
+                case "conditions" -> status.setConditions(readFirstCondition(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static Plugin.Phase readPhase(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            return null;
+        }
+        try {
+            return Plugin.Phase.valueOf(parser.getText());
+        } catch (IllegalArgumentException e) {
+            return Plugin.Phase.UNKNOWN;
+        }
+    }
+
+    private static ConditionList readFirstCondition(JsonParser parser, JsonToken value)
+        throws IOException {
+        ConditionList conditions = new ConditionList();
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return conditions;
+        }
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.END_ARRAY) {
+            return conditions;
+        }
+        if (first == JsonToken.START_OBJECT) {
+            conditions.add(JsonUtils.reader(Condition.class).<Condition>readValue(parser));
+        } else {
+            parser.skipChildren();
+        }
+        // skip the remaining conditions
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+        return conditions;
+    }
+
+    private static boolean isNull(JsonToken value) {
+        return value == JsonToken.VALUE_NULL;
+    }
+
+    private static boolean isObject(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected)
+        throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but was " + actual + " at "
+                + parser.currentLocation());
+        }
+    }
+}
@@ -3,14 +3,15 @@ package run.halo.gradle.steps;
 import com.fasterxml.jackson.databind.JsonNode;
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
@@ -24,16 +25,51 @@ import run.halo.gradle.utils.YamlUtils;
  */
 @Slf4j
 public class SetupHaloStep {
+    /**
+     * The time Halo has to start, including the migrations of the first start.
+     */
+    static final Duration READINESS_TIMEOUT = Duration.ofMinutes(5);
+
     private final HaloSiteOption haloSiteOption;
+    private final CloseableHttpClient client;
+    private final LogReadinessProbe readinessProbe;
+
+    /**
+     * Creates the step with the HTTP client shared by the build, which is not closed by the step.
+     *
+     * @param haloSiteOption the site to set up
+     * @param client the shared HTTP client
+     */
+    public SetupHaloStep(HaloSiteOption haloSiteOption, CloseableHttpClient client) {
+        this(haloSiteOption, client, null);
+    }
 
-    public SetupHaloStep(HaloSiteOption haloSiteOption) {
+    /**
+     * Creates the step waiting for Halo with the given probe.
+     *
+     * @param haloSiteOption the site to set up
+     * @param client the shared HTTP client
+     * @param readinessProbe the probe reading the output of Halo, {@code null} polls the health
+     * endpoint
+     */
+    public SetupHaloStep(HaloSiteOption haloSiteOption, CloseableHttpClient client,
+        @Nullable LogReadinessProbe readinessProbe) {
         Assert.notNull(haloSiteOption, "haloSiteOption must not be null");
+        Assert.notNull(client, "client must not be null");
         this.haloSiteOption = haloSiteOption;
+        this.client = client;
+        this.readinessProbe = readinessProbe;
     }
 
     public void execute() {
-        try (var client = HttpClients.createDefault()) {
-            HttpUtils.waitForReadiness(haloSiteOption.externalUrl(), client);
+        try {
+            if (readinessProbe != null) {
+                readinessProbe.awaitReadiness(haloSiteOption.externalUrl(), client,
+                    READINESS_TIMEOUT);
+            } else {
+                HttpUtils.waitForReadiness(haloSiteOption.externalUrl(), client,
+                    READINESS_TIMEOUT);
+            }
             setup(client);
             var output = ConsoleOutputFormatter.printFormatted(
                 "> Halo 启动成功！",
@@ -59,19 +95,23 @@ public class SetupHaloStep {
     private void executeSetupRequest(CloseableHttpClient client)
         throws IOException, ParseException {
         var initializeRequest = getSetupRequest();
-        var response = client.execute(initializeRequest);
-        if (isSuccessful(response)) {
-            log.info("Initialize system successfully.");
-        } else {
-            log.error("Initialize system failed: {}", EntityUtils.toString(response.getEntity()));
+        try (var response = client.execute(initializeRequest)) {
+            if (isSuccessful(response)) {
+                log.info("Initialize system successfully.");
+            } else {
+                log.error("Initialize system failed: {}",
+                    EntityUtils.toString(response.getEntity()));
+            }
         }
     }
 
     private JsonNode fetchGlobalInfo(CloseableHttpClient client)
         throws IOException, ParseException {
         var globalInfoHttpGet = new HttpGet(requestUri("/actuator/globalinfo"));
-        var globalInfoResp = client.execute(globalInfoHttpGet);
-        var bodyStr = EntityUtils.toString(globalInfoResp.getEntity());
+        String bodyStr;
+        try (var globalInfoResp = client.execute(globalInfoHttpGet)) {
+            bodyStr = EntityUtils.toString(globalInfoResp.getEntity());
+        }
         return YamlUtils.mapper.readTree(bodyStr);
     }
 
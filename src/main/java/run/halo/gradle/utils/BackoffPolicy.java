@@ -0,0 +1,94 @@
+package run.halo.gradle.utils;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Computes the delay before the next attempt of a retried call.
+ *
+ * @see RetryUtils
+ */
+@FunctionalInterface
+public interface BackoffPolicy {
+
+    /**
+     * Returns the delay before the next attempt.
+     *
+     * @param attempt the number of attempts made so far, starting at {@code 1}
+     * @return the delay, never negative
+     */
+    Duration delay(int attempt);
+
+    /**
+     * The same delay between all attempts.
+     *
+     * @param interval the delay
+     * @return the policy
+     */
+    static BackoffPolicy constant(Duration interval) {
+        Assert.isTrue(!interval.isNegative(), "interval must not be negative");
+        return attempt -> interval;
+    }
+
+    /**
+     * A delay chosen at random around the interval, so that callers polling the same server
+     * do not stay in step.
+     *
+     * @param interval the average delay
+     * @param jitter the maximal deviation from the interval, as a fraction of it
+     * @return the policy
+     */
+    static BackoffPolicy constant(Duration interval, double jitter) {
+        Assert.isTrue(!interval.isNegative(), "interval must not be negative");
+        Assert.isTrue(jitter >= 0 && jitter <= 1, "jitter must be between 0 and 1");
+        long nanos = interval.toNanos();
+        long deviation = (long) (nanos * jitter);
+        return attempt -> Duration.ofNanos(nanos - deviation
+            + ThreadLocalRandom.current().nextLong(2 * deviation + 1));
+    }
+
+    /**
+     * A delay chosen at random between zero and a ceiling that doubles on every attempt up to
+     * the cap, i.e. exponential backoff with full jitter.
+     *
+     * @param base the ceiling after the first attempt
+     * @param cap the maximal ceiling
+     * @return the policy
+     */
+    static BackoffPolicy exponential(Duration base, Duration cap) {
+        Assert.isTrue(!base.isNegative(), "base must not be negative");
+        Assert.isTrue(cap.compareTo(base) >= 0, "cap must not be less than base");
+        long baseNanos = base.toNanos();
+        long capNanos = cap.toNanos();
+        return attempt -> {
+            int shift = Math.min(Math.max(attempt - 1, 0), 62);
+            long ceiling = (baseNanos > (capNanos >> shift)) ? capNanos : baseNanos << shift;
+            return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        };
+    }
+
+    /**
+     * A delay that follows the Fibonacci sequence, i.e. {@code 1, 2, 3, 5, 8...} times the base,
+     * up to the cap. It grows slower than an exponential backoff.
+     *
+     * @param base the delay after the first attempt
+     * @param cap the maximal delay
+     * @return the policy
+     */
+    static BackoffPolicy fibonacci(Duration base, Duration cap) {
+        Assert.isTrue(!base.isNegative(), "base must not be negative");
+        Assert.isTrue(cap.compareTo(base) >= 0, "cap must not be less than base");
+        long baseNanos = base.toNanos();
+        long capNanos = cap.toNanos();
+        return attempt -> {
+            long previous = 1;
+            long current = 1;
+            for (int i = 1; i < attempt && current * baseNanos < capNanos; i++) {
+                long next = previous + current;
+                previous = current;
+                current = next;
+            }
+            return Duration.ofNanos(Math.min(current * baseNanos, capNanos));
+        };
+    }
+}
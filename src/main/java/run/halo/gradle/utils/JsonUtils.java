@@ -3,12 +3,17 @@ package run.halo.gradle.utils;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JsonUtils {
 
     private static final ObjectMapper mapper;
 
+    private static final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
     static {
         mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
@@ -19,4 +24,15 @@ public class JsonUtils {
     public static ObjectMapper mapper() {
         return mapper;
     }
+
+    /**
+     * Returns the reader for the given type, readers are immutable and cached so that the
+     * deserializer of a type is only looked up once.
+     *
+     * @param type the type to read
+     * @return the cached reader
+     */
+    public static ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
 }
@@ -1,49 +1,133 @@
 package run.halo.gradle.utils;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class RetryUtils {
+
     public interface CallToRetry {
         boolean process() throws Exception;
     }
 
     /**
-     * Retry the given call.
-     * We use a function <code>baseSleepMillis * Math.pow(retryTimes, 2)</code> to calculate the
-     * sleep time
+     * Notified before every retry, e.g. to log the progress.
      */
-    public static void withRetry(int maxTimes, long baseSleepMillis, CallToRetry call) {
-        if (maxTimes <= 0) {
-            throw new IllegalArgumentException("Must run at least one time");
-        }
-        if (baseSleepMillis <= 0) {
-            throw new IllegalArgumentException("Initial wait must be at least 1");
+    public interface RetryListener {
+
+        /**
+         * Called when an attempt did not succeed and is about to be retried.
+         *
+         * @param attempt the number of attempts made so far, starting at {@code 1}
+         * @param failure the failure of the attempt, {@code null} if the call returned
+         * {@code false}
+         * @param delay the delay before the next attempt
+         */
+        void onRetry(int attempt, Exception failure, Duration delay);
+    }
+
+    /**
+     * Waits between the attempts.
+     */
+    public interface Sleeper {
+
+        Sleeper DEFAULT = delay -> TimeUnit.NANOSECONDS.sleep(delay.toNanos());
+
+        void sleep(Duration delay) throws InterruptedException;
+    }
+
+    /**
+     * The options of a retried call. Retries stop at the first of the maximal number of
+     * attempts and the deadline.
+     */
+    @Value
+    @Builder
+    public static class RetryOptions {
+
+        @NonNull
+        @Builder.Default
+        BackoffPolicy backoff = BackoffPolicy.constant(Duration.ofMillis(100));
+
+        @Builder.Default
+        int maxAttempts = Integer.MAX_VALUE;
+
+        /**
+         * The time after which no attempt is started, {@code null} for none.
+         */
+        Duration deadline;
+
+        /**
+         * The time an attempt needs at least, no attempt is started with less time left before
+         * the deadline, {@code null} for none. The call bounds its own attempts, e.g. with the
+         * timeouts of its requests, as a running attempt cannot be stopped.
+         */
+        Duration minAttemptTime;
+
+        RetryListener listener;
+
+        @NonNull
+        @Builder.Default
+        Sleeper sleeper = Sleeper.DEFAULT;
+    }
+
+    /**
+     * Retry the given call until it returns {@code true}, throwing an exception counts as an
+     * unsuccessful attempt.
+     *
+     * @param options the options
+     * @param call the call to retry
+     * @return {@code true} if the call succeeded, {@code false} if the attempts or the time ran
+     * out
+     * @throws IllegalStateException if the current thread has been interrupted while waiting
+     */
+    public static boolean retry(RetryOptions options, CallToRetry call) {
+        Assert.isTrue(options.getMaxAttempts() > 0, "Must run at least one time");
+        long startedAt = System.nanoTime();
+        long deadline = (options.getDeadline() != null)
+            ? startedAt + options.getDeadline().toNanos() : Long.MAX_VALUE;
+        long minAttemptNanos = (options.getMinAttemptTime() != null)
+            ? options.getMinAttemptTime().toNanos() : 0;
+        if (options.getDeadline() != null && options.getDeadline().toNanos() < minAttemptNanos) {
+            return false;
         }
-        Exception thrown = null;
-        for (int i = 0; i < maxTimes; i++) {
+        for (int attempt = 1; ; attempt++) {
+            Exception failure = null;
             try {
-                boolean result = call.process();
-                if (result) {
-                    thrown = null;
-                    break;
+                if (call.process()) {
+                    return true;
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying", e);
             } catch (Exception e) {
-                thrown = e;
-                log.debug("Encountered failure on {} due to {}, attempt retry {} of {}",
-                    call.getClass().getName(), e.getMessage(), (i + 1), maxTimes, e);
+                failure = e;
+                log.debug("Encountered failure on {} due to {}, attempt {} of {}",
+                    call.getClass().getName(), e.getMessage(), attempt,
+                    options.getMaxAttempts(), e);
+            }
+            // the time left for the delay, so that the next attempt gets its minimal time
+            long remaining = (options.getDeadline() != null)
+                ? deadline - System.nanoTime() - minAttemptNanos : Long.MAX_VALUE;
+            if (attempt >= options.getMaxAttempts() || remaining <= 0) {
+                return false;
+            }
+            Duration delay = options.getBackoff().delay(attempt);
+            if (delay.toNanos() > remaining) {
+                delay = Duration.ofNanos(remaining);
+            }
+            if (options.getListener() != null) {
+                options.getListener().onRetry(attempt, failure, delay);
             }
-
             try {
-                long sleepTime = baseSleepMillis * (long) Math.pow(i + 1, 2);
-                Thread.sleep(sleepTime);
-            } catch (InterruptedException wakeAndAbort) {
-                break;
+                options.getSleeper().sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while retrying", e);
             }
         }
-
-        if (thrown != null) {
-            throw new IllegalStateException("Execution timeout:" + thrown);
-        }
     }
 }
@@ -0,0 +1,181 @@
+package run.halo.gradle.watch;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import run.halo.gradle.utils.Assert;
+
+/**
+ * A {@link FileChangeListener} that runs the builds for the changed files one at a time on its
+ * own thread. The changes that arrive while a build is running are merged into a single pending
+ * change set, so there is never more than one running and one queued build. When the pending
+ * changes need at least as much work as the running build, the running build is stale, it is
+ * cancelled and its changes are built again along with the pending ones.
+ */
+@Slf4j
+public class BuildScheduler implements FileChangeListener, AutoCloseable {
+
+    private final Object monitor = new Object();
+
+    private final ChangeClassifier classifier;
+
+    private final BuildAction action;
+
+    /**
+     * The changed files that have not been built yet, by source directory and file.
+     */
+    private Map<File, Map<File, ChangedFile>> pending = new LinkedHashMap<>();
+
+    private Map<File, Map<File, ChangedFile>> running;
+
+    private RebuildStrategy runningStrategy;
+
+    private boolean cancelled;
+
+    private boolean closed;
+
+    /**
+     * Create a new {@link BuildScheduler} and start its thread.
+     *
+     * @param classifier the classifier of the changes
+     * @param action the action that builds the changes
+     */
+    public BuildScheduler(ChangeClassifier classifier, BuildAction action) {
+        Assert.notNull(classifier, "Classifier must not be null");
+        Assert.notNull(action, "Action must not be null");
+        this.classifier = classifier;
+        this.action = action;
+        Thread thread = new Thread(this::runBuilds, "File Watcher Build");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void onChange(Set<ChangedFiles> changeSet) {
+        synchronized (this.monitor) {
+            if (this.closed) {
+                return;
+            }
+            merge(this.pending, changeSet);
+            if (this.running != null && !this.cancelled
+                && classify(this.pending).compareTo(this.runningStrategy) >= 0) {
+                log.info("Cancelling the running build, newer changes supersede it");
+                this.cancelled = true;
+                this.action.cancel();
+            }
+            this.monitor.notifyAll();
+        }
+    }
+
+    private void runBuilds() {
+        while (true) {
+            Set<ChangedFiles> changeSet;
+            RebuildStrategy strategy;
+            synchronized (this.monitor) {
+                while (!this.closed && this.pending.isEmpty()) {
+                    try {
+                        this.monitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (this.closed) {
+                    return;
+                }
+                this.running = this.pending;
+                this.pending = new LinkedHashMap<>();
+                this.cancelled = false;
+                changeSet = toChangeSet(this.running);
+                strategy = this.classifier.classify(changeSet);
+                this.runningStrategy = strategy;
+            }
+            boolean succeeded = false;
+            try {
+                succeeded = this.action.build(changeSet, strategy);
+            } catch (RuntimeException e) {
+                log.error("Failed to build the changed files", e);
+            } finally {
+                synchronized (this.monitor) {
+                    if (this.cancelled && !succeeded) {
+                        // build the cancelled changes again, the newer changes take precedence
+                        Map<File, Map<File, ChangedFile>> merged = this.running;
+                        merge(merged, toChangeSet(this.pending));
+                        this.pending = merged;
+                    }
+                    this.running = null;
+                    this.runningStrategy = null;
+                }
+            }
+        }
+    }
+
+    private RebuildStrategy classify(Map<File, Map<File, ChangedFile>> changes) {
+        return this.classifier.classify(toChangeSet(changes));
+    }
+
+    private static void merge(Map<File, Map<File, ChangedFile>> changes,
+        Set<ChangedFiles> changeSet) {
+        for (ChangedFiles changedFiles : changeSet) {
+            Map<File, ChangedFile> files = changes.computeIfAbsent(
+                changedFiles.getSourceDirectory(), directory -> new LinkedHashMap<>());
+            for (ChangedFile changedFile : changedFiles) {
+                files.merge(changedFile.getFile(), changedFile, BuildScheduler::merge);
+            }
+        }
+    }
+
+    private static ChangedFile merge(ChangedFile previous, ChangedFile changedFile) {
+        // a file that has been added and then modified is still an added file
+        if (previous.getType() == ChangedFile.Type.ADD
+            && changedFile.getType() == ChangedFile.Type.MODIFY) {
+            return previous;
+        }
+        return changedFile;
+    }
+
+    private static Set<ChangedFiles> toChangeSet(Map<File, Map<File, ChangedFile>> changes) {
+        Set<ChangedFiles> changeSet = new LinkedHashSet<>();
+        changes.forEach((sourceDirectory, files) -> changeSet.add(
+            new ChangedFiles(sourceDirectory, new LinkedHashSet<>(files.values()))));
+        return changeSet;
+    }
+
+    /**
+     * Cancel the running build, drop the pending changes and stop the thread.
+     */
+    @Override
+    public void close() {
+        synchronized (this.monitor) {
+            this.closed = true;
+            this.pending.clear();
+            if (this.running != null) {
+                this.action.cancel();
+            }
+            this.monitor.notifyAll();
+        }
+    }
+
+    /**
+     * The action that brings the plugin up to date with a change set.
+     */
+    public interface BuildAction {
+
+        /**
+         * Build the given changes and wait for the build to finish.
+         *
+         * @param changeSet the changes to build
+         * @param strategy the strategy that covers all changes
+         * @return {@code true} if the build succeeded
+         */
+        boolean build(Set<ChangedFiles> changeSet, RebuildStrategy strategy);
+
+        /**
+         * Cancel the build in progress, if any.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,101 @@
+package run.halo.gradle.watch;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Set;
+import run.halo.gradle.extension.HaloPluginExtension;
+import run.halo.gradle.utils.Assert;
+
+/**
+ * Classifies changed files by the {@link RebuildStrategy} they require, based on where they are
+ * located in the project.
+ */
+public class ChangeClassifier {
+
+    private static final Set<String> RELOAD_FREE_RESOURCES = Set.of("templates", "static");
+
+    private final Path resources;
+
+    private final Set<Path> sources;
+
+    private final Set<Path> manifests;
+
+    /**
+     * Create a new {@link ChangeClassifier} for the conventional layout of the given project
+     * directory.
+     *
+     * @param projectDir the project directory
+     */
+    public ChangeClassifier(File projectDir) {
+        Assert.notNull(projectDir, "Project dir must not be null");
+        Path main = projectDir.toPath().toAbsolutePath().normalize().resolve("src/main");
+        this.resources = main.resolve("resources");
+        this.sources = Set.of(main.resolve("java"), main.resolve("kotlin"));
+        this.manifests = Set.of(this.resources.resolve(HaloPluginExtension.MANIFEST[0]),
+            this.resources.resolve(HaloPluginExtension.MANIFEST[1]));
+    }
+
+    /**
+     * Classify the given change set.
+     *
+     * @param changeSet the changes reported by the {@link FileSystemWatcher}
+     * @return the strategy that covers all changes
+     */
+    public RebuildStrategy classify(Set<ChangedFiles> changeSet) {
+        RebuildStrategy strategy = RebuildStrategy.RESOURCES;
+        for (ChangedFiles changedFiles : changeSet) {
+            for (ChangedFile changedFile : changedFiles) {
+                strategy = strategy.and(classify(changedFile.getFile()));
+                if (strategy == RebuildStrategy.BUILD) {
+                    return strategy;
+                }
+            }
+        }
+        return strategy;
+    }
+
+    /**
+     * Return whether the given change set only contains sources and resources that do not
+     * require a reload, in which case the plugin does not need to be reloaded if the compiled
+     * classes can be redefined.
+     *
+     * @param changeSet the changes reported by the {@link FileSystemWatcher}
+     * @return {@code true} if only the classes may require a reload
+     */
+    public boolean isHotSwappable(Set<ChangedFiles> changeSet) {
+        for (ChangedFiles changedFiles : changeSet) {
+            for (ChangedFile changedFile : changedFiles) {
+                RebuildStrategy strategy = classify(changedFile.getFile());
+                if (strategy != RebuildStrategy.CLASSES && strategy != RebuildStrategy.RESOURCES) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Classify the given changed file.
+     *
+     * @param file the changed file
+     * @return the strategy required by the change
+     */
+    public RebuildStrategy classify(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (this.manifests.contains(path)) {
+            return RebuildStrategy.BUILD;
+        }
+        if (path.startsWith(this.resources)) {
+            Path relativePath = this.resources.relativize(path);
+            boolean reloadFree = relativePath.getNameCount() > 1
+                && RELOAD_FREE_RESOURCES.contains(relativePath.getName(0).toString());
+            return reloadFree ? RebuildStrategy.RESOURCES : RebuildStrategy.RESOURCES_AND_RELOAD;
+        }
+        for (Path source : this.sources) {
+            if (path.startsWith(source)) {
+                return RebuildStrategy.CLASSES;
+            }
+        }
+        return RebuildStrategy.BUILD;
+    }
+}
@@ -0,0 +1,228 @@
+package run.halo.gradle.watch;
+
+import java.util.Arrays;
+import java.util.Objects;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.RecordComponentVisitor;
+import run.halo.gradle.utils.AsmConst;
+
+/**
+ * The structure of a class file, i.e. everything but the method bodies: the class hierarchy,
+ * the members, the annotations and the nest attributes. Two versions of a class with the same
+ * structure only differ in their method bodies and can be redefined in a running JVM. The
+ * annotations are part of the structure because the plugin's Spring context only reads them at
+ * startup.
+ */
+final class ClassStructure {
+
+    private final String className;
+
+    private final String signature;
+
+    private ClassStructure(String className, String signature) {
+        this.className = className;
+        this.signature = signature;
+    }
+
+    /**
+     * Read the structure of the given class file.
+     *
+     * @param bytes the content of the class file
+     * @return the structure of the class
+     */
+    static ClassStructure read(byte[] bytes) {
+        SignatureVisitor visitor = new SignatureVisitor();
+        new ClassReader(bytes).accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        return new ClassStructure(visitor.className, visitor.signature.toString());
+    }
+
+    /**
+     * Return the binary name of the class, e.g. {@code run.halo.Plugin$Inner}.
+     *
+     * @return the class name
+     */
+    String getClassName() {
+        return this.className;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof ClassStructure other) {
+            return this.className.equals(other.className)
+                && this.signature.equals(other.signature);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.className, this.signature);
+    }
+
+    @Override
+    public String toString() {
+        return this.className;
+    }
+
+    /**
+     * Appends the structural parts of a class file to a signature, the order of the members is
+     * significant because a JVM does not allow to reorder them when redefining a class.
+     */
+    private static final class SignatureVisitor extends ClassVisitor {
+
+        private final StringBuilder signature = new StringBuilder();
+
+        private String className;
+
+        private SignatureVisitor() {
+            super(AsmConst.ASM_VERSION);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature,
+            String superName, String[] interfaces) {
+            this.className = name.replace('/', '.');
+            append("class", access, name, signature, superName, Arrays.toString(interfaces));
+        }
+
+        @Override
+        public void visitNestHost(String nestHost) {
+            append("nestHost", nestHost);
+        }
+
+        @Override
+        public void visitNestMember(String nestMember) {
+            append("nestMember", nestMember);
+        }
+
+        @Override
+        public void visitPermittedSubclass(String permittedSubclass) {
+            append("permittedSubclass", permittedSubclass);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName,
+            int access) {
+            append("innerClass", name, outerName, innerName, access);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            return annotation("annotation", descriptor, visible);
+        }
+
+        @Override
+        public RecordComponentVisitor visitRecordComponent(String name, String descriptor,
+            String signature) {
+            append("recordComponent", name, descriptor, signature);
+            return new RecordComponentVisitor(this.api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                    return annotation("recordComponentAnnotation", descriptor, visible);
+                }
+            };
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor,
+            String signature, Object value) {
+            append("field", access, name, descriptor, signature, value);
+            return new FieldVisitor(this.api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                    return annotation("fieldAnnotation", descriptor, visible);
+                }
+            };
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor,
+            String signature, String[] exceptions) {
+            append("method", access, name, descriptor, signature, Arrays.toString(exceptions));
+            return new MethodVisitor(this.api) {
+                @Override
+                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                    return annotation("methodAnnotation", descriptor, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitParameterAnnotation(int parameter,
+                    String descriptor, boolean visible) {
+                    append("parameter", parameter);
+                    return annotation("parameterAnnotation", descriptor, visible);
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotationDefault() {
+                    return annotation("annotationDefault", null, true);
+                }
+            };
+        }
+
+        private AnnotationVisitor annotation(String kind, String descriptor, boolean visible) {
+            append(kind, descriptor, visible);
+            return new AnnotationVisitor(this.api) {
+                @Override
+                public void visit(String name, Object value) {
+                    Object text = value.getClass().isArray() ? arrayToString(value) : value;
+                    append("value", name, text);
+                }
+
+                @Override
+                public void visitEnum(String name, String descriptor, String value) {
+                    append("enum", name, descriptor, value);
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String name, String descriptor) {
+                    append("nested", name);
+                    return annotation("annotation", descriptor, true);
+                }
+
+                @Override
+                public AnnotationVisitor visitArray(String name) {
+                    append("array", name);
+                    return this;
+                }
+
+                @Override
+                public void visitEnd() {
+                    append("end");
+                }
+            };
+        }
+
+        private static String arrayToString(Object array) {
+            if (array instanceof byte[] values) {
+                return Arrays.toString(values);
+            } else if (array instanceof boolean[] values) {
+                return Arrays.toString(values);
+            } else if (array instanceof char[] values) {
+                return Arrays.toString(values);
+            } else if (array instanceof short[] values) {
+                return Arrays.toString(values);
+            } else if (array instanceof int[] values) {
+                return Arrays.toString(values);
+            } else if (array instanceof long[] values) {
+                return Arrays.toString(values);
+            } else if (array instanceof float[] values) {
+                return Arrays.toString(values);
+            }
+            return Arrays.toString((double[]) array);
+        }
+
+        private void append(Object... parts) {
+            for (Object part : parts) {
+                this.signature.append(part).append(' ');
+            }
+            this.signature.append('\n');
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package run.halo.gradle.watch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Digests of the content of the files whose attributes changed, used to tell apart files that
+ * have been rewritten with the same bytes, e.g. by a checkout, a formatter or an editor that
+ * saves unchanged files, from files that have really been modified.
+ *
+ * <p>A digest is only computed when the attributes of a file changed and is cached along with
+ * the attributes it was computed for, so the content of a file is compared from the second
+ * time its attributes change. The digest combines CRC32C and CRC32, both are computed by
+ * intrinsics of the JVM.
+ */
+final class ContentDigests {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<File, Digest> digests = new HashMap<>();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int unchanged;
+
+    /**
+     * Return whether the modified file at the given index of the current table still has the
+     * content it had at the given index of the previous table.
+     *
+     * @param file the modified file
+     * @param previous the previous table of the directory
+     * @param previousIndex the index of the file in the previous table
+     * @param current the current table of the directory
+     * @param currentIndex the index of the file in the current table
+     * @return {@code true} if the content is known to be unchanged
+     */
+    boolean isUnchanged(File file, FileTable previous, int previousIndex, FileTable current,
+        int currentIndex) {
+        Digest previousDigest = this.digests.get(file);
+        Digest currentDigest = digest(file, current, currentIndex);
+        if (currentDigest == null) {
+            this.digests.remove(file);
+            return false;
+        }
+        this.digests.put(file, currentDigest);
+        if (previousDigest != null && previousDigest.isFor(previous, previousIndex)
+            && previousDigest.value == currentDigest.value) {
+            this.unchanged++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forget the digest of a deleted file.
+     *
+     * @param file the deleted file
+     */
+    void remove(File file) {
+        this.digests.remove(file);
+    }
+
+    /**
+     * Return the number of modified files found unchanged since the last call.
+     *
+     * @return the number of unchanged files
+     */
+    int takeUnchanged() {
+        int unchanged = this.unchanged;
+        this.unchanged = 0;
+        return unchanged;
+    }
+
+    private Digest digest(File file, FileTable table, int index) {
+        CRC32C crc32c = new CRC32C();
+        CRC32 crc32 = new CRC32();
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = inputStream.read(this.buffer)) != -1) {
+                crc32c.update(this.buffer, 0, read);
+                crc32.update(this.buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Digest digest = new Digest(table.getLength(index), table.getLastModified(index),
+            table.getFileKey(index), (crc32c.getValue() << 32) | crc32.getValue());
+        // the file may have changed while it was read, only keep a digest of the listed file
+        BasicFileAttributes attributes = FileTable.readAttributes(file);
+        return (attributes != null && table.hasAttributes(index, attributes)) ? digest : null;
+    }
+
+    private record Digest(long length, long lastModified, long fileKey, long value) {
+
+        boolean isFor(FileTable table, int index) {
+            return this.length == table.getLength(index)
+                && this.lastModified == table.getLastModified(index)
+                && this.fileKey == table.getFileKey(index);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package run.halo.gradle.watch;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * An immutable node of a {@link DirectorySnapshot} that holds the files and sub directories of
+ * a single directory. Nodes that did not change are shared between successive snapshots, so a
+ * rescan only allocates nodes for the directories that actually changed.
+ */
+final class DirectoryNode {
+
+    /**
+     * Directories modified within this interval before they were listed may be modified again
+     * without their last modified time changing, because of the timestamp granularity of some
+     * file systems, so their cached listing must not be trusted.
+     */
+    private static final long RACY_INTERVAL_MILLIS = 2000;
+
+    private final File directory;
+
+    private final long lastModified;
+
+    private final long listedAt;
+
+    private final FileTable files;
+
+    private final Map<String, DirectoryNode> directories;
+
+    private DirectoryNode(File directory, long lastModified, long listedAt,
+        FileTable files, Map<String, DirectoryNode> directories) {
+        this.directory = directory;
+        this.lastModified = lastModified;
+        this.listedAt = listedAt;
+        this.files = files;
+        this.directories = Collections.unmodifiableMap(directories);
+    }
+
+    /**
+     * Create a node from previously saved state.
+     *
+     * @param directory the directory of the node
+     * @param lastModified the last modified time of the directory when it was listed
+     * @param listedAt the time the directory was listed
+     * @param files the files of the directory
+     * @param directories the sub directories by name
+     * @return the node
+     */
+    static DirectoryNode restore(File directory, long lastModified, long listedAt,
+        FileTable files, Map<String, DirectoryNode> directories) {
+        return new DirectoryNode(directory, lastModified, listedAt, files, directories);
+    }
+
+    /**
+     * Scan the given directory and all of its sub directories. When called from a
+     * {@link java.util.concurrent.ForkJoinPool} the sub directories are scanned in parallel.
+     *
+     * @param directory the directory to scan
+     * @param excludeFilter exclude file filter, can be null
+     * @return the scanned node
+     */
+    static DirectoryNode scan(File directory, FileFilter excludeFilter) {
+        return list(directory, directory.lastModified(), null, excludeFilter, null);
+    }
+
+    /**
+     * Rescan the directory of the given node. The listing of a directory whose last modified
+     * time did not change is reused, the files are still checked because modifying a file in
+     * place does not touch its directory.
+     *
+     * @param previous the previous node of the directory
+     * @param excludeFilter exclude file filter, can be null
+     * @return the previous node if nothing changed, otherwise a new node
+     */
+    static DirectoryNode rescan(DirectoryNode previous, FileFilter excludeFilter) {
+        long lastModified = previous.directory.lastModified();
+        FileTable files = previous.isListingReusable(lastModified)
+            ? previous.files.refresh(previous.directory) : null;
+        if (files == null) {
+            return list(previous.directory, lastModified, previous, excludeFilter, null);
+        }
+        Map<String, DirectoryNode> directories =
+            rescanDirectories(previous, node -> rescan(node, excludeFilter));
+        if (files == previous.files && directories == previous.directories) {
+            return previous;
+        }
+        return new DirectoryNode(previous.directory, lastModified, previous.listedAt, files,
+            directories);
+    }
+
+    /**
+     * Rescan only the given changed directories below the directory of the given node, every
+     * other directory is taken over from the previous node as it is.
+     *
+     * @param previous the previous node of the directory
+     * @param excludeFilter exclude file filter, can be null
+     * @param changedDirectories the directories whose entries changed
+     * @param changedPaths the changed directories and all of their parents
+     * @return the previous node if nothing changed, otherwise a new node
+     */
+    static DirectoryNode rescan(DirectoryNode previous, FileFilter excludeFilter,
+        Set<File> changedDirectories, Set<File> changedPaths) {
+        if (!changedPaths.contains(previous.directory)) {
+            return previous;
+        }
+        Rescanner rescanner =
+            node -> rescan(node, excludeFilter, changedDirectories, changedPaths);
+        if (changedDirectories.contains(previous.directory)) {
+            return list(previous.directory, previous.directory.lastModified(), previous,
+                excludeFilter, rescanner);
+        }
+        Map<String, DirectoryNode> directories = rescanDirectories(previous, rescanner);
+        if (directories == previous.directories) {
+            return previous;
+        }
+        return new DirectoryNode(previous.directory, previous.lastModified, previous.listedAt,
+            previous.files, directories);
+    }
+
+    private static Map<String, DirectoryNode> rescanDirectories(DirectoryNode previous,
+        Rescanner rescanner) {
+        Map<String, DirectoryNode> directories = null;
+        for (Map.Entry<String, DirectoryNode> entry : previous.directories.entrySet()) {
+            DirectoryNode node = rescanner.rescan(entry.getValue());
+            if (node != entry.getValue()) {
+                if (directories == null) {
+                    directories = new TreeMap<>(previous.directories);
+                }
+                directories.put(entry.getKey(), node);
+            }
+        }
+        return (directories != null) ? directories : previous.directories;
+    }
+
+    private static DirectoryNode list(File directory, long lastModified,
+        DirectoryNode previous, FileFilter excludeFilter, Rescanner rescanner) {
+        long listedAt = System.currentTimeMillis();
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory.toPath())) {
+            for (Path child : children) {
+                names.add(child.getFileName().toString());
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            // the directory has been deleted or cannot be read, treat it as empty
+        }
+        Collections.sort(names);
+        FileTable.Builder files = FileTable.builder(names.size());
+        Map<String, DirectoryNode> directories = new TreeMap<>();
+        Map<String, ForkJoinTask<DirectoryNode>> forked = null;
+        FileMatchingFilter.Scope excludeScope = (excludeFilter instanceof FileMatchingFilter filter)
+            ? filter.scope(directory) : null;
+        for (String name : names) {
+            // excluded entries are skipped before they are stat'ed or descended into
+            if (excludeScope != null && excludeScope.accept(name)) {
+                continue;
+            }
+            File child = new File(directory, name);
+            if (excludeScope == null && excludeFilter != null && excludeFilter.accept(child)) {
+                continue;
+            }
+            BasicFileAttributes attributes = FileTable.readAttributes(child);
+            if (attributes == null) {
+                continue;
+            }
+            if (attributes.isDirectory()) {
+                DirectoryNode previousNode =
+                    (previous != null) ? previous.directories.get(name) : null;
+                long childLastModified = attributes.lastModifiedTime().toMillis();
+                DirectoryNode node;
+                if (previousNode != null) {
+                    node = (rescanner != null) ? rescanner.rescan(previousNode)
+                        : rescan(previousNode, excludeFilter);
+                } else if (ForkJoinTask.inForkJoinPool()) {
+                    // scanned in parallel, idle workers steal the sub directories
+                    if (forked == null) {
+                        forked = new TreeMap<>();
+                    }
+                    forked.put(name, ForkJoinTask.adapt(
+                        () -> list(child, childLastModified, null, excludeFilter, null)).fork());
+                    continue;
+                } else {
+                    node = list(child, childLastModified, null, excludeFilter, null);
+                }
+                directories.put(name, node);
+            } else if (attributes.isRegularFile()) {
+                files.add(name, attributes);
+            }
+        }
+        if (forked != null) {
+            forked.forEach((name, task) -> directories.put(name, task.join()));
+        }
+        DirectoryNode node = new DirectoryNode(directory, lastModified, listedAt,
+            files.build((previous != null) ? previous.files : null), directories);
+        if (previous != null && previous.hasSameEntries(node)
+            && previous.isRacy() == node.isRacy()) {
+            return previous;
+        }
+        return node;
+    }
+
+    private boolean isListingReusable(long currentLastModified) {
+        return currentLastModified != 0 && currentLastModified == this.lastModified
+            && !isRacy();
+    }
+
+    private boolean isRacy() {
+        return this.lastModified >= this.listedAt - RACY_INTERVAL_MILLIS;
+    }
+
+    private boolean hasSameEntries(DirectoryNode other) {
+        if (this.files != other.files
+            || this.directories.size() != other.directories.size()) {
+            return false;
+        }
+        for (Map.Entry<String, DirectoryNode> entry : other.directories.entrySet()) {
+            if (this.directories.get(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return this.lastModified == other.lastModified;
+    }
+
+    File getDirectory() {
+        return this.directory;
+    }
+
+    long getLastModified() {
+        return this.lastModified;
+    }
+
+    long getListedAt() {
+        return this.listedAt;
+    }
+
+    FileTable getFiles() {
+        return this.files;
+    }
+
+    Map<String, DirectoryNode> getDirectories() {
+        return this.directories;
+    }
+
+    @Override
+    public int hashCode() {
+        // consistent with the set of all files below this node
+        int hashCode = this.files.hashCode();
+        for (DirectoryNode node : this.directories.values()) {
+            hashCode += node.hashCode();
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return this.directory.toString();
+    }
+
+    @FunctionalInterface
+    private interface Rescanner {
+        DirectoryNode rescan(DirectoryNode previous);
+    }
+}
@@ -2,9 +2,8 @@ package run.halo.gradle.watch;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
@@ -15,13 +14,12 @@ import run.halo.gradle.utils.Assert;
  * @since 2.0.0
  */
 public class DirectorySnapshot {
-    private static final Set<String> DOTS = Set.of(".", "..");
 
     private final File directory;
 
     private final Date time;
 
-    private final Set<FileSnapshot> files;
+    private final DirectoryNode root;
 
     private final FileFilter excludeFilter;
 
@@ -38,67 +36,207 @@ public class DirectorySnapshot {
         this.directory = directory;
         this.time = new Date();
         this.excludeFilter = excludeFilter;
-        Set<FileSnapshot> files = new LinkedHashSet<>();
-        collectFiles(directory, files);
-        this.files = Collections.unmodifiableSet(files);
-    }
-
-    private void collectFiles(File source, Set<FileSnapshot> result) {
-        File[] children = source.listFiles();
-        if (children != null) {
-            for (File child : children) {
-                if (excludeFilter != null) {
-                    if (excludeFilter.accept(child)) {
-                        continue;
-                    }
-                }
-                if (child.isDirectory() && !DOTS.contains(child.getName())) {
-                    collectFiles(child, result);
-                } else if (child.isFile()) {
-                    result.add(new FileSnapshot(child));
-                }
+        this.root = DirectoryNode.scan(directory, excludeFilter);
+    }
+
+    /**
+     * Create a {@link DirectorySnapshot} from previously saved state.
+     *
+     * @param directory the source directory
+     * @param excludeFilter exclude file filter the snapshot was taken with, can be null
+     * @param root the root node of the snapshot
+     */
+    DirectorySnapshot(File directory, FileFilter excludeFilter, DirectoryNode root) {
+        Assert.notNull(directory, "Directory must not be null");
+        Assert.notNull(root, "Root must not be null");
+        this.directory = directory;
+        this.time = new Date();
+        this.excludeFilter = excludeFilter;
+        this.root = root;
+    }
+
+    private DirectorySnapshot(DirectorySnapshot previous, DirectoryNode root) {
+        this.directory = previous.directory;
+        this.time = new Date();
+        this.excludeFilter = previous.excludeFilter;
+        this.root = root;
+    }
+
+    /**
+     * Create a new snapshot of the same directory that only rescans what may have changed since
+     * this snapshot was taken, unchanged directories are shared with this snapshot.
+     *
+     * @param changedDirectories the directories known to contain changes or {@code null} if
+     * unknown, in which case every directory is checked
+     * @return the new snapshot
+     */
+    DirectorySnapshot rescan(Set<File> changedDirectories) {
+        DirectoryNode root;
+        if (changedDirectories == null) {
+            root = DirectoryNode.rescan(this.root, this.excludeFilter);
+        } else {
+            root = DirectoryNode.rescan(this.root, this.excludeFilter, changedDirectories,
+                withParents(changedDirectories));
+        }
+        return new DirectorySnapshot(this, root);
+    }
+
+    private Set<File> withParents(Set<File> changedDirectories) {
+        Set<File> paths = new HashSet<>();
+        for (File changedDirectory : changedDirectories) {
+            if (!changedDirectory.toPath().startsWith(this.directory.toPath())) {
+                continue;
+            }
+            File path = changedDirectory;
+            while (path != null && paths.add(path) && !path.equals(this.directory)) {
+                path = path.getParentFile();
             }
         }
+        return paths;
     }
 
     ChangedFiles getChangedFiles(DirectorySnapshot snapshot, FileFilter triggerFilter) {
+        return getChangedFiles(snapshot, triggerFilter, null);
+    }
+
+    /**
+     * Return the files changed between this snapshot and the given one.
+     *
+     * @param snapshot the newer snapshot of the same directory
+     * @param triggerFilter the filter of the files that do not trigger a change, can be null
+     * @param contentDigests the digests used to leave out modified files whose content did not
+     * change, can be null
+     * @return the changed files
+     */
+    ChangedFiles getChangedFiles(DirectorySnapshot snapshot, FileFilter triggerFilter,
+        ContentDigests contentDigests) {
         Assert.notNull(snapshot, "Snapshot must not be null");
         File directory = this.directory;
         Assert.isTrue(snapshot.directory.equals(directory),
             () -> "Snapshot source directory must be '" + directory + "'");
         Set<ChangedFile> changes = new LinkedHashSet<>();
-        Map<File, FileSnapshot> previousFiles = getFilesMap();
-        for (FileSnapshot currentFile : snapshot.files) {
-            if (acceptChangedFile(triggerFilter, currentFile)) {
-                FileSnapshot previousFile = previousFiles.remove(currentFile.getFile());
-                if (previousFile == null) {
-                    changes.add(
-                        new ChangedFile(directory, currentFile.getFile(), ChangedFile.Type.ADD));
-                } else if (!previousFile.equals(currentFile)) {
-                    changes.add(
-                        new ChangedFile(directory, currentFile.getFile(), ChangedFile.Type.MODIFY));
+        diff(this.root, snapshot.root, new ChangeVisitor() {
+
+            @Override
+            public boolean visit(File parent, String name, ChangedFile.Type type) {
+                File file = new File(parent, name);
+                if (contentDigests != null && type == ChangedFile.Type.DELETE) {
+                    contentDigests.remove(file);
+                }
+                if (acceptChangedFile(triggerFilter, file)) {
+                    changes.add(new ChangedFile(directory, file, type));
                 }
+                return true;
+            }
+
+            @Override
+            public boolean visitModified(File parent, FileTable previous, int previousIndex,
+                FileTable current, int currentIndex) {
+                File file = new File(parent, current.getName(currentIndex));
+                if (acceptChangedFile(triggerFilter, file) && (contentDigests == null
+                    || !contentDigests.isUnchanged(file, previous, previousIndex, current,
+                    currentIndex))) {
+                    changes.add(new ChangedFile(directory, file, ChangedFile.Type.MODIFY));
+                }
+                return true;
+            }
+        });
+        return new ChangedFiles(directory, changes);
+    }
+
+    private boolean acceptChangedFile(FileFilter triggerFilter, File file) {
+        return (triggerFilter == null || !triggerFilter.accept(file));
+    }
+
+    /**
+     * Compare the files of two nodes, nodes that are shared by both snapshots are skipped.
+     *
+     * @return {@code false} if the visitor stopped the comparison
+     */
+    private static boolean diff(DirectoryNode previous, DirectoryNode current,
+        ChangeVisitor visitor) {
+        if (previous == current) {
+            return true;
+        }
+        if (!diff(current.getDirectory(), previous.getFiles(), current.getFiles(), visitor)) {
+            return false;
+        }
+        Map<String, DirectoryNode> previousDirectories = previous.getDirectories();
+        for (Map.Entry<String, DirectoryNode> entry : current.getDirectories().entrySet()) {
+            DirectoryNode previousNode = previousDirectories.get(entry.getKey());
+            boolean proceed = (previousNode != null)
+                ? diff(previousNode, entry.getValue(), visitor)
+                : visitAll(entry.getValue(), ChangedFile.Type.ADD, visitor);
+            if (!proceed) {
+                return false;
             }
         }
-        for (FileSnapshot previousFile : previousFiles.values()) {
-            if (acceptChangedFile(triggerFilter, previousFile)) {
-                changes.add(
-                    new ChangedFile(directory, previousFile.getFile(), ChangedFile.Type.DELETE));
+        for (Map.Entry<String, DirectoryNode> entry : previousDirectories.entrySet()) {
+            if (!current.getDirectories().containsKey(entry.getKey())
+                && !visitAll(entry.getValue(), ChangedFile.Type.DELETE, visitor)) {
+                return false;
             }
         }
-        return new ChangedFiles(directory, changes);
+        return true;
     }
 
-    private boolean acceptChangedFile(FileFilter triggerFilter, FileSnapshot file) {
-        return (triggerFilter == null || !triggerFilter.accept(file.getFile()));
+    /**
+     * Merge the sorted files of two tables of the same directory.
+     */
+    private static boolean diff(File directory, FileTable previous, FileTable current,
+        ChangeVisitor visitor) {
+        if (previous == current) {
+            return true;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < previous.size() || j < current.size()) {
+            int comparison;
+            if (i == previous.size()) {
+                comparison = 1;
+            } else if (j == current.size()) {
+                comparison = -1;
+            } else {
+                comparison = compare(previous.getName(i), current.getName(j));
+            }
+            boolean proceed = true;
+            if (comparison < 0) {
+                proceed = visitor.visit(directory, previous.getName(i++), ChangedFile.Type.DELETE);
+            } else if (comparison > 0) {
+                proceed = visitor.visit(directory, current.getName(j++), ChangedFile.Type.ADD);
+            } else {
+                if (!previous.isSameFile(i, current, j)) {
+                    proceed = visitor.visitModified(directory, previous, i, current, j);
+                }
+                i++;
+                j++;
+            }
+            if (!proceed) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private Map<File, FileSnapshot> getFilesMap() {
-        Map<File, FileSnapshot> files = new LinkedHashMap<>();
-        for (FileSnapshot file : this.files) {
-            files.put(file.getFile(), file);
+    private static int compare(String name, String otherName) {
+        // names are interned, so equal names are usually the same instance
+        return (name == otherName) ? 0 : name.compareTo(otherName);
+    }
+
+    private static boolean visitAll(DirectoryNode node, ChangedFile.Type type,
+        ChangeVisitor visitor) {
+        FileTable files = node.getFiles();
+        for (int i = 0; i < files.size(); i++) {
+            if (!visitor.visit(node.getDirectory(), files.getName(i), type)) {
+                return false;
+            }
+        }
+        for (DirectoryNode child : node.getDirectories().values()) {
+            if (!visitAll(child, type, visitor)) {
+                return false;
+            }
         }
-        return files;
+        return true;
     }
 
     @Override
@@ -117,30 +255,16 @@ public class DirectorySnapshot {
 
     boolean equals(DirectorySnapshot other, FileFilter filter) {
         if (this.directory.equals(other.directory)) {
-            Set<FileSnapshot> ourFiles = filter(this.files, filter);
-            Set<FileSnapshot> otherFiles = filter(other.files, filter);
-            return ourFiles.equals(otherFiles);
+            return diff(this.root, other.root,
+                (parent, name, type) -> filter != null && !filter.accept(new File(parent, name)));
         }
         return false;
     }
 
-    private Set<FileSnapshot> filter(Set<FileSnapshot> source, FileFilter filter) {
-        if (filter == null) {
-            return source;
-        }
-        Set<FileSnapshot> filtered = new LinkedHashSet<>();
-        for (FileSnapshot file : source) {
-            if (filter.accept(file.getFile())) {
-                filtered.add(file);
-            }
-        }
-        return filtered;
-    }
-
     @Override
     public int hashCode() {
         int hashCode = this.directory.hashCode();
-        hashCode = 31 * hashCode + this.files.hashCode();
+        hashCode = 31 * hashCode + this.root.hashCode();
         return hashCode;
     }
 
@@ -153,8 +277,54 @@ public class DirectorySnapshot {
         return this.directory;
     }
 
+    /**
+     * Return the exclude file filter this snapshot was taken with.
+     *
+     * @return the exclude file filter or {@code null}
+     */
+    FileFilter getExcludeFilter() {
+        return this.excludeFilter;
+    }
+
+    /**
+     * Return the root node of this snapshot.
+     *
+     * @return the root node
+     */
+    DirectoryNode getRoot() {
+        return this.root;
+    }
+
     @Override
     public String toString() {
         return this.directory + " snapshot at " + this.time;
     }
+
+    @FunctionalInterface
+    private interface ChangeVisitor {
+
+        /**
+         * Visit a changed file.
+         *
+         * @param directory the directory of the changed file
+         * @param name the name of the changed file
+         * @return {@code true} to continue with the next change
+         */
+        boolean visit(File directory, String name, ChangedFile.Type type);
+
+        /**
+         * Visit a file whose attributes changed.
+         *
+         * @param directory the directory of the changed file
+         * @param previous the previous files of the directory
+         * @param previousIndex the index of the file in the previous files
+         * @param current the current files of the directory
+         * @param currentIndex the index of the file in the current files
+         * @return {@code true} to continue with the next change
+         */
+        default boolean visitModified(File directory, FileTable previous, int previousIndex,
+            FileTable current, int currentIndex) {
+            return visit(directory, current.getName(currentIndex), ChangedFile.Type.MODIFY);
+        }
+    }
 }
@@ -16,4 +16,14 @@ public interface FileChangeListener {
      */
     void onChange(Set<ChangedFiles> changeSet);
 
+    /**
+     * Called when files have been changed and the changes have settled.
+     *
+     * @param changeSet a set of the {@link ChangedFiles}
+     * @param detectedAt the {@link System#nanoTime()} at which the changes were detected
+     */
+    default void onChange(Set<ChangedFiles> changeSet, long detectedAt) {
+        onChange(changeSet);
+    }
+
 }
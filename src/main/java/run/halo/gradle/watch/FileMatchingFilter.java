@@ -2,24 +2,295 @@ package run.halo.gradle.watch;
 
 import java.io.File;
 import java.io.FileFilter;
-import org.apache.commons.lang3.StringUtils;
-import org.gradle.api.internal.file.pattern.PatternMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import run.halo.gradle.utils.Assert;
 
 /**
+ * A {@link FileFilter} that accepts the files matching any of the given Ant-style patterns,
+ * with the same semantics as Gradle's pattern matching: {@code *} and {@code ?} match within a
+ * path segment, {@code **} matches any number of segments and a pattern ending with {@code /}
+ * matches everything below it.
+ *
+ * <p>The patterns are compiled to small automatons over the path segments, one bit per
+ * pattern step, so matching neither splits the path nor allocates and does not need to know
+ * whether the file is a directory. A {@link Scope} holds the state reached by a directory, so
+ * matching its entries only has to consume their names.
+ *
  * @author guqing
  * @since 2.0.0
  */
 public class FileMatchingFilter implements FileFilter {
-    private final PatternMatcher patternsMatcher;
 
-    public FileMatchingFilter(PatternMatcher patternsMatcher) {
-        this.patternsMatcher = patternsMatcher;
+    private static final String ANY_SEGMENTS = "**";
+
+    private final List<String> sources;
+
+    private final boolean caseSensitive;
+
+    private final Pattern[] patterns;
+
+    private final long[] initialStates;
+
+    /**
+     * Create a new {@link FileMatchingFilter} for the given case-sensitive patterns.
+     *
+     * @param patterns the patterns of the files to accept
+     */
+    public FileMatchingFilter(Collection<String> patterns) {
+        this(patterns, true);
+    }
+
+    /**
+     * Create a new {@link FileMatchingFilter} for the given patterns.
+     *
+     * @param patterns the patterns of the files to accept
+     * @param caseSensitive whether the patterns are case-sensitive
+     */
+    public FileMatchingFilter(Collection<String> patterns, boolean caseSensitive) {
+        Assert.notNull(patterns, "Patterns must not be null");
+        // the order of the patterns does not matter, sorted so that equal filters are equal
+        this.sources = patterns.stream().sorted().toList();
+        this.caseSensitive = caseSensitive;
+        this.patterns = this.sources.stream()
+            .map(pattern -> Pattern.compile(pattern, caseSensitive))
+            .toArray(Pattern[]::new);
+        this.initialStates = new long[this.patterns.length];
+        for (int i = 0; i < this.patterns.length; i++) {
+            this.initialStates[i] = this.patterns[i].closure(1L);
+        }
     }
 
     @Override
     public boolean accept(File pathname) {
-        String[] segments = StringUtils.split(pathname.getPath(), File.separator);
-        boolean isFile = pathname.isFile();
-        return patternsMatcher.test(segments, isFile);
+        String path = pathname.getPath();
+        for (int i = 0; i < this.patterns.length; i++) {
+            Pattern pattern = this.patterns[i];
+            long state = this.initialStates[i];
+            int start = 0;
+            while (state != 0 && start <= path.length()) {
+                int end = path.indexOf(File.separatorChar, start);
+                if (end < 0) {
+                    end = path.length();
+                }
+                if (end > start) {
+                    state = pattern.advance(state, path, start, end);
+                }
+                start = end + 1;
+            }
+            if (pattern.isAccepted(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    List<String> getPatterns() {
+        return this.sources;
+    }
+
+    boolean isCaseSensitive() {
+        return this.caseSensitive;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof FileMatchingFilter other) {
+            return this.caseSensitive == other.caseSensitive
+                && this.sources.equals(other.sources);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.sources.hashCode() + Boolean.hashCode(this.caseSensitive);
+    }
+
+    @Override
+    public String toString() {
+        return this.sources.toString();
+    }
+
+    /**
+     * Return the scope of the entries of the given directory.
+     *
+     * @param directory the directory
+     * @return the scope that matches the names of the entries of the directory
+     */
+    Scope scope(File directory) {
+        String path = directory.getPath();
+        long[] states = this.initialStates.clone();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf(File.separatorChar, start);
+            if (end < 0) {
+                end = path.length();
+            }
+            if (end > start) {
+                for (int i = 0; i < this.patterns.length; i++) {
+                    if (states[i] != 0) {
+                        states[i] = this.patterns[i].advance(states[i], path, start, end);
+                    }
+                }
+            }
+            start = end + 1;
+        }
+        return new Scope(states);
+    }
+
+    /**
+     * The state of the patterns after matching the path of a directory.
+     */
+    final class Scope {
+
+        private final long[] states;
+
+        private Scope(long[] states) {
+            this.states = states;
+        }
+
+        /**
+         * Return whether the entry of the directory with the given name is accepted by the
+         * filter.
+         *
+         * @param name the name of the entry
+         * @return {@code true} if the entry matches any pattern
+         */
+        boolean accept(String name) {
+            for (int i = 0; i < this.states.length; i++) {
+                long state = this.states[i];
+                if (state != 0
+                    && patterns[i].isAccepted(patterns[i].advance(state, name, 0, name.length()))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A compiled pattern, bit {@code i} of a state is set when the first {@code i} steps have
+     * been matched.
+     */
+    private static final class Pattern {
+
+        private final String[] steps;
+
+        private final boolean caseSensitive;
+
+        /**
+         * The steps that match any number of segments.
+         */
+        private final long anySegments;
+
+        private Pattern(String[] steps, boolean caseSensitive) {
+            Assert.isTrue(steps.length < Long.SIZE, "Pattern must have less than 64 segments");
+            this.steps = steps;
+            this.caseSensitive = caseSensitive;
+            long anySegments = 0;
+            for (int i = 0; i < steps.length; i++) {
+                if (ANY_SEGMENTS.equals(steps[i])) {
+                    anySegments |= 1L << i;
+                }
+            }
+            this.anySegments = anySegments;
+        }
+
+        static Pattern compile(String pattern, boolean caseSensitive) {
+            Assert.notNull(pattern, "Pattern must not be null");
+            if (pattern.endsWith("/") || pattern.endsWith("\\")) {
+                pattern = pattern + ANY_SEGMENTS;
+            }
+            List<String> steps = new ArrayList<>();
+            int start = 0;
+            for (int i = 0; i <= pattern.length(); i++) {
+                if (i == pattern.length() || pattern.charAt(i) == '/'
+                    || pattern.charAt(i) == '\\') {
+                    if (i > start) {
+                        steps.add(pattern.substring(start, i));
+                    }
+                    start = i + 1;
+                }
+            }
+            return new Pattern(steps.toArray(String[]::new), caseSensitive);
+        }
+
+        boolean isAccepted(long state) {
+            return (state & (1L << this.steps.length)) != 0;
+        }
+
+        /**
+         * Add the steps that can be skipped because {@code **} also matches no segment.
+         */
+        long closure(long state) {
+            long skipped = state & this.anySegments;
+            while (skipped != 0) {
+                long next = skipped << 1;
+                skipped = next & ~state & this.anySegments;
+                state |= next;
+            }
+            return state;
+        }
+
+        /**
+         * Consume the segment between {@code start} and {@code end} of the given path.
+         */
+        long advance(long state, String path, int start, int end) {
+            long next = 0;
+            long remaining = state & ~(1L << this.steps.length);
+            while (remaining != 0) {
+                int step = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                if ((this.anySegments & (1L << step)) != 0) {
+                    next |= 1L << step;
+                } else if (matches(this.steps[step], path, start, end)) {
+                    next |= 1L << (step + 1);
+                }
+            }
+            return closure(next);
+        }
+
+        private boolean matches(String step, String path, int start, int end) {
+            return matches(step, 0, path, start, end);
+        }
+
+        private boolean matches(String step, int stepIndex, String path, int start, int end) {
+            while (stepIndex < step.length()) {
+                char c = step.charAt(stepIndex);
+                if (c == '*') {
+                    while (stepIndex < step.length() && step.charAt(stepIndex) == '*') {
+                        stepIndex++;
+                    }
+                    if (stepIndex == step.length()) {
+                        return true;
+                    }
+                    for (int i = start; i < end; i++) {
+                        if (matches(step, stepIndex, path, i, end)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (start == end || (c != '?' && !equals(c, path.charAt(start)))) {
+                    return false;
+                }
+                stepIndex++;
+                start++;
+            }
+            return start == end;
+        }
+
+        private boolean equals(char c, char other) {
+            if (c == other) {
+                return true;
+            }
+            return !this.caseSensitive
+                && Character.toLowerCase(c) == Character.toLowerCase(other);
+        }
     }
 }
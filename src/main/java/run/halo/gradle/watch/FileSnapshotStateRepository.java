@@ -0,0 +1,237 @@
+package run.halo.gradle.watch;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import run.halo.gradle.utils.Assert;
+
+/**
+ * A {@link SnapshotStateRepository} that keeps the directory snapshots in a file, so that a new
+ * Gradle daemon does not have to scan every watched directory again. The snapshots are stored in
+ * a compact binary format protected by a CRC32 checksum, a missing, outdated or corrupt file is
+ * ignored.
+ *
+ * <p>Only snapshots taken without an exclude filter or with a {@link FileMatchingFilter} are
+ * saved, because the filter is saved along with the snapshot.
+ */
+@Slf4j
+public class FileSnapshotStateRepository implements SnapshotStateRepository {
+
+    private static final int MAGIC = 0x48575331;
+
+    private static final byte NO_FILTER = 0;
+
+    private static final byte PATTERN_FILTER = 1;
+
+    private final Path file;
+
+    /**
+     * Create a new {@link FileSnapshotStateRepository}.
+     *
+     * @param file the file the snapshots are saved to
+     */
+    public FileSnapshotStateRepository(Path file) {
+        Assert.notNull(file, "File must not be null");
+        this.file = file;
+    }
+
+    @Override
+    public void save(Object state) {
+        if (!(state instanceof Map<?, ?> snapshots)) {
+            return;
+        }
+        List<DirectorySnapshot> saved = new ArrayList<>();
+        for (Object snapshot : snapshots.values()) {
+            if (snapshot instanceof DirectorySnapshot directorySnapshot
+                && isSavable(directorySnapshot.getExcludeFilter())) {
+                saved.add(directorySnapshot);
+            }
+        }
+        try {
+            Files.createDirectories(this.file.getParent());
+            Path temp = Files.createTempFile(this.file.getParent(), "snapshots", ".tmp");
+            try {
+                write(temp, saved);
+                move(temp);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to save file snapshots to {}: {}", this.file, e.getMessage());
+        }
+    }
+
+    private static boolean isSavable(FileFilter excludeFilter) {
+        return excludeFilter == null || excludeFilter instanceof FileMatchingFilter;
+    }
+
+    private void move(Path temp) throws IOException {
+        try {
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, this.file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void write(Path path, List<DirectorySnapshot> snapshots) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new CheckedOutputStream(Files.newOutputStream(path), checksum)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(snapshots.size());
+            for (DirectorySnapshot snapshot : snapshots) {
+                writeString(out, snapshot.getDirectory().getPath());
+                writeFilter(out, snapshot.getExcludeFilter());
+                writeNode(out, snapshot.getRoot());
+            }
+            out.flush();
+            out.writeLong(checksum.getValue());
+        }
+    }
+
+    private static void writeFilter(DataOutputStream out, FileFilter excludeFilter)
+        throws IOException {
+        if (!(excludeFilter instanceof FileMatchingFilter filter)) {
+            out.writeByte(NO_FILTER);
+            return;
+        }
+        out.writeByte(PATTERN_FILTER);
+        out.writeBoolean(filter.isCaseSensitive());
+        out.writeInt(filter.getPatterns().size());
+        for (String pattern : filter.getPatterns()) {
+            writeString(out, pattern);
+        }
+    }
+
+    private static void writeNode(DataOutputStream out, DirectoryNode node) throws IOException {
+        out.writeLong(node.getLastModified());
+        out.writeLong(node.getListedAt());
+        FileTable files = node.getFiles();
+        out.writeInt(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            writeString(out, files.getName(i));
+            out.writeLong(files.getLength(i));
+            out.writeLong(files.getLastModified(i));
+            out.writeLong(files.getFileKey(i));
+        }
+        out.writeInt(node.getDirectories().size());
+        for (Map.Entry<String, DirectoryNode> entry : node.getDirectories().entrySet()) {
+            writeString(out, entry.getKey());
+            writeNode(out, entry.getValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public Object restore() {
+        try {
+            // read into the heap, a mapping would keep the file locked on Windows until it is
+            // garbage collected and the next save could not replace it
+            return read(ByteBuffer.wrap(Files.readAllBytes(this.file)));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.info("Ignoring unreadable file snapshots {}: {}", this.file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static Map<File, DirectorySnapshot> read(ByteBuffer buffer) throws IOException {
+        int checksumPosition = buffer.limit() - Long.BYTES;
+        if (checksumPosition < 0 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Unknown format");
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().limit(checksumPosition));
+        if (checksum.getValue() != buffer.getLong(checksumPosition)) {
+            throw new IOException("Checksum mismatch");
+        }
+        buffer.position(Integer.BYTES);
+        buffer.limit(checksumPosition);
+        int count = buffer.getInt();
+        Map<File, DirectorySnapshot> snapshots = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            File directory = new File(readString(buffer));
+            FileFilter excludeFilter = readFilter(buffer);
+            DirectoryNode root = readNode(buffer, directory);
+            // a watched directory that no longer exists is scanned again
+            if (directory.isDirectory()) {
+                snapshots.put(directory,
+                    new DirectorySnapshot(directory, excludeFilter, root));
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IOException("Unexpected trailing data");
+        }
+        return snapshots;
+    }
+
+    private static FileFilter readFilter(ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        if (type == NO_FILTER) {
+            return null;
+        }
+        if (type != PATTERN_FILTER) {
+            throw new IOException("Unknown filter type " + type);
+        }
+        boolean caseSensitive = buffer.get() != 0;
+        int count = buffer.getInt();
+        List<String> patterns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            patterns.add(readString(buffer));
+        }
+        return new FileMatchingFilter(patterns, caseSensitive);
+    }
+
+    private static DirectoryNode readNode(ByteBuffer buffer, File directory) {
+        long lastModified = buffer.getLong();
+        long listedAt = buffer.getLong();
+        int fileCount = buffer.getInt();
+        FileTable.Builder files = FileTable.builder(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            files.add(readString(buffer), buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+        int directoryCount = buffer.getInt();
+        Map<String, DirectoryNode> directories = new TreeMap<>();
+        for (int i = 0; i < directoryCount; i++) {
+            String name = readString(buffer);
+            directories.put(name, readNode(buffer, new File(directory, name)));
+        }
+        return DirectoryNode.restore(directory, lastModified, listedAt, files.build(null),
+            directories);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
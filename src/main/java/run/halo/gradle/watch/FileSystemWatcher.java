@@ -2,17 +2,31 @@ package run.halo.gradle.watch;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
 import run.halo.gradle.utils.Assert;
 
 /**
@@ -22,11 +36,18 @@ import run.halo.gradle.utils.Assert;
  * @author guqing
  * @since 1.0.0
  */
+@Slf4j
 public class FileSystemWatcher {
     private static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(1000);
 
     private static final Duration DEFAULT_QUIET_PERIOD = Duration.ofMillis(400);
 
+    /**
+     * The time the snapshots are kept before being saved, the saves requested meanwhile are
+     * coalesced.
+     */
+    private static final Duration SAVE_DELAY = Duration.ofSeconds(2);
+
     private final List<FileChangeListener> listeners = new ArrayList<>();
 
     private final boolean daemon;
@@ -47,6 +68,14 @@ public class FileSystemWatcher {
 
     private FileFilter excludeFileFilter;
 
+    private boolean useWatchService;
+
+    private int parallelism = 1;
+
+    private boolean adaptive;
+
+    private boolean verifyContent;
+
     private final Object monitor = new Object();
 
     /**
@@ -151,6 +180,66 @@ public class FileSystemWatcher {
         }
     }
 
+    /**
+     * Set whether native file system events are used to detect changes instead of sleeping for
+     * the poll interval. Polling is used as a fallback when the file system does not support
+     * events. Cannot be called after the watcher has been {@link #start() started}.
+     *
+     * @param useWatchService true to wait for file system events
+     */
+    public void setUseWatchService(boolean useWatchService) {
+        synchronized (this.monitor) {
+            checkNotStarted();
+            this.useWatchService = useWatchService;
+        }
+    }
+
+    /**
+     * Set the number of threads used to scan the source directories, the directories and their
+     * sub directories are scanned in parallel when greater than one. Cannot be called after the
+     * watcher has been {@link #start() started}.
+     *
+     * @param parallelism the number of scanning threads, {@code 1} to scan on the watcher thread
+     */
+    public void setParallelism(int parallelism) {
+        Assert.isTrue(parallelism > 0, "Parallelism must be positive");
+        synchronized (this.monitor) {
+            checkNotStarted();
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Set whether the poll interval and quiet period adapt to the activity in the source
+     * directories. When adaptive, the directories are polled quickly after a change and less
+     * often when idle, and the quiet period follows the duration of the recent write bursts,
+     * the configured poll interval and quiet period are used as upper bounds. Cannot be called
+     * after the watcher has been {@link #start() started}.
+     *
+     * @param adaptive true to adapt the poll interval and quiet period
+     */
+    public void setAdaptive(boolean adaptive) {
+        synchronized (this.monitor) {
+            checkNotStarted();
+            this.adaptive = adaptive;
+        }
+    }
+
+    /**
+     * Set whether the content of the modified files is compared to leave out the files that
+     * have been rewritten with the same content. The content of a file is hashed when its
+     * attributes change, so files are compared from the second time they are written. Cannot
+     * be called after the watcher has been {@link #start() started}.
+     *
+     * @param verifyContent true to compare the content of the modified files
+     */
+    public void setVerifyContent(boolean verifyContent) {
+        synchronized (this.monitor) {
+            checkNotStarted();
+            this.verifyContent = verifyContent;
+        }
+    }
+
     private void checkNotStarted() {
         synchronized (this.monitor) {
             Assert.state(this.watchThread == null, "FileSystemWatcher already started");
@@ -162,30 +251,121 @@ public class FileSystemWatcher {
      */
     public void start() {
         synchronized (this.monitor) {
-            createOrRestoreInitialSnapshots();
+            ForkJoinPool scanPool = createScanPool();
+            boolean restored = createOrRestoreInitialSnapshots(scanPool);
             if (this.watchThread == null) {
                 Map<File, DirectorySnapshot> localDirectories = new HashMap<>(this.directories);
+                WatchSchedule schedule = this.adaptive
+                    ? WatchSchedule.adaptive(this.pollInterval, this.quietPeriod)
+                    : WatchSchedule.fixed(this.pollInterval, this.quietPeriod);
                 Watcher watcher = new Watcher(this.remainingScans, new ArrayList<>(this.listeners),
-                    this.triggerFilter,
-                    this.excludeFileFilter, this.pollInterval, this.quietPeriod, localDirectories,
-                    this.snapshotStateRepository);
+                    this.triggerFilter, this.excludeFileFilter, schedule, localDirectories,
+                    new SnapshotSaver(this.snapshotStateRepository), createWatchServiceWatcher(),
+                    scanPool, restored,
+                    this.verifyContent ? new ContentDigests() : null);
                 this.watchThread = new Thread(watcher);
                 this.watchThread.setName("File Watcher");
                 this.watchThread.setDaemon(this.daemon);
                 this.watchThread.start();
+            } else if (scanPool != null) {
+                scanPool.shutdown();
+            }
+        }
+    }
+
+    private ForkJoinPool createScanPool() {
+        if (this.parallelism <= 1) {
+            return null;
+        }
+        return new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("File Watcher Scanner-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    private WatchServiceWatcher createWatchServiceWatcher() {
+        if (!this.useWatchService) {
+            return null;
+        }
+        WatchServiceWatcher watchServiceWatcher = null;
+        try {
+            watchServiceWatcher =
+                new WatchServiceWatcher(FileSystems.getDefault(), this.excludeFileFilter);
+            for (File directory : this.directories.keySet()) {
+                watchServiceWatcher.register(directory.toPath());
             }
+            return watchServiceWatcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.info("File system events are not available, falling back to polling: {}",
+                e.getMessage());
+            closeQuietly(watchServiceWatcher);
+            return null;
+        }
+    }
+
+    private static void closeQuietly(WatchServiceWatcher watchServiceWatcher) {
+        if (watchServiceWatcher == null) {
+            return;
+        }
+        try {
+            watchServiceWatcher.close();
+        } catch (IOException e) {
+            // ignore this exception
         }
     }
 
+    /**
+     * Restore the snapshots saved by the repository or scan the directories.
+     *
+     * @return {@code true} if any snapshot has been restored
+     */
     @SuppressWarnings("unchecked")
-    private void createOrRestoreInitialSnapshots() {
+    private boolean createOrRestoreInitialSnapshots(ForkJoinPool scanPool) {
         Map<File, DirectorySnapshot> restored =
             (Map<File, DirectorySnapshot>) this.snapshotStateRepository.restore();
+        List<File> unrestored = this.directories.keySet().stream()
+            .filter(f -> !isRestorable(restored, f))
+            .toList();
+        Map<File, DirectorySnapshot> scanned = snapshot(unrestored,
+            directory -> new DirectorySnapshot(directory, this.excludeFileFilter), scanPool);
         this.directories.replaceAll((f, v) -> {
-            DirectorySnapshot restoredSnapshot = (restored != null) ? restored.get(f) : null;
-            return (restoredSnapshot != null) ? restoredSnapshot
-                : new DirectorySnapshot(f, excludeFileFilter);
+            DirectorySnapshot scannedSnapshot = scanned.get(f);
+            return (scannedSnapshot != null) ? scannedSnapshot : restored.get(f);
         });
+        if (!scanned.isEmpty()) {
+            this.snapshotStateRepository.save(new LinkedHashMap<>(this.directories));
+        }
+        return scanned.size() < this.directories.size();
+    }
+
+    private boolean isRestorable(Map<File, DirectorySnapshot> restored, File directory) {
+        DirectorySnapshot snapshot = (restored != null) ? restored.get(directory) : null;
+        // a snapshot taken with other excludes would report excluded files as changes
+        return snapshot != null
+            && Objects.equals(snapshot.getExcludeFilter(), this.excludeFileFilter);
+    }
+
+    /**
+     * Take a snapshot of each of the given directories, one task per directory when a scan pool
+     * is given.
+     */
+    private static Map<File, DirectorySnapshot> snapshot(Collection<File> directories,
+        Function<File, DirectorySnapshot> snapshotFunction, ForkJoinPool scanPool) {
+        Map<File, DirectorySnapshot> snapshots = new LinkedHashMap<>();
+        if (scanPool == null) {
+            for (File directory : directories) {
+                snapshots.put(directory, snapshotFunction.apply(directory));
+            }
+            return snapshots;
+        }
+        Map<File, ForkJoinTask<DirectorySnapshot>> tasks = new LinkedHashMap<>();
+        for (File directory : directories) {
+            tasks.put(directory, scanPool.submit(() -> snapshotFunction.apply(directory)));
+        }
+        tasks.forEach((directory, task) -> snapshots.put(directory, task.join()));
+        return snapshots;
     }
 
     /**
@@ -231,28 +411,49 @@ public class FileSystemWatcher {
 
         private final FileFilter excludeFileFilter;
 
-        private final long pollInterval;
-
-        private final long quietPeriod;
+        private final WatchSchedule schedule;
 
         private Map<File, DirectorySnapshot> directories;
 
-        private final SnapshotStateRepository snapshotStateRepository;
+        private final SnapshotSaver snapshotSaver;
+
+        private WatchServiceWatcher watchServiceWatcher;
+
+        private final ForkJoinPool scanPool;
+
+        /**
+         * Whether the snapshots have been restored and may be outdated, in which case the first
+         * scan checks every directory without waiting for changes.
+         */
+        private boolean restored;
+
+        private final ContentDigests contentDigests;
+
+        private int avoidedRebuilds;
+
+        /**
+         * Directories reported by file system events since the last snapshot, {@code null}
+         * if events were lost.
+         */
+        private Set<File> changedDirectories = new HashSet<>();
 
         private Watcher(AtomicInteger remainingScans, List<FileChangeListener> listeners,
-            FileFilter triggerFilter,
-            FileFilter excludeFileFilter, long pollInterval, long quietPeriod,
+            FileFilter triggerFilter, FileFilter excludeFileFilter, WatchSchedule schedule,
             Map<File, DirectorySnapshot> directories,
-            SnapshotStateRepository snapshotStateRepository) {
+            SnapshotSaver snapshotSaver,
+            WatchServiceWatcher watchServiceWatcher, ForkJoinPool scanPool, boolean restored,
+            ContentDigests contentDigests) {
             this.remainingScans = remainingScans;
             this.listeners = listeners;
             this.triggerFilter = triggerFilter;
             this.excludeFileFilter = excludeFileFilter;
-            this.pollInterval = pollInterval;
-            this.quietPeriod = quietPeriod;
+            this.schedule = schedule;
             this.directories = directories;
-            this.snapshotStateRepository = snapshotStateRepository;
-
+            this.snapshotSaver = snapshotSaver;
+            this.watchServiceWatcher = watchServiceWatcher;
+            this.scanPool = scanPool;
+            this.restored = restored;
+            this.contentDigests = contentDigests;
         }
 
         @Override
@@ -269,20 +470,90 @@ public class FileSystemWatcher {
                 }
                 remainingScans = this.remainingScans.get();
             }
+            closeQuietly(this.watchServiceWatcher);
+            if (this.scanPool != null) {
+                this.scanPool.shutdown();
+            }
+            this.snapshotSaver.close();
         }
 
         private void scan() throws InterruptedException {
-            Thread.sleep(this.pollInterval - this.quietPeriod);
+            if (this.restored) {
+                // pick up the changes made while nobody was watching
+                this.restored = false;
+                this.changedDirectories = null;
+            } else {
+                waitForChanges();
+            }
+            long detectedAt = System.nanoTime();
             Map<File, DirectorySnapshot> previous;
             Map<File, DirectorySnapshot> current = this.directories;
+            boolean active;
+            long firstActivity = 0;
+            long lastActivity = 0;
             do {
                 previous = current;
-                current = getCurrentSnapshots();
-                Thread.sleep(this.quietPeriod);
+                current = getCurrentSnapshots(current);
+                Thread.sleep(this.schedule.getQuietPeriod());
+                // events that arrive after the snapshot was taken require another pass
+                boolean eventsReceived = drainEvents();
+                active = eventsReceived || isDifferent(previous, current);
+                if (active) {
+                    lastActivity = System.nanoTime();
+                    firstActivity = (firstActivity != 0) ? firstActivity : lastActivity;
+                }
             }
-            while (isDifferent(previous, current));
-            if (isDifferent(this.directories, current)) {
-                updateSnapshots(current.values());
+            while (active);
+            boolean changed = isDifferent(this.directories, current);
+            this.schedule.scanned(changed, lastActivity - firstActivity);
+            if (changed) {
+                updateSnapshots(current.values(), detectedAt);
+            }
+        }
+
+        private void waitForChanges() throws InterruptedException {
+            if (this.watchServiceWatcher == null) {
+                Thread.sleep(this.schedule.getPollDelay());
+                return;
+            }
+            WatchKey key = this.watchServiceWatcher.take();
+            processEvents(key);
+            drainEvents();
+        }
+
+        private boolean drainEvents() {
+            if (this.watchServiceWatcher == null) {
+                return false;
+            }
+            boolean eventsReceived = false;
+            WatchKey key;
+            while ((key = this.watchServiceWatcher.poll()) != null) {
+                processEvents(key);
+                eventsReceived = true;
+            }
+            return eventsReceived;
+        }
+
+        private void processEvents(WatchKey key) {
+            File changedDirectory = ((Path) key.watchable()).toFile();
+            if (this.watchServiceWatcher.processEvents(key)) {
+                if (this.changedDirectories != null) {
+                    this.changedDirectories.add(changedDirectory);
+                }
+                return;
+            }
+            this.changedDirectories = null;
+            // Events were lost, make sure that every directory is registered again, the
+            // following scan compares full snapshots, so no change goes unnoticed.
+            try {
+                for (File directory : this.directories.keySet()) {
+                    this.watchServiceWatcher.register(directory.toPath());
+                }
+            } catch (IOException e) {
+                log.warn("Failed to register directories after overflow, falling back to "
+                    + "polling: {}", e.getMessage());
+                closeQuietly(this.watchServiceWatcher);
+                this.watchServiceWatcher = null;
             }
         }
 
@@ -301,39 +572,121 @@ public class FileSystemWatcher {
             return false;
         }
 
-        private Map<File, DirectorySnapshot> getCurrentSnapshots() {
-            Map<File, DirectorySnapshot> snapshots = new LinkedHashMap<>();
-            for (File directory : this.directories.keySet()) {
-                DirectorySnapshot directorySnapshot =
-                    new DirectorySnapshot(directory, this.excludeFileFilter);
-                snapshots.put(directory, directorySnapshot);
+        private Map<File, DirectorySnapshot> getCurrentSnapshots(
+            Map<File, DirectorySnapshot> previous) {
+            Set<File> changedDirectories = takeChangedDirectories();
+            return snapshot(this.directories.keySet(), directory -> {
+                DirectorySnapshot previousSnapshot = previous.get(directory);
+                return (previousSnapshot != null) ? previousSnapshot.rescan(changedDirectories)
+                    : new DirectorySnapshot(directory, this.excludeFileFilter);
+            }, this.scanPool);
+        }
+
+        /**
+         * Take the directories changed since the last snapshot.
+         *
+         * @return the changed directories or {@code null} if every directory must be checked
+         */
+        private Set<File> takeChangedDirectories() {
+            if (this.watchServiceWatcher == null) {
+                return null;
             }
-            return snapshots;
+            Set<File> changedDirectories = this.changedDirectories;
+            this.changedDirectories = new HashSet<>();
+            return changedDirectories;
         }
 
-        private void updateSnapshots(Collection<DirectorySnapshot> snapshots) {
+        private void updateSnapshots(Collection<DirectorySnapshot> snapshots, long detectedAt) {
             Map<File, DirectorySnapshot> updated = new LinkedHashMap<>();
             Set<ChangedFiles> changeSet = new LinkedHashSet<>();
             for (DirectorySnapshot snapshot : snapshots) {
                 DirectorySnapshot previous = this.directories.get(snapshot.getDirectory());
                 updated.put(snapshot.getDirectory(), snapshot);
-                ChangedFiles changedFiles = previous.getChangedFiles(snapshot, this.triggerFilter);
+                ChangedFiles changedFiles = previous.getChangedFiles(snapshot, this.triggerFilter,
+                    this.contentDigests);
                 if (!changedFiles.getFiles().isEmpty()) {
                     changeSet.add(changedFiles);
                 }
             }
             this.directories = updated;
-            this.snapshotStateRepository.save(updated);
+            // saved in the background, the listeners do not wait for the file to be written
+            this.snapshotSaver.save(updated);
             if (!changeSet.isEmpty()) {
-                fireListeners(Collections.unmodifiableSet(changeSet));
+                fireListeners(Collections.unmodifiableSet(changeSet), detectedAt);
             }
+            logUnchangedContent(changeSet.isEmpty());
         }
 
-        private void fireListeners(Set<ChangedFiles> changeSet) {
+        private void logUnchangedContent(boolean avoided) {
+            if (this.contentDigests == null) {
+                return;
+            }
+            int unchanged = this.contentDigests.takeUnchanged();
+            if (unchanged > 0 && avoided) {
+                this.avoidedRebuilds++;
+                log.info("Ignored {} rewritten files with unchanged content, {} rebuilds "
+                    + "avoided so far", unchanged, this.avoidedRebuilds);
+            } else if (unchanged > 0) {
+                log.debug("Ignored {} rewritten files with unchanged content", unchanged);
+            }
+        }
+
+        private void fireListeners(Set<ChangedFiles> changeSet, long detectedAt) {
             for (FileChangeListener listener : this.listeners) {
-                listener.onChange(changeSet);
+                listener.onChange(changeSet, detectedAt);
             }
         }
 
     }
+
+    /**
+     * Saves the snapshots on a background thread after {@link #SAVE_DELAY}, so that the
+     * listeners are not delayed by the repository. Newer snapshots replace the snapshots waiting
+     * to be saved, the last ones are saved when the saver is closed.
+     */
+    private static final class SnapshotSaver {
+
+        private final SnapshotStateRepository repository;
+
+        private final AtomicReference<Map<File, DirectorySnapshot>> pending =
+            new AtomicReference<>();
+
+        private final ScheduledThreadPoolExecutor executor;
+
+        private SnapshotSaver(SnapshotStateRepository repository) {
+            this.repository = repository;
+            this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "File Watcher Snapshot Saver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // the pending snapshots are saved by close() instead of waiting for the delay
+            this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+
+        void save(Map<File, DirectorySnapshot> snapshots) {
+            if (this.pending.getAndSet(snapshots) == null) {
+                this.executor.schedule(this::savePending, SAVE_DELAY.toMillis(),
+                    TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void savePending() {
+            Map<File, DirectorySnapshot> snapshots = this.pending.getAndSet(null);
+            if (snapshots != null) {
+                this.repository.save(snapshots);
+            }
+        }
+
+        void close() {
+            this.executor.shutdown();
+            try {
+                // let a save in progress complete before saving the latest snapshots
+                this.executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            savePending();
+        }
+    }
 }
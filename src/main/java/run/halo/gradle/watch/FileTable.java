@@ -0,0 +1,241 @@
+package run.halo.gradle.watch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import run.halo.gradle.utils.Assert;
+
+/**
+ * The regular files of a single directory at a given point in time, stored column-wise. The
+ * interned file names are sorted and the attributes of the file at each index are held in
+ * parallel arrays, so a directory costs a handful of arrays instead of an object per file and
+ * two tables are compared with a linear merge that does not allocate.
+ */
+final class FileTable {
+
+    static final FileTable EMPTY = new FileTable(new String[0], new long[0], new long[0],
+        new long[0]);
+
+    private final String[] names;
+
+    private final long[] lengths;
+
+    /**
+     * The last modified times in nanoseconds, so that successive writes within the same
+     * millisecond are told apart on file systems with a finer timestamp granularity.
+     */
+    private final long[] lastModified;
+
+    /**
+     * The hash of the keys that identify the files, e.g. their inodes, so that a file replaced
+     * by another one with the same length and timestamp is still detected.
+     */
+    private final long[] fileKeys;
+
+    private FileTable(String[] names, long[] lengths, long[] lastModified, long[] fileKeys) {
+        this.names = names;
+        this.lengths = lengths;
+        this.lastModified = lastModified;
+        this.fileKeys = fileKeys;
+    }
+
+    /**
+     * Create a new {@link Builder}, files must be added in the natural order of their names.
+     *
+     * @param capacity the expected number of files
+     * @return the builder
+     */
+    static Builder builder(int capacity) {
+        return new Builder(capacity);
+    }
+
+    int size() {
+        return this.names.length;
+    }
+
+    String getName(int index) {
+        return this.names[index];
+    }
+
+    long getLength(int index) {
+        return this.lengths[index];
+    }
+
+    long getLastModified(int index) {
+        return this.lastModified[index];
+    }
+
+    long getFileKey(int index) {
+        return this.fileKeys[index];
+    }
+
+    /**
+     * Return the index of the file with the given name.
+     *
+     * @param name the file name
+     * @return the index or a negative value if there is no such file
+     */
+    int indexOf(String name) {
+        return Arrays.binarySearch(this.names, name);
+    }
+
+    /**
+     * Return whether the file at the given index has the same attributes as the file at the
+     * given index of another table.
+     */
+    boolean isSameFile(int index, FileTable other, int otherIndex) {
+        return this.lengths[index] == other.lengths[otherIndex]
+            && this.lastModified[index] == other.lastModified[otherIndex]
+            && this.fileKeys[index] == other.fileKeys[otherIndex];
+    }
+
+    /**
+     * Return whether the file at the given index has the given attributes.
+     */
+    boolean hasAttributes(int index, BasicFileAttributes attributes) {
+        return this.lengths[index] == attributes.size()
+            && this.lastModified[index] == lastModified(attributes)
+            && this.fileKeys[index] == fileKey(attributes);
+    }
+
+    /**
+     * Read the attributes of all files again, assuming that no file has been added or removed.
+     *
+     * @param directory the directory of this table
+     * @return this table if no file changed, a new table if some files changed or {@code null}
+     * if a file no longer exists and the directory must be listed again
+     */
+    FileTable refresh(File directory) {
+        Builder builder = null;
+        for (int i = 0; i < this.names.length; i++) {
+            BasicFileAttributes attributes = readAttributes(new File(directory, this.names[i]));
+            if (attributes == null || !attributes.isRegularFile()) {
+                return null;
+            }
+            if (builder == null) {
+                if (hasAttributes(i, attributes)) {
+                    continue;
+                }
+                builder = new Builder(this.names.length);
+                for (int j = 0; j < i; j++) {
+                    builder.add(this.names[j], this.lengths[j], this.lastModified[j],
+                        this.fileKeys[j]);
+                }
+            }
+            builder.add(this.names[i], attributes);
+        }
+        return (builder != null) ? builder.build(this) : this;
+    }
+
+    static BasicFileAttributes readAttributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            // deleted since it was listed
+            return null;
+        }
+    }
+
+    private static long lastModified(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static long fileKey(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return (fileKey != null) ? fileKey.hashCode() : 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < this.names.length; i++) {
+            int fileHashCode = this.names[i].hashCode();
+            fileHashCode = 31 * fileHashCode + Long.hashCode(this.lengths[i]);
+            fileHashCode = 31 * fileHashCode + Long.hashCode(this.lastModified[i]);
+            fileHashCode = 31 * fileHashCode + Long.hashCode(this.fileKeys[i]);
+            hashCode += fileHashCode;
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.names);
+    }
+
+    /**
+     * Builder for {@link FileTable}.
+     */
+    static final class Builder {
+
+        private String[] names;
+
+        private long[] lengths;
+
+        private long[] lastModified;
+
+        private long[] fileKeys;
+
+        private int size;
+
+        private Builder(int capacity) {
+            this.names = new String[capacity];
+            this.lengths = new long[capacity];
+            this.lastModified = new long[capacity];
+            this.fileKeys = new long[capacity];
+        }
+
+        Builder add(String name, BasicFileAttributes attributes) {
+            Assert.isTrue(!attributes.isDirectory(), "File must not be a directory");
+            return add(name, attributes.size(), FileTable.lastModified(attributes),
+                fileKey(attributes));
+        }
+
+        Builder add(String name, long length, long lastModified, long fileKey) {
+            Assert.isTrue(this.size == 0 || this.names[this.size - 1].compareTo(name) < 0,
+                "Files must be added in order");
+            if (this.size == this.names.length) {
+                int capacity = Math.max(8, this.size * 2);
+                this.names = Arrays.copyOf(this.names, capacity);
+                this.lengths = Arrays.copyOf(this.lengths, capacity);
+                this.lastModified = Arrays.copyOf(this.lastModified, capacity);
+                this.fileKeys = Arrays.copyOf(this.fileKeys, capacity);
+            }
+            this.names[this.size] = name.intern();
+            this.lengths[this.size] = length;
+            this.lastModified[this.size] = lastModified;
+            this.fileKeys[this.size] = fileKey;
+            this.size++;
+            return this;
+        }
+
+        /**
+         * Build the table, sharing as much as possible with the given previous table of the
+         * same directory.
+         *
+         * @param previous the previous table, can be null
+         * @return the previous table if it holds the same files, otherwise a new table
+         */
+        FileTable build(FileTable previous) {
+            if (this.size == 0) {
+                return (previous != null && previous.size() == 0) ? previous : EMPTY;
+            }
+            String[] names = Arrays.copyOf(this.names, this.size);
+            long[] lengths = Arrays.copyOf(this.lengths, this.size);
+            long[] lastModified = Arrays.copyOf(this.lastModified, this.size);
+            long[] fileKeys = Arrays.copyOf(this.fileKeys, this.size);
+            if (previous == null || !Arrays.equals(previous.names, names)) {
+                return new FileTable(names, lengths, lastModified, fileKeys);
+            }
+            if (Arrays.equals(previous.lengths, lengths)
+                && Arrays.equals(previous.lastModified, lastModified)
+                && Arrays.equals(previous.fileKeys, fileKeys)) {
+                return previous;
+            }
+            return new FileTable(previous.names, lengths, lastModified, fileKeys);
+        }
+    }
+}
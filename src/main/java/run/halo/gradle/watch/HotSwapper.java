@@ -0,0 +1,241 @@
+package run.halo.gradle.watch;
+
+import com.sun.jdi.Bootstrap;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.connect.AttachingConnector;
+import com.sun.jdi.connect.Connector;
+import com.sun.jdi.connect.IllegalConnectorArgumentsException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import run.halo.gradle.utils.Assert;
+
+/**
+ * Redefines the classes of the plugin in the Halo server through the JDWP debug port, so that
+ * changes to method bodies are live without reloading the plugin. The class files are compared
+ * with the ones seen by the previous call, a class that has been added or removed or whose
+ * {@link ClassStructure structure} changed cannot be redefined and requires a reload.
+ *
+ * <p>The debugger connection is only held while the classes are redefined, because a JDWP
+ * agent accepts a single debugger at a time and the port may be used by an IDE. When it is, the
+ * classes cannot be redefined and the plugin is reloaded instead.
+ */
+@Slf4j
+public class HotSwapper {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final String SOCKET_ATTACH = "com.sun.jdi.SocketAttach";
+
+    private static final int ATTACH_TIMEOUT_MILLIS = 3000;
+
+    private final Collection<File> classesDirectories;
+
+    private final String host;
+
+    private final int port;
+
+    /**
+     * The class files seen by the last call, by path.
+     */
+    private Map<Path, ClassFile> classFiles;
+
+    /**
+     * Whether the Halo server has been found unable to redefine classes, in which case the
+     * plugin is always reloaded.
+     */
+    private boolean disabled;
+
+    /**
+     * Create a new {@link HotSwapper} and read the current class files.
+     *
+     * @param classesDirectories the output directories of the compiled classes
+     * @param host the host of the JDWP agent
+     * @param port the port of the JDWP agent
+     */
+    public HotSwapper(Collection<File> classesDirectories, String host, int port) {
+        Assert.notNull(classesDirectories, "Classes directories must not be null");
+        Assert.notNull(host, "Host must not be null");
+        this.classesDirectories = classesDirectories;
+        this.host = host;
+        this.port = port;
+        this.classFiles = readClassFiles(Map.of());
+    }
+
+    /**
+     * Redefine the classes that changed since the previous call.
+     *
+     * @return {@code true} if all changes are live, {@code false} if the plugin must be
+     * reloaded
+     */
+    public boolean hotSwap() {
+        if (this.disabled) {
+            return false;
+        }
+        Map<Path, ClassFile> previous = this.classFiles;
+        Map<Path, ClassFile> current = readClassFiles(previous);
+        this.classFiles = current;
+        Map<String, byte[]> redefinitions = getRedefinitions(previous, current);
+        if (redefinitions == null) {
+            return false;
+        }
+        if (redefinitions.isEmpty()) {
+            return true;
+        }
+        return redefine(redefinitions);
+    }
+
+    /**
+     * Read the class files again after the plugin has been reloaded with them.
+     */
+    public void reloaded() {
+        this.classFiles = readClassFiles(this.classFiles);
+    }
+
+    /**
+     * Return the content of the modified classes by class name.
+     *
+     * @return the modified classes or {@code null} if a structural change requires a reload
+     */
+    static Map<String, byte[]> getRedefinitions(Map<Path, ClassFile> previous,
+        Map<Path, ClassFile> current) {
+        if (!previous.keySet().equals(current.keySet())) {
+            log.info("Classes have been added or removed, reloading the plugin");
+            return null;
+        }
+        Map<String, byte[]> redefinitions = new LinkedHashMap<>();
+        for (Map.Entry<Path, ClassFile> entry : current.entrySet()) {
+            ClassFile previousFile = previous.get(entry.getKey());
+            ClassFile currentFile = entry.getValue();
+            if (previousFile.checksum == currentFile.checksum) {
+                continue;
+            }
+            if (!previousFile.structure.equals(currentFile.structure)) {
+                log.info("The structure of {} changed, reloading the plugin",
+                    currentFile.structure);
+                return null;
+            }
+            redefinitions.put(currentFile.structure.getClassName(), currentFile.bytes);
+        }
+        return redefinitions;
+    }
+
+    private boolean redefine(Map<String, byte[]> redefinitions) {
+        VirtualMachine virtualMachine;
+        try {
+            virtualMachine = attach();
+        } catch (IOException | RuntimeException | LinkageError e) {
+            log.info("Cannot attach to the debug port {}:{}, reloading the plugin: {}",
+                this.host, this.port, e.getMessage());
+            return false;
+        }
+        try {
+            if (!virtualMachine.canRedefineClasses()) {
+                log.warn("The Halo server at {}:{} cannot redefine classes, hot swap is disabled "
+                    + "and the plugin is reloaded on every change", this.host, this.port);
+                this.disabled = true;
+                return false;
+            }
+            Map<ReferenceType, byte[]> classes = new HashMap<>();
+            redefinitions.forEach((className, bytes) -> {
+                // classes that have not been loaded yet are read from the new class files
+                for (ReferenceType type : virtualMachine.classesByName(className)) {
+                    classes.put(type, bytes);
+                }
+            });
+            virtualMachine.redefineClasses(classes);
+            log.info("Redefined {} classes", redefinitions.size());
+            return true;
+        } catch (RuntimeException | LinkageError e) {
+            log.info("Failed to redefine classes, reloading the plugin: {}", e.toString());
+            return false;
+        } finally {
+            virtualMachine.dispose();
+        }
+    }
+
+    private VirtualMachine attach() throws IOException {
+        AttachingConnector connector = Bootstrap.virtualMachineManager().attachingConnectors()
+            .stream()
+            .filter(candidate -> SOCKET_ATTACH.equals(candidate.name()))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("No socket attaching connector"));
+        Map<String, Connector.Argument> arguments = connector.defaultArguments();
+        arguments.get("hostname").setValue(this.host);
+        arguments.get("port").setValue(String.valueOf(this.port));
+        arguments.get("timeout").setValue(String.valueOf(ATTACH_TIMEOUT_MILLIS));
+        try {
+            return connector.attach(arguments);
+        } catch (IllegalConnectorArgumentsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read the class files, the ones that did not change are taken from the previous ones.
+     */
+    private Map<Path, ClassFile> readClassFiles(Map<Path, ClassFile> previous) {
+        Map<Path, ClassFile> classFiles = new HashMap<>();
+        for (File directory : this.classesDirectories) {
+            if (!directory.isDirectory()) {
+                continue;
+            }
+            List<Path> paths = new ArrayList<>();
+            try (Stream<Path> stream = Files.walk(directory.toPath())) {
+                stream.filter(path -> path.toString().endsWith(CLASS_SUFFIX))
+                    .forEach(paths::add);
+            } catch (IOException e) {
+                log.warn("Failed to list the classes in {}: {}", directory, e.getMessage());
+                continue;
+            }
+            for (Path path : paths) {
+                ClassFile classFile = ClassFile.read(path, previous.get(path));
+                if (classFile != null) {
+                    classFiles.put(path, classFile);
+                }
+            }
+        }
+        return classFiles;
+    }
+
+    /**
+     * A compiled class, the structure is only read when the content changed.
+     */
+    static final class ClassFile {
+
+        private final long checksum;
+
+        private final byte[] bytes;
+
+        private final ClassStructure structure;
+
+        ClassFile(byte[] bytes, ClassFile previous) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytes);
+            this.checksum = crc32.getValue();
+            this.bytes = bytes;
+            this.structure = (previous != null && previous.checksum == this.checksum)
+                ? previous.structure : ClassStructure.read(bytes);
+        }
+
+        static ClassFile read(Path path, ClassFile previous) {
+            try {
+                return new ClassFile(Files.readAllBytes(path), previous);
+            } catch (IOException e) {
+                // deleted since it was listed
+                return null;
+            }
+        }
+    }
+}
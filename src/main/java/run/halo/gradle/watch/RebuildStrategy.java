@@ -0,0 +1,68 @@
+package run.halo.gradle.watch;
+
+import java.util.List;
+
+/**
+ * The cheapest way to bring the running plugin up to date with a set of changes, ordered from
+ * the cheapest to the most expensive one.
+ */
+public enum RebuildStrategy {
+
+    /**
+     * Copy the resources into the mounted build directory, they are read on every request so
+     * the plugin does not need to be reloaded, e.g. templates and static files.
+     */
+    RESOURCES(List.of("processResources"), false),
+
+    /**
+     * Copy the resources into the mounted build directory and reload the plugin.
+     */
+    RESOURCES_AND_RELOAD(List.of("processResources"), true),
+
+    /**
+     * Compile the classes and process the resources, then reload the plugin.
+     */
+    CLASSES(List.of("classes"), true),
+
+    /**
+     * Run the full build and reload the plugin, e.g. for manifest or build script changes.
+     */
+    BUILD(List.of("build"), true);
+
+    private final List<String> tasks;
+
+    private final boolean reloadRequired;
+
+    RebuildStrategy(List<String> tasks, boolean reloadRequired) {
+        this.tasks = tasks;
+        this.reloadRequired = reloadRequired;
+    }
+
+    /**
+     * Return the Gradle tasks to run.
+     *
+     * @return the task names
+     */
+    public List<String> getTasks() {
+        return this.tasks;
+    }
+
+    /**
+     * Return whether the plugin must be reloaded after the tasks have run.
+     *
+     * @return {@code true} if the plugin must be reloaded
+     */
+    public boolean isReloadRequired() {
+        return this.reloadRequired;
+    }
+
+    /**
+     * Return the strategy that covers both this and the given strategy.
+     *
+     * @param other the other strategy
+     * @return the more expensive of the two strategies
+     */
+    public RebuildStrategy and(RebuildStrategy other) {
+        return (other.ordinal() > ordinal()) ? other : this;
+    }
+}
@@ -0,0 +1,255 @@
+package run.halo.gradle.watch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import run.halo.gradle.utils.JsonUtils;
+
+/**
+ * Records where the time goes between the detection of a change and the reloaded plugin being
+ * ready. Each build of the watch task is a cycle that prints a summary line with the duration
+ * of its phases and the rolling percentiles of the total latency, and is optionally appended to
+ * a JSON lines file.
+ *
+ * <p>Added as the first listener of the {@link FileSystemWatcher}, so that it sees when the
+ * changes were detected and when they settled.
+ */
+@Slf4j
+public class WatchMetrics implements FileChangeListener {
+
+    static final int WINDOW_SIZE = 100;
+
+    private final String pluginVersion;
+
+    private final Path file;
+
+    /**
+     * The total latencies of the last cycles in milliseconds, used as a ring buffer.
+     */
+    private final long[] window = new long[WINDOW_SIZE];
+
+    private int cycles;
+
+    private long detectedAt = -1;
+
+    private long settledAt;
+
+    /**
+     * Create a new {@link WatchMetrics}.
+     *
+     * @param pluginVersion the version of the plugin, written to the file
+     * @param file the JSON lines file the cycles are appended to, can be null
+     */
+    public WatchMetrics(String pluginVersion, Path file) {
+        this.pluginVersion = pluginVersion;
+        this.file = file;
+    }
+
+    @Override
+    public void onChange(Set<ChangedFiles> changeSet) {
+        onChange(changeSet, System.nanoTime());
+    }
+
+    @Override
+    public synchronized void onChange(Set<ChangedFiles> changeSet, long detectedAt) {
+        // changes coalesced into the same build keep the earliest detection
+        if (this.detectedAt == -1) {
+            this.detectedAt = detectedAt;
+        }
+        this.settledAt = System.nanoTime();
+    }
+
+    /**
+     * Start a cycle for a build of the changes detected since the previous build.
+     *
+     * @param strategy the strategy of the build
+     * @return the cycle
+     */
+    public synchronized Cycle startCycle(RebuildStrategy strategy) {
+        long buildStartedAt = System.nanoTime();
+        Cycle cycle = (this.detectedAt != -1)
+            ? new Cycle(strategy, this.detectedAt, this.settledAt, buildStartedAt)
+            : new Cycle(strategy, buildStartedAt, buildStartedAt, buildStartedAt);
+        this.detectedAt = -1;
+        return cycle;
+    }
+
+    private synchronized String recordLatency(long total) {
+        this.window[this.cycles % WINDOW_SIZE] = total;
+        this.cycles++;
+        long[] sorted = Arrays.copyOf(this.window, Math.min(this.cycles, WINDOW_SIZE));
+        Arrays.sort(sorted);
+        return String.format("p50 %dms, p95 %dms over %d cycles", percentile(sorted, 50),
+            percentile(sorted, 95), sorted.length);
+    }
+
+    static long percentile(long[] sorted, int percentile) {
+        // nearest rank
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private void write(Map<String, Object> entry) {
+        if (this.file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(this.file.getParent());
+            String line = JsonUtils.mapper().writeValueAsString(entry) + System.lineSeparator();
+            synchronized (this) {
+                Files.writeString(this.file, line, StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write watch metrics to {}: {}", this.file, e.getMessage());
+        }
+    }
+
+    private static long millis(long startNanos, long endNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(endNanos - startNanos, 0));
+    }
+
+    /**
+     * The timestamps of a single build, from the detection of the changes to the plugin being
+     * started, in {@link System#nanoTime()}.
+     */
+    public class Cycle {
+
+        private final RebuildStrategy strategy;
+
+        private final long detectedAt;
+
+        private final long settledAt;
+
+        private final long buildStartedAt;
+
+        private long buildFinishedAt;
+
+        private boolean succeeded;
+
+        private long hotSwapStartedAt;
+
+        private long hotSwapFinishedAt;
+
+        private long reloadRequestedAt;
+
+        private long reloadRespondedAt;
+
+        private long startedAt;
+
+        private boolean cancelled;
+
+        private Cycle(RebuildStrategy strategy, long detectedAt, long settledAt,
+            long buildStartedAt) {
+            this.strategy = strategy;
+            this.detectedAt = detectedAt;
+            this.settledAt = settledAt;
+            this.buildStartedAt = buildStartedAt;
+        }
+
+        public void buildFinished(boolean succeeded) {
+            this.buildFinishedAt = System.nanoTime();
+            this.succeeded = succeeded;
+        }
+
+        public void hotSwapStarted() {
+            this.hotSwapStartedAt = System.nanoTime();
+        }
+
+        public void hotSwapFinished() {
+            this.hotSwapFinishedAt = System.nanoTime();
+        }
+
+        public void reloadRequested() {
+            this.reloadRequestedAt = System.nanoTime();
+        }
+
+        public void reloadResponded() {
+            this.reloadRespondedAt = System.nanoTime();
+        }
+
+        public void pluginStarted() {
+            this.startedAt = System.nanoTime();
+        }
+
+        /**
+         * Mark the build as cancelled, its changes are built again by the next cycle which
+         * keeps the time they were detected.
+         */
+        public void cancel() {
+            this.cancelled = true;
+            synchronized (WatchMetrics.this) {
+                if (WatchMetrics.this.detectedAt == -1
+                    || WatchMetrics.this.detectedAt - this.detectedAt > 0) {
+                    WatchMetrics.this.detectedAt = this.detectedAt;
+                }
+            }
+        }
+
+        /**
+         * Record the cycle, print its summary and append it to the file, unless it has been
+         * cancelled.
+         */
+        public void finish() {
+            if (this.cancelled) {
+                return;
+            }
+            long finishedAt = System.nanoTime();
+            // a requested reload must have seen the plugin started
+            boolean ready = this.succeeded && (this.reloadRequestedAt == 0 || this.startedAt != 0);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("timestamp", Instant.now().toString());
+            entry.put("pluginVersion", pluginVersion);
+            entry.put("strategy", this.strategy.name());
+            entry.put("succeeded", ready);
+            entry.put("quietMillis", millis(this.detectedAt, this.settledAt));
+            entry.put("queueMillis", millis(this.settledAt, this.buildStartedAt));
+            entry.put("buildMillis", millis(this.buildStartedAt, this.buildFinishedAt));
+            if (this.hotSwapFinishedAt != 0) {
+                entry.put("hotSwapMillis", millis(this.hotSwapStartedAt, this.hotSwapFinishedAt));
+            }
+            if (this.reloadRespondedAt != 0) {
+                entry.put("reloadMillis", millis(this.reloadRequestedAt, this.reloadRespondedAt));
+            }
+            if (this.startedAt != 0) {
+                entry.put("startMillis", millis(this.reloadRespondedAt, this.startedAt));
+            }
+            long total = millis(this.detectedAt, finishedAt);
+            entry.put("totalMillis", total);
+            String summary = summary(entry, ready);
+            if (ready) {
+                summary = summary + ", " + recordLatency(total);
+            }
+            System.out.println(summary);
+            write(entry);
+        }
+
+        private String summary(Map<String, Object> entry, boolean ready) {
+            String status = ready ? "Ready" : (this.succeeded ? "Reload failed" : "Build failed");
+            StringBuilder summary = new StringBuilder("> ").append(status)
+                .append(" in ").append(entry.get("totalMillis")).append("ms (")
+                .append("quiet ").append(entry.get("quietMillis")).append("ms")
+                .append(", queue ").append(entry.get("queueMillis")).append("ms")
+                .append(", ").append(this.strategy.getTasks()).append(' ')
+                .append(entry.get("buildMillis")).append("ms");
+            if (entry.containsKey("hotSwapMillis")) {
+                summary.append(", hot swap ").append(entry.get("hotSwapMillis")).append("ms");
+            }
+            if (entry.containsKey("reloadMillis")) {
+                summary.append(", reload ").append(entry.get("reloadMillis")).append("ms");
+            }
+            if (entry.containsKey("startMillis")) {
+                summary.append(", start ").append(entry.get("startMillis")).append("ms");
+            }
+            return summary.append(')').toString();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package run.halo.gradle.watch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The poll interval and quiet period used by the {@link FileSystemWatcher}.
+ *
+ * <p>A fixed schedule always uses the configured values. An adaptive schedule polls quickly
+ * right after a change and doubles the poll interval on every idle poll up to the configured
+ * one, and derives the quiet period from the duration of the recent write bursts: a single
+ * editor save settles at once and only needs a short quiet period, while a tool that keeps
+ * writing files for a while, e.g. a compiler, gets a longer one, up to the configured quiet
+ * period.
+ */
+final class WatchSchedule {
+
+    static final long MIN_POLL_INTERVAL = 100;
+
+    static final long MIN_QUIET_PERIOD = 50;
+
+    /**
+     * The weight of the latest burst in the average burst duration.
+     */
+    private static final double BURST_WEIGHT = 0.25;
+
+    /**
+     * The quiet period as a fraction of the average burst duration.
+     */
+    private static final int BURST_DIVISOR = 4;
+
+    private final boolean adaptive;
+
+    private final long maxPollInterval;
+
+    private final long maxQuietPeriod;
+
+    private long pollInterval;
+
+    private long quietPeriod;
+
+    private double averageBurst;
+
+    private WatchSchedule(boolean adaptive, long pollInterval, long quietPeriod) {
+        this.adaptive = adaptive;
+        this.maxPollInterval = pollInterval;
+        this.maxQuietPeriod = quietPeriod;
+        this.pollInterval = adaptive ? Math.min(MIN_POLL_INTERVAL, pollInterval) : pollInterval;
+        this.quietPeriod = adaptive ? Math.min(MIN_QUIET_PERIOD, quietPeriod) : quietPeriod;
+    }
+
+    static WatchSchedule fixed(long pollInterval, long quietPeriod) {
+        return new WatchSchedule(false, pollInterval, quietPeriod);
+    }
+
+    static WatchSchedule adaptive(long maxPollInterval, long maxQuietPeriod) {
+        return new WatchSchedule(true, maxPollInterval, maxQuietPeriod);
+    }
+
+    boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    /**
+     * Return the time to wait before polling the directories again, in milliseconds.
+     *
+     * @return the time to wait
+     */
+    long getPollDelay() {
+        // a fixed schedule includes the quiet period in the poll interval
+        return this.adaptive ? this.pollInterval : this.pollInterval - this.quietPeriod;
+    }
+
+    long getPollInterval() {
+        return this.pollInterval;
+    }
+
+    /**
+     * Return the time without changes required before the changes are reported, in
+     * milliseconds.
+     *
+     * @return the quiet period
+     */
+    long getQuietPeriod() {
+        return this.quietPeriod;
+    }
+
+    /**
+     * Record the outcome of a scan.
+     *
+     * @param changed whether the scan found changes
+     * @param burstNanos the time between the first and the last write observed by the scan,
+     * in nanoseconds
+     */
+    void scanned(boolean changed, long burstNanos) {
+        if (!this.adaptive) {
+            return;
+        }
+        if (!changed) {
+            this.pollInterval = Math.min(this.pollInterval * 2, this.maxPollInterval);
+            return;
+        }
+        this.pollInterval = Math.min(MIN_POLL_INTERVAL, this.maxPollInterval);
+        long burst = TimeUnit.NANOSECONDS.toMillis(burstNanos);
+        this.averageBurst += BURST_WEIGHT * (burst - this.averageBurst);
+        long derived = Math.round(this.averageBurst / BURST_DIVISOR);
+        this.quietPeriod = Math.min(Math.max(derived, MIN_QUIET_PERIOD), this.maxQuietPeriod);
+    }
+}
@@ -0,0 +1,304 @@
+package run.halo.gradle.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import run.halo.gradle.utils.Assert;
+
+/**
+ * A {@link Watcher} backed by the {@link WatchService} of the file system, directories are
+ * registered recursively and directories created later are registered as their events arrive.
+ *
+ * <p>A registered directory that does not exist yet is watched through its nearest existing
+ * parent, when it appears {@link #processEvents(WatchKey)} registers it and reports lost events,
+ * so that it is scanned in full. The same applies when a registered directory is deleted and
+ * created again.
+ */
+public class WatchServiceWatcher implements Watcher {
+
+    /**
+     * The time a file system event may take to be delivered by a native watch service. The JDK
+     * falls back to a service that polls every few seconds on platforms without native support,
+     * which is slower than our own polling.
+     */
+    private static final Duration PROBE_TIMEOUT = Duration.ofMillis(500);
+
+    private final WatchService watchService;
+
+    private final FileFilter excludeFileFilter;
+
+    private final Map<Path, WatchKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * The directories registered by {@link #register(Path)}, as opposed to their sub directories.
+     */
+    private final Set<Path> roots = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The registered directories that do not exist, waiting for their creation.
+     */
+    private final Set<Path> missingRoots = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The keys of the nearest existing parents of the missing directories, only watching for
+     * created entries.
+     */
+    private final Map<Path, WatchKey> parentKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new {@link WatchServiceWatcher} for the given file system.
+     *
+     * @param fileSystem the file system to watch, its watch service is probed in the default
+     * temporary directory
+     * @param excludeFileFilter directories accepted by this filter are not registered, can be null
+     * @throws IOException if the watch service cannot be created
+     * @throws UnsupportedOperationException if the file system does not deliver events promptly
+     */
+    public WatchServiceWatcher(FileSystem fileSystem, FileFilter excludeFileFilter)
+        throws IOException {
+        Assert.notNull(fileSystem, "FileSystem must not be null");
+        WatchService watchService = fileSystem.newWatchService();
+        try {
+            if (!deliversEventsPromptly(watchService)) {
+                throw new UnsupportedOperationException("File system " + fileSystem
+                    + " does not deliver watch events within " + PROBE_TIMEOUT.toMillis() + "ms");
+            }
+        } catch (IOException | RuntimeException e) {
+            watchService.close();
+            throw e;
+        }
+        this.watchService = watchService;
+        this.excludeFileFilter = excludeFileFilter;
+    }
+
+    /**
+     * Create a file in a temporary directory and wait for the watch service to report it, which
+     * tells a native service from a polling one without relying on its implementation class.
+     */
+    private static boolean deliversEventsPromptly(WatchService watchService) throws IOException {
+        Path directory = Files.createTempDirectory("halo-watch-probe");
+        Path probe = directory.resolve("probe");
+        WatchKey key = null;
+        try {
+            key = directory.register(watchService, ENTRY_CREATE);
+            Files.createFile(probe);
+            WatchKey signalled = watchService.poll(PROBE_TIMEOUT.toMillis(),
+                TimeUnit.MILLISECONDS);
+            return signalled == key;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (key != null) {
+                key.cancel();
+            }
+            Files.deleteIfExists(probe);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Override
+    public void register(Path path) throws IOException {
+        Assert.notNull(path, "Path must not be null");
+        roots.add(path);
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            missingRoots.add(path);
+            watchMissingRoots();
+            return;
+        }
+        missingRoots.remove(path);
+        registerTree(path);
+    }
+
+    private void registerTree(Path path) throws IOException {
+        if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+                if (!dir.equals(path) && isExcluded(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                if (!keys.containsKey(dir)) {
+                    // a directory is registered once per service, a parent key is upgraded
+                    parentKeys.remove(dir);
+                    keys.put(dir, dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE,
+                        ENTRY_MODIFY));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // the directory may have been deleted in the meantime
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Register the missing directories that have been created since and watch the nearest
+     * existing parent of the others, the parents that are no longer needed are released.
+     *
+     * @return {@code true} if any missing directory has been created
+     */
+    private boolean watchMissingRoots() throws IOException {
+        boolean created = false;
+        boolean registered;
+        do {
+            Set<Path> parents = new HashSet<>();
+            for (Path root : missingRoots) {
+                if (Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+                    missingRoots.remove(root);
+                    registerTree(root);
+                    created = true;
+                    continue;
+                }
+                Path parent = root.getParent();
+                while (parent != null && !Files.isDirectory(parent, LinkOption.NOFOLLOW_LINKS)) {
+                    parent = parent.getParent();
+                }
+                // a parent registered with its sub directories already reports created entries
+                if (parent != null && !keys.containsKey(parent)) {
+                    parents.add(parent);
+                }
+            }
+            parentKeys.entrySet().removeIf(entry -> {
+                if (!parents.contains(entry.getKey())) {
+                    entry.getValue().cancel();
+                    return true;
+                }
+                return false;
+            });
+            registered = false;
+            for (Path parent : parents) {
+                if (!parentKeys.containsKey(parent)) {
+                    parentKeys.put(parent, parent.register(watchService, ENTRY_CREATE));
+                    registered = true;
+                }
+            }
+            // check again, the entries created before a parent was registered have no events
+        }
+        while (registered);
+        return created;
+    }
+
+    @Override
+    public void unregister(Path path) {
+        Assert.notNull(path, "Path must not be null");
+        keys.entrySet().removeIf(entry -> {
+            if (entry.getKey().startsWith(path)) {
+                entry.getValue().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public boolean isWatching(Path path) {
+        return keys.containsKey(path);
+    }
+
+    @Override
+    public WatchKey take() throws InterruptedException {
+        return watchService.take();
+    }
+
+    @Override
+    public WatchKey poll() {
+        return watchService.poll();
+    }
+
+    @Override
+    public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return watchService.poll(timeout, unit);
+    }
+
+    /**
+     * Consume the pending events of the given key, registering directories that have been
+     * created and forgetting the key once it is no longer valid.
+     *
+     * @param key the key returned by {@link #take()} or {@link #poll()}
+     * @return {@code false} if events were lost and the watched directories must be rescanned
+     */
+    public boolean processEvents(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        boolean complete = true;
+        boolean created = false;
+        boolean parentKey = parentKeys.get(directory) == key && !keys.containsKey(directory);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                complete = false;
+                continue;
+            }
+            if (event.kind() == ENTRY_CREATE) {
+                created = true;
+                if (parentKey) {
+                    continue;
+                }
+                Path child = directory.resolve((Path) event.context());
+                try {
+                    registerTree(child);
+                } catch (IOException e) {
+                    complete = false;
+                }
+            }
+        }
+        if (!key.reset()) {
+            if (parentKey) {
+                parentKeys.remove(directory, key);
+            } else {
+                unregister(directory);
+            }
+            if (roots.contains(directory)) {
+                // deleted, it is registered again once created
+                missingRoots.add(directory);
+            }
+            created = true;
+        }
+        if (created && !missingRoots.isEmpty()) {
+            try {
+                // the files created along with a missing directory have no events of their own
+                complete &= !watchMissingRoots();
+            } catch (IOException e) {
+                complete = false;
+            }
+        }
+        return complete;
+    }
+
+    private boolean isExcluded(Path directory) {
+        return excludeFileFilter != null && excludeFileFilter.accept(directory.toFile());
+    }
+
+    @Override
+    public void close() throws IOException {
+        keys.clear();
+        parentKeys.clear();
+        missingRoots.clear();
+        watchService.close();
+    }
+}
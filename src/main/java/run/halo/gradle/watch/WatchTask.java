@@ -1,5 +1,8 @@
 package run.halo.gradle.watch;
 
+import com.github.dockerjava.api.command.InspectContainerCmd;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.DockerException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -13,18 +16,26 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.gradle.StartParameter;
 import org.gradle.api.file.FileCollection;
-import org.gradle.api.internal.file.pattern.PatternMatcher;
-import org.gradle.api.internal.file.pattern.PatternMatcherFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.internal.classpath.ClassPath;
 import org.gradle.internal.classpath.DefaultClassPath;
 import run.halo.gradle.WatchExecutionParameters;
 import run.halo.gradle.docker.DockerStartContainer;
+import run.halo.gradle.docker.FrameConsumerResultCallback;
 import run.halo.gradle.extension.HaloPluginExtension;
+import run.halo.gradle.steps.HaloHttpClientService;
+import run.halo.gradle.steps.LogReadinessProbe;
 import run.halo.gradle.steps.PluginClient;
 import run.halo.gradle.steps.SetupHaloStep;
 
@@ -35,11 +46,23 @@ import run.halo.gradle.steps.SetupHaloStep;
 @Slf4j
 public class WatchTask extends DockerStartContainer {
 
+    private static final Pattern JDWP_ADDRESS =
+        Pattern.compile("-agentlib:jdwp=\\S*address=(?:[^,\\s]*:)?(\\d{1,5})");
+
     private final PluginClient pluginClient;
     private final HaloPluginExtension pluginExtension;
+    private LogReadinessProbe readinessProbe;
+
+    /**
+     * The HTTP client shared by the build to call Halo.
+     */
+    @Internal
+    @Getter
+    final Property<HaloHttpClientService> httpClientService =
+        getProject().getObjects().property(HaloHttpClientService.class);
 
     public WatchTask() {
-        this.pluginClient = new PluginClient(getProject());
+        this.pluginClient = new PluginClient(getProject(), httpClientService);
         this.pluginExtension = getProject().getExtensions()
             .getByType(HaloPluginExtension.class);
     }
@@ -48,7 +71,6 @@ public class WatchTask extends DockerStartContainer {
         return WatchExecutionParameters.builder()
             .projectDir(getProject().getProjectDir())
             .buildArgs(buildArgs)
-            .environment(System.getenv())
             .build();
     }
 
@@ -80,33 +102,204 @@ public class WatchTask extends DockerStartContainer {
     @Override
     public void runRemoteCommand() {
         //Amount of time to wait between polling for classpath changes.
-        Duration pollInterval = Duration.ofSeconds(2);
+        Duration pollInterval = Duration.ofMillis(pluginExtension.getWatchPollInterval());
         //Amount of quiet time required without any classpath changes before a restart is triggered.
-        Duration quietPeriod = Duration.ofMillis(500);
+        Duration quietPeriod = Duration.ofMillis(pluginExtension.getWatchQuietPeriod());
 
+        // keep the snapshots across Gradle daemons, so a restart does not scan everything again
+        Path snapshotsFile = getProject().getProjectDir().toPath()
+            .resolve(".gradle/halo-devtools/watch-snapshots.bin");
         FileSystemWatcher watcher = new FileSystemWatcher(false, pollInterval,
-            quietPeriod, SnapshotStateRepository.STATIC);
+            quietPeriod, new FileSnapshotStateRepository(snapshotsFile));
+        // wait for file system events, the poll interval only applies to the polling fallback
+        watcher.setUseWatchService(true);
+        watcher.setParallelism(pluginExtension.getWatchParallelism());
+        watcher.setAdaptive(pluginExtension.isWatchAdaptive());
+        watcher.setVerifyContent(pluginExtension.isWatchVerifyContent());
         configWatchFiles(watcher);
 
+        // a container kept from a previous build still runs the previous plugin
+        boolean reused = isContainerRunning();
+        // the output of a running container may not show its start any more
+        readinessProbe = reused ? null : new LogReadinessProbe();
         CompletableFuture<Void> initializeFuture = CompletableFuture.runAsync(() -> {
-            new SetupHaloStep(pluginClient.getSiteOption()).execute();
-            pluginClient.checkPluginState();
+            new SetupHaloStep(pluginClient.getSiteOption(), pluginClient.getHttpClient(),
+                readinessProbe).execute();
+            if (reused) {
+                pluginClient.reloadPlugin();
+            } else {
+                pluginClient.checkPluginState();
+            }
         });
         initializeFuture.exceptionally(e -> {
             log.error(e.getMessage(), e);
             return null;
         });
 
-        WatchExecutionParameters parameters = getParameters(List.of("build"));
         WatchTaskRunner runner = new WatchTaskRunner(getProject());
-        watcher.addListener(changeSet -> {
-            System.out.println("File changed......" + changeSet);
-            runner.run(parameters);
-            pluginClient.reloadPlugin();
-        });
+        ChangeClassifier classifier = new ChangeClassifier(getProject().getProjectDir());
+        // build on a separate thread, changes arriving during a build are coalesced
+        WatchMetrics metrics = new WatchMetrics(String.valueOf(getProject().getVersion()),
+            getMetricsFile());
+        PluginBuildAction buildAction =
+            new PluginBuildAction(runner, metrics, classifier, createHotSwapper());
+        BuildScheduler scheduler = new BuildScheduler(classifier, buildAction);
+        // the metrics must see the changes before the scheduler starts a build
+        watcher.addListener(metrics);
+        watcher.addListener(scheduler);
         watcher.start();
-        // start docker container and waiting
-        super.runRemoteCommand();
+        try {
+            // start docker container and waiting
+            super.runRemoteCommand();
+        } finally {
+            watcher.stop();
+            scheduler.close();
+            runner.close();
+        }
+    }
+
+    @Override
+    protected void configureOutput(FrameConsumerResultCallback callback) {
+        if (readinessProbe != null) {
+            readinessProbe.attachTo(callback);
+        }
+    }
+
+    /**
+     * Runs the tasks of the {@link RebuildStrategy} and reloads the plugin if required.
+     */
+    private class PluginBuildAction implements BuildScheduler.BuildAction {
+
+        private final WatchTaskRunner runner;
+
+        private final WatchMetrics metrics;
+
+        private final ChangeClassifier classifier;
+
+        private final HotSwapper hotSwapper;
+
+        private volatile boolean cancelled;
+
+        PluginBuildAction(WatchTaskRunner runner, WatchMetrics metrics,
+            ChangeClassifier classifier, HotSwapper hotSwapper) {
+            this.runner = runner;
+            this.metrics = metrics;
+            this.classifier = classifier;
+            this.hotSwapper = hotSwapper;
+        }
+
+        @Override
+        public boolean build(Set<ChangedFiles> changeSet, RebuildStrategy strategy) {
+            log.debug("Files changed: {}", changeSet);
+            WatchMetrics.Cycle cycle = metrics.startCycle(strategy);
+            try {
+                // the build directory is mounted into the container, so resources and classes
+                // are picked up without packaging the plugin again
+                log.info("Running {} for the changed files", strategy.getTasks());
+                boolean succeeded = runner.run(getParameters(strategy.getTasks()));
+                cycle.buildFinished(succeeded);
+                if (!succeeded) {
+                    if (cancelled) {
+                        // built again along with the newer changes
+                        cycle.cancel();
+                    }
+                    return false;
+                }
+                if (strategy == RebuildStrategy.CLASSES && hotSwapper != null
+                    && classifier.isHotSwappable(changeSet)) {
+                    cycle.hotSwapStarted();
+                    boolean hotSwapped = hotSwapper.hotSwap();
+                    cycle.hotSwapFinished();
+                    if (hotSwapped) {
+                        return true;
+                    }
+                }
+                if (strategy.isReloadRequired()) {
+                    cycle.reloadRequested();
+                    long reloadedVersion = pluginClient.requestReload();
+                    cycle.reloadResponded();
+                    // a failed or disabled plugin is reported as a failed reload
+                    if (!awaitReloaded(reloadedVersion)) {
+                        return false;
+                    }
+                    cycle.pluginStarted();
+                    if (hotSwapper != null) {
+                        hotSwapper.reloaded();
+                    }
+                }
+                return true;
+            } finally {
+                cancelled = false;
+                cycle.finish();
+            }
+        }
+
+        /**
+         * Wait for the reloaded plugin to start, a plugin that does not start before the
+         * {@code pluginReadyTimeout} fails the reload, not the watch session.
+         */
+        private boolean awaitReloaded(long reloadedVersion) {
+            try {
+                return pluginClient.awaitReloaded(reloadedVersion);
+            } catch (IllegalStateException e) {
+                log.warn("{}, waiting for the next change", e.getMessage());
+                return false;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            runner.cancel();
+        }
+    }
+
+    /**
+     * Create a {@link HotSwapper} for the debug port of the Halo container, if it has been
+     * started in debug mode.
+     */
+    private HotSwapper createHotSwapper() {
+        if (!pluginExtension.isWatchHotSwap()) {
+            return null;
+        }
+        Integer debugPort = getContainerDebugPort();
+        if (debugPort == null) {
+            return null;
+        }
+        Set<File> classesDirs = getProject().getExtensions().getByType(SourceSetContainer.class)
+            .getByName(SourceSet.MAIN_SOURCE_SET_NAME).getOutput().getClassesDirs().getFiles();
+        log.info("Method body changes are redefined through the debug port {}", debugPort);
+        return new HotSwapper(classesDirs, "localhost", debugPort);
+    }
+
+    private Integer getContainerDebugPort() {
+        InspectContainerResponse container;
+        try (InspectContainerCmd inspectContainerCmd = getDockerClient()
+            .inspectContainerCmd(getContainerId().get())) {
+            container = inspectContainerCmd.exec();
+        } catch (DockerException e) {
+            log.warn("Failed to inspect container: {}", e.getMessage());
+            return null;
+        }
+        String[] env = container.getConfig().getEnv();
+        if (env == null) {
+            return null;
+        }
+        for (String variable : env) {
+            Matcher matcher = JDWP_ADDRESS.matcher(variable);
+            if (variable.startsWith("JAVA_TOOL_OPTIONS=") && matcher.find()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+        }
+        return null;
+    }
+
+    private Path getMetricsFile() {
+        if (!pluginExtension.isWatchMetrics()) {
+            return null;
+        }
+        return getProject().getLayout().getBuildDirectory()
+            .file("halo-devtools/watch-metrics.jsonl").get().getAsFile().toPath();
     }
 
     private void configWatchFiles(FileSystemWatcher watcher) {
@@ -130,10 +323,8 @@ public class WatchTask extends DockerStartContainer {
         populateDefaultExcludeRules(excludes);
         log.info("Excludes files to watching: {}", excludes);
 
-        // set exclude file filter with pattern matcher
-        PatternMatcher patternsMatcher =
-            PatternMatcherFactory.getPatternsMatcher(false, true, excludes);
-        watcher.setExcludeFileFilter(new FileMatchingFilter(patternsMatcher));
+        // set exclude file filter with the compiled patterns
+        watcher.setExcludeFileFilter(new FileMatchingFilter(excludes));
 
         log.info("Watching files: {}", watchFiles);
         watcher.addSourceDirectories(watchFiles);
@@ -3,11 +3,18 @@ package run.halo.gradle.watch;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import javax.annotation.Nonnull;
+import lombok.extern.slf4j.Slf4j;
 import org.gradle.StartParameter;
 import org.gradle.api.Project;
 import org.gradle.internal.classpath.ClassPath;
+import org.gradle.tooling.BuildCancelledException;
 import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
 import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.internal.consumer.DefaultBuildLauncher;
@@ -17,12 +24,29 @@ import run.halo.gradle.WatchExecutionParameters;
 import run.halo.gradle.utils.Assert;
 
 /**
+ * Runs the builds of the watch task through a single Tooling API connection that is opened on the
+ * first build and kept until {@link #close()}, or until a build loses its connection to the
+ * daemon, in which case the next build opens a new one. A build that is in progress can be
+ * cancelled with {@link #cancel()}.
+ *
+ * <p>Opening a {@link ProjectConnection} does not contact the daemon, the daemon is looked up or
+ * started by every build. Keeping the connection spares the connector setup of every build, the
+ * daemon itself is only reused as long as the builds ask for the same JVM arguments and
+ * environment.
+ *
  * @author guqing
  * @since 2.0.0
  */
-public class WatchTaskRunner {
+@Slf4j
+public class WatchTaskRunner implements AutoCloseable {
 
-    private final GradleConnector gradleConnector;
+    private final Supplier<ProjectConnection> connector;
+
+    private ProjectConnection connection;
+
+    private CancellationTokenSource cancellationTokenSource;
+
+    private boolean closed;
 
     public WatchTaskRunner(Project project) {
         // StartParameter parameter = project.getGradle().getStartParameter();
@@ -30,23 +54,109 @@ public class WatchTaskRunner {
             (DefaultGradleConnector) GradleConnector.newConnector();
         gradleConnector.useGradleUserHomeDir(project.getGradle().getGradleUserHomeDir());
         gradleConnector.useDistributionBaseDir(GradleUserHomeLookup.gradleUserHome());
-        this.gradleConnector = gradleConnector.forProjectDirectory(project.getProjectDir());
+        this.connector = gradleConnector.forProjectDirectory(project.getProjectDir())::connect;
     }
 
-    public void run(WatchExecutionParameters parameters) {
+    WatchTaskRunner(Supplier<ProjectConnection> connector) {
+        Assert.notNull(connector, "connector must not be null");
+        this.connector = connector;
+    }
+
+    /**
+     * Run a build with the given parameters and wait for it to finish.
+     *
+     * @param parameters the build parameters
+     * @return {@code true} if the build succeeded, {@code false} if it failed or was cancelled
+     */
+    public boolean run(WatchExecutionParameters parameters) {
         Assert.notNull(parameters, "WatchExecutionParameters must not be null");
-        try (var connection = gradleConnector.connect()) {
-            var launcher = createBuildLauncher(parameters, connection);
+        long startTime = System.nanoTime();
+        CancellationTokenSource tokenSource = GradleConnector.newCancellationTokenSource();
+        ProjectConnection projectConnection;
+        try {
+            projectConnection = connect(tokenSource);
+        } catch (GradleConnectionException e) {
+            log.warn("Could not connect to the Gradle daemon: {}", e.getMessage());
+            return false;
+        }
+        if (projectConnection == null) {
+            return false;
+        }
+        try {
+            var launcher = createBuildLauncher(parameters, projectConnection);
+            launcher.withCancellationToken(tokenSource.token());
             launcher.run();
+            log.info("Build {} finished in {}ms", parameters.getBuildArgs(),
+                millisSince(startTime));
+            return true;
+        } catch (BuildCancelledException e) {
+            log.info("Build {} cancelled after {}ms", parameters.getBuildArgs(),
+                millisSince(startTime));
         } catch (BuildException e) {
             System.err.println(e.getMessage());
+        } catch (GradleConnectionException e) {
+            log.warn("Lost connection to the Gradle daemon: {}", e.getMessage());
+            disconnect(projectConnection);
+        } finally {
+            synchronized (this) {
+                if (this.cancellationTokenSource == tokenSource) {
+                    this.cancellationTokenSource = null;
+                }
+            }
+        }
+        return false;
+    }
+
+    private synchronized ProjectConnection connect(CancellationTokenSource tokenSource) {
+        if (this.closed) {
+            return null;
+        }
+        if (this.connection == null) {
+            this.connection = this.connector.get();
+        }
+        this.cancellationTokenSource = tokenSource;
+        return this.connection;
+    }
+
+    private synchronized void disconnect(ProjectConnection projectConnection) {
+        // the next build opens a new connection
+        if (this.connection == projectConnection) {
+            this.connection = null;
+            projectConnection.close();
+        }
+    }
+
+    /**
+     * Cancel the build that is in progress, if any.
+     */
+    public synchronized void cancel() {
+        if (this.cancellationTokenSource != null) {
+            this.cancellationTokenSource.cancel();
+            this.cancellationTokenSource = null;
+        }
+    }
+
+    /**
+     * Cancel the build that is in progress and close the connection to the daemon.
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        cancel();
+        if (this.connection != null) {
+            this.connection.close();
+            this.connection = null;
         }
     }
 
+    private static long millisSince(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
     @Nonnull
-    private static DefaultBuildLauncher createBuildLauncher(
+    private static BuildLauncher createBuildLauncher(
         WatchExecutionParameters parameters, ProjectConnection connection) {
-        DefaultBuildLauncher launcher = (DefaultBuildLauncher) connection
+        BuildLauncher launcher = connection
             .newBuild()
             .setStandardOutput(new NoCloseOutputStream(parameters.getStandardOutput()))
             .setStandardError(new NoCloseOutputStream(parameters.getStandardError()));
@@ -56,7 +166,7 @@ public class WatchTaskRunner {
         }
         ClassPath injectedClassPath = parameters.getInjectedClassPath();
         if (injectedClassPath != null && !injectedClassPath.isEmpty()) {
-            launcher.withInjectedClassPath(injectedClassPath);
+            ((DefaultBuildLauncher) launcher).withInjectedClassPath(injectedClassPath);
         }
 
         List<String> buildArgs = parameters.getBuildArgs();
@@ -64,8 +174,14 @@ public class WatchTaskRunner {
             launcher.withArguments(buildArgs);
         }
 
-        launcher.setJvmArguments(parameters.getJvmArgs().toArray(new String[0]));
-        launcher.setEnvironmentVariables(parameters.getEnvironment());
+        // only override the daemon JVM arguments and environment when asked to, different
+        // values on every build would make the daemon incompatible and start a cold JVM
+        if (!parameters.getJvmArgs().isEmpty()) {
+            launcher.setJvmArguments(parameters.getJvmArgs().toArray(new String[0]));
+        }
+        if (!parameters.getEnvironment().isEmpty()) {
+            launcher.setEnvironmentVariables(parameters.getEnvironment());
+        }
         return launcher;
     }
 
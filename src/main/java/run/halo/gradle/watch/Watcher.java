@@ -4,6 +4,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.WatchKey;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author guqing
@@ -18,4 +19,8 @@ public interface Watcher extends Closeable {
     boolean isWatching(Path path);
 
     WatchKey take() throws InterruptedException;
+
+    WatchKey poll();
+
+    WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException;
 }
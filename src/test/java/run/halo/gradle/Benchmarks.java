@@ -0,0 +1,45 @@
+package run.halo.gradle;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the hot paths of the plugin in benchmark tests. The benchmarks are tagged with
+ * {@link #TAG}, they are left out of {@code test} and run by {@code ./gradlew benchmark}.
+ *
+ * <p>This is not a replacement for JMH: every task is warmed up by running it as many times as it
+ * is measured, and the median is reported to smooth out the garbage collection pauses. The
+ * numbers are only meant to be compared within a run, on the same machine.
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Run the task, then print and return its median duration.
+     *
+     * @param name the name printed along with the duration
+     * @param iterations the number of measured runs, the task is run as many times before
+     * @param task the task to time
+     * @return the median duration in nanoseconds
+     */
+    public static long time(String name, int iterations, Runnable task) {
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        long[] durations = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.run();
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        long median = durations[iterations / 2];
+        System.out.printf("%-40s %10.3f ms (median of %d runs)%n", name,
+            median / (double) TimeUnit.MILLISECONDS.toNanos(1), iterations);
+        return median;
+    }
+}
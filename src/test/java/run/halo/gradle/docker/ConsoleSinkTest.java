@@ -0,0 +1,105 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ConsoleSink}.
+ */
+class ConsoleSinkTest {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private final CountDownLatch consoleReady = new CountDownLatch(1);
+
+    /**
+     * A console that blocks until {@link #consoleReady} is released.
+     */
+    private final PrintStream slowConsole = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            try {
+                consoleReady.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (output) {
+                output.write(b, off, len);
+            }
+        }
+    }, true, StandardCharsets.UTF_8);
+
+    @Test
+    void writesLinesInOrder() {
+        consoleReady.countDown();
+        var sink = new ConsoleSink(slowConsole, 16, ConsoleSink.OverflowPolicy.BLOCK,
+            ToStringConsumer::format);
+        for (int i = 0; i < 100; i++) {
+            sink.accept(stdout("line " + i));
+        }
+        sink.close();
+
+        String[] lines = output().split(System.lineSeparator());
+        assertThat(lines).hasSize(100);
+        assertThat(lines[0]).isEqualTo("line 0");
+        assertThat(lines[99]).isEqualTo("line 99");
+    }
+
+    @Test
+    void slowConsoleDoesNotSlowDownContainer() throws InterruptedException {
+        var sink = new ConsoleSink(slowConsole, 16, ConsoleSink.OverflowPolicy.SUMMARIZE,
+            ToStringConsumer::format);
+        var producer = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                sink.accept(stdout("2024-01-01 10:00:00.000 DEBUG 1 --- [main] line " + i));
+            }
+        });
+        producer.start();
+
+        // the producer finishes while the console is still blocked
+        producer.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(producer.isAlive()).isFalse();
+
+        consoleReady.countDown();
+        sink.close();
+        String output = output();
+        assertThat(output).contains("line 0" + System.lineSeparator());
+        assertThat(output).containsPattern("… [\\d,.\\s]+ DEBUG lines suppressed");
+    }
+
+    @Test
+    void dropsSilently() throws InterruptedException {
+        var sink = new ConsoleSink(slowConsole, 4, ConsoleSink.OverflowPolicy.DROP,
+            ToStringConsumer::format);
+        for (int i = 0; i < 100; i++) {
+            sink.accept(stdout("INFO line " + i));
+        }
+
+        consoleReady.countDown();
+        sink.close();
+        assertThat(output()).doesNotContain("suppressed");
+    }
+
+    private String output() {
+        synchronized (output) {
+            return output.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static OutputFrame stdout(String line) {
+        return new OutputFrame(OutputFrame.OutputType.STDOUT,
+            line.getBytes(StandardCharsets.UTF_8));
+    }
+}
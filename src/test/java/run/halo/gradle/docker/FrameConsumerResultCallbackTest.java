@@ -0,0 +1,77 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link FrameConsumerResultCallback}.
+ */
+class FrameConsumerResultCallbackTest {
+
+    @Test
+    void sendsRawLinesToEveryConsumerWithItsColorPreference() throws IOException {
+        var plain = new CollectingConsumer();
+        var colored = new CollectingConsumer().withRemoveAnsiCodes(false);
+        var callback = new FrameConsumerResultCallback();
+        callback.addConsumer(OutputFrame.OutputType.STDOUT, plain);
+        callback.addConsumer(OutputFrame.OutputType.STDOUT, colored);
+
+        callback.onNext(raw("\033[32mINFO\033[0m first\nlast \033[3"));
+        callback.onNext(raw("1mERROR\033[0m"));
+        callback.close();
+
+        assertThat(plain.lines).containsExactly("INFO first", "last ERROR");
+        assertThat(colored.lines).containsExactly("\033[32mINFO\033[0m first",
+            "last \033[31mERROR\033[0m");
+        assertThat(plain.ended).isEqualTo(1);
+        assertThat(colored.ended).isEqualTo(1);
+    }
+
+    @Test
+    void skipsOutputBeforeSince() throws IOException {
+        var consumer = new CollectingConsumer();
+        var callback = new FrameConsumerResultCallback();
+        callback.addConsumer(OutputFrame.OutputType.STDOUT, consumer);
+        callback.setSince(Instant.parse("2024-01-01T10:00:00.500Z"));
+
+        callback.onNext(stdout("2024-01-01T10:00:00.499999999Z Started Application\n"));
+        callback.onNext(stdout("2024-01-01T10:00:00.500000000Z Starting Application\n"));
+        callback.onNext(stdout("without timestamp\n"));
+        callback.close();
+
+        assertThat(consumer.lines).containsExactly("Starting Application\n",
+            "without timestamp\n");
+    }
+
+    private static Frame stdout(String text) {
+        return new Frame(StreamType.STDOUT, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Frame raw(String text) {
+        return new Frame(StreamType.RAW, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static class CollectingConsumer extends BaseConsumer<CollectingConsumer> {
+
+        final List<String> lines = new ArrayList<>();
+
+        int ended;
+
+        @Override
+        public void accept(OutputFrame frame) {
+            if (frame == OutputFrame.END) {
+                ended++;
+            } else {
+                lines.add(frame.getUtf8String());
+            }
+        }
+    }
+}
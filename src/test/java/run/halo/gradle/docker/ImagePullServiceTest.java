@@ -0,0 +1,79 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildServiceParameters;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ImagePullService}.
+ */
+class ImagePullServiceTest {
+
+    private static final Logger LOGGER = Logging.getLogger(ImagePullServiceTest.class);
+
+    private final ImagePullService service = new ImagePullService() {
+        @Override
+        public BuildServiceParameters.None getParameters() {
+            return null;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void pullRunsWhileCallerContinues() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        service.start("halohub/halo:2.21", () -> {
+            started.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // the pull is in progress while the caller keeps going
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+
+        assertThat(service.await("halohub/halo:2.21", LOGGER)).isTrue();
+    }
+
+    @Test
+    void imageIsPulledOnce() throws InterruptedException {
+        AtomicInteger pulls = new AtomicInteger();
+        service.start("halohub/halo:2.21", () -> pulls.incrementAndGet() > 0);
+        service.start("halohub/halo:2.21", () -> pulls.incrementAndGet() > 0);
+
+        assertThat(service.await("halohub/halo:2.21", LOGGER)).isTrue();
+        assertThat(pulls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void awaitWithoutBackgroundPull() throws InterruptedException {
+        assertThat(service.await("halohub/halo:2.21", LOGGER)).isFalse();
+    }
+
+    @Test
+    void failureIsRethrown() {
+        service.start("halohub/halo:2.21", () -> {
+            throw new IllegalStateException("pull access denied");
+        });
+
+        assertThatThrownBy(() -> service.await("halohub/halo:2.21", LOGGER))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("pull access denied");
+    }
+}
@@ -0,0 +1,111 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import run.halo.gradle.Benchmarks;
+
+/**
+ * Times {@link LineDecoder} on colored Halo output split into 8 KiB frames, against the regular
+ * expressions the raw frames used to be decoded, stripped and split with.
+ */
+@Tag(Benchmarks.TAG)
+class LineDecoderBenchmark {
+
+    private static final int LINES = 50_000;
+
+    private static final int FRAME_SIZE = 8 * 1024;
+
+    private static final int ITERATIONS = 10;
+
+    private static final Pattern ANSI_COLOR_PATTERN = Pattern.compile("\u001B\\[[0-9;]+m");
+
+    private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("((\\r?\\n)|(\\r))");
+
+    private List<byte[]> frames;
+
+    private long size;
+
+    /**
+     * Keeps the lines encoded by the regular expression path from being optimized away.
+     */
+    private long encodedBytes;
+
+    @BeforeEach
+    void setUp() {
+        var output = new ByteArrayOutputStream();
+        for (int i = 0; i < LINES; i++) {
+            String line = "\u001B[2m2024-01-01T00:00:00.000+08:00\u001B[0;39m "
+                + "\u001B[32mDEBUG\u001B[0;39m \u001B[35m1\u001B[0;39m \u001B[2m---\u001B[0;39m "
+                + "\u001B[2m[reactor-http-epoll-" + (i % 8) + "]\u001B[0;39m "
+                + "\u001B[36mr.h.a.c.e.ReactiveExtensionClient\u001B[0;39m "
+                + "\u001B[2m:\u001B[0;39m 插件 plugin-" + i + " 已就绪\n";
+            output.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] bytes = output.toByteArray();
+        size = bytes.length;
+        frames = new ArrayList<>();
+        for (int start = 0; start < bytes.length; start += FRAME_SIZE) {
+            int end = Math.min(start + FRAME_SIZE, bytes.length);
+            frames.add(Arrays.copyOfRange(bytes, start, end));
+        }
+    }
+
+    @Test
+    void decodeLines() {
+        assertThat(decode(true)).isEqualTo(LINES);
+        assertThat(decode(false)).isEqualTo(LINES);
+        assertThat(splitWithRegex()).isEqualTo(LINES);
+
+        String output = String.format("%.1f MB", size / 1_000_000.0);
+        Benchmarks.time("regex, " + output, ITERATIONS, this::splitWithRegex);
+        Benchmarks.time("decoder without colors, " + output, ITERATIONS, () -> decode(true));
+        Benchmarks.time("decoder with colors, " + output, ITERATIONS, () -> decode(false));
+    }
+
+    private int decode(boolean removeColorCodes) {
+        int[] lines = new int[1];
+        var decoder = new LineDecoder(removeColorCodes, line -> lines[0]++);
+        for (byte[] frame : frames) {
+            decoder.decode(frame);
+        }
+        return lines[0];
+    }
+
+    /**
+     * Decode every frame, strip the color codes and split the lines with regular expressions,
+     * then encode every line again, carrying the unterminated last line over to the next frame.
+     * The frames are merged on a broken UTF-8 tail beforehand, which is left out here.
+     */
+    private int splitWithRegex() {
+        int count = 0;
+        var carried = new StringBuilder();
+        for (byte[] frame : frames) {
+            String text = new String(frame, StandardCharsets.UTF_8);
+            text = ANSI_COLOR_PATTERN.matcher(text).replaceAll("");
+            List<String> lines = new ArrayList<>(Arrays.asList(LINE_BREAK_PATTERN.split(text)));
+            if (text.endsWith("\n") || text.endsWith("\r")) {
+                lines.add("");
+            }
+            for (int i = 0; i < lines.size() - 1; i++) {
+                String line = lines.get(i);
+                if (i == 0 && carried.length() > 0) {
+                    line = carried + line;
+                    carried.setLength(0);
+                }
+                encodedBytes += line.getBytes(StandardCharsets.UTF_8).length;
+                count++;
+            }
+            carried.append(lines.get(lines.size() - 1));
+        }
+        return count;
+    }
+}
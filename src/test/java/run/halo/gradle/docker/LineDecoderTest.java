@@ -0,0 +1,97 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link LineDecoder}.
+ */
+class LineDecoderTest {
+
+    private final List<String> lines = new ArrayList<>();
+
+    private final LineDecoder decoder = new LineDecoder(true,
+        line -> lines.add(new String(line, StandardCharsets.UTF_8)));
+
+    @Test
+    void splitsLines() {
+        decode("first\nsecond\r\nthird\rfourth\n\nlast");
+
+        assertThat(lines).containsExactly("first", "second", "third", "fourth", "");
+        assertThat(flush()).isEqualTo("last");
+        assertThat(flush()).isNull();
+    }
+
+    @Test
+    void carriesLinesAcrossFrames() {
+        decode("Started ");
+        decode("HaloApplication\r");
+        // the line break is split across the frames
+        decode("\nnext\n");
+
+        assertThat(lines).containsExactly("Started HaloApplication", "next");
+    }
+
+    @Test
+    void carriesCharactersAcrossFrames() {
+        byte[] bytes = "插件启动成功\n".getBytes(StandardCharsets.UTF_8);
+        for (int split = 1; split < bytes.length; split++) {
+            lines.clear();
+            decoder.decode(Arrays.copyOfRange(bytes, 0, split));
+            decoder.decode(Arrays.copyOfRange(bytes, split, bytes.length));
+
+            assertThat(lines).containsExactly("插件启动成功");
+        }
+    }
+
+    @Test
+    void removesColorCodes() {
+        decode("\u001B[2m2024-01-01\u001B[0;39m \u001B[32m INFO\u001B[0;39m Started\n");
+        // the color code is split across the frames
+        decode("\u001B[3");
+        decode("2mWARN\u001B[0m\n");
+
+        assertThat(lines).containsExactly("2024-01-01  INFO Started", "WARN");
+    }
+
+    @Test
+    void keepsOtherEscapeSequences() {
+        decode("\u001B[2J\u001B[m\u001B(B\u001B[1\n");
+
+        assertThat(lines).containsExactly("\u001B[2J\u001B[m\u001B(B\u001B[1");
+    }
+
+    @Test
+    void keepsColorCodesIfRequested() {
+        var decoder = new LineDecoder(false,
+            line -> lines.add(new String(line, StandardCharsets.UTF_8)));
+
+        decoder.decode("\u001B[32mINFO\u001B[0m\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(lines).containsExactly("\u001B[32mINFO\u001B[0m");
+    }
+
+    @Test
+    void removesColorCodesFromFrame() {
+        byte[] plain = "no color\n".getBytes(StandardCharsets.UTF_8);
+        assertThat(LineDecoder.removeColorCodes(plain)).isSameAs(plain);
+
+        byte[] colored = "\u001B[31mERROR\u001B[0m 错误\u001B[m\n".getBytes(StandardCharsets.UTF_8);
+        assertThat(new String(LineDecoder.removeColorCodes(colored), StandardCharsets.UTF_8))
+            .isEqualTo("ERROR 错误\u001B[m\n");
+    }
+
+    private void decode(String text) {
+        decoder.decode(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String flush() {
+        byte[] last = decoder.flush();
+        return last == null ? null : new String(last, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link LogFilter}.
+ */
+class LogFilterTest {
+
+    private static final String DEBUG =
+        "2024-01-01T10:00:00.000+08:00 DEBUG 1 --- [main] r.h.a.e.ReconcilerRunner : reconciled";
+
+    private static final String INFO =
+        "2024-01-01T10:00:00.000+08:00  INFO 1 --- [main] r.h.a.p.PluginService : started fake";
+
+    private static final String ERROR =
+        "2024-01-01T10:00:00.000+08:00 ERROR 1 --- [main] r.h.a.p.PluginService : failed fake";
+
+    @Test
+    void keepsEntriesFromMinLevel() {
+        var filter = new LogFilter(LogLevel.INFO, List.of(), List.of());
+
+        assertThat(filter.test(stdout(DEBUG))).isFalse();
+        assertThat(filter.test(stdout(INFO))).isTrue();
+        assertThat(filter.test(stdout(ERROR))).isTrue();
+        assertThat(filter.isKeepAll()).isFalse();
+        assertThat(new LogFilter(null, List.of(), List.of()).isKeepAll()).isTrue();
+    }
+
+    @Test
+    void keepsStackTraceWithItsEntry() {
+        var filter = new LogFilter(LogLevel.INFO, List.of(), List.of());
+
+        // lines before the first entry, such as the banner, are kept
+        assertThat(filter.test(stdout("  /\\\\  Halo"))).isTrue();
+        assertThat(filter.test(stdout(ERROR))).isTrue();
+        assertThat(filter.test(stdout("java.lang.IllegalStateException: boom"))).isTrue();
+        assertThat(filter.test(stdout(DEBUG))).isFalse();
+        assertThat(filter.test(stdout("\tat run.halo.app.Reconciler.run(Reconciler.java:42)")))
+            .isFalse();
+    }
+
+    @Test
+    void appliesPatterns() {
+        var filter = new LogFilter(null, List.of("PluginService"), List.of("failed"));
+
+        assertThat(filter.test(stdout(DEBUG))).isFalse();
+        assertThat(filter.test(stdout(INFO))).isTrue();
+        assertThat(filter.test(stdout(ERROR))).isFalse();
+    }
+
+    @Test
+    void parsesLevel() {
+        assertThat(LogLevel.parse(bytes(DEBUG))).isEqualTo(LogLevel.DEBUG);
+        assertThat(LogLevel.parse(bytes(INFO))).isEqualTo(LogLevel.INFO);
+        assertThat(LogLevel.parse(bytes("WARN"))).isEqualTo(LogLevel.WARN);
+        assertThat(LogLevel.parse(bytes("DEBUGGING the INFOrmation"))).isNull();
+        assertThat(LogLevel.parse(bytes(""))).isNull();
+
+        assertThat(LogFilter.parseLevel(" info ")).isEqualTo(LogLevel.INFO);
+        assertThat(LogFilter.parseLevel(null)).isNull();
+        assertThatThrownBy(() -> LogFilter.parseLevel("verbose"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parsesSince() {
+        Instant now = Instant.parse("2024-01-02T10:00:00Z");
+
+        assertThat(LogFilter.parseSince("2024-01-01T10:00:00Z", now))
+            .isEqualTo(Instant.parse("2024-01-01T10:00:00Z"));
+        assertThat(LogFilter.parseSince("10m", now))
+            .isEqualTo(Instant.parse("2024-01-02T09:50:00Z"));
+        assertThat(LogFilter.parseSince("PT30S", now))
+            .isEqualTo(Instant.parse("2024-01-02T09:59:30Z"));
+        assertThat(LogFilter.parseSince("1d", now))
+            .isEqualTo(Instant.parse("2024-01-01T10:00:00Z"));
+        assertThat(LogFilter.parseSince(" ", now)).isNull();
+        assertThatThrownBy(() -> LogFilter.parseSince("yesterday", now))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("yesterday");
+    }
+
+    private static OutputFrame stdout(String line) {
+        return new OutputFrame(OutputFrame.OutputType.STDOUT, bytes(line));
+    }
+
+    private static byte[] bytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+}
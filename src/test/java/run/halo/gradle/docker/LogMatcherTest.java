@@ -0,0 +1,49 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link LogMatcher}.
+ */
+class LogMatcherTest {
+
+    @Test
+    void findsLiterals() {
+        var matcher = LogMatcher.literal("Started Application", "he", "she", "his", "hers");
+
+        assertThat(matcher.indexOf(bytes("... Started Application in 8.1 seconds"))).isZero();
+        // "she" and "he" end at the same byte, the lower index wins
+        assertThat(matcher.indexOf(bytes("ushers"))).isEqualTo(1);
+        assertThat(matcher.indexOf(bytes("this"))).isEqualTo(3);
+        assertThat(matcher.indexOf(bytes("Starting Application"))).isEqualTo(-1);
+        assertThat(matcher.indexOf(bytes(""))).isEqualTo(-1);
+        // the failure links are followed across partial matches
+        assertThat(LogMatcher.literal("aab").indexOf(bytes("aaab"))).isZero();
+        assertThat(LogMatcher.literal("插件", "启动").indexOf(bytes("插件已启动"))).isZero();
+    }
+
+    @Test
+    void findsRegexes() {
+        var matcher = LogMatcher.regex("Started \\w+ in [\\d.]+ seconds", "Plugin \\[\\w+] ");
+
+        assertThat(matcher.indexOf(bytes("Started Application in 8.1 seconds"))).isZero();
+        assertThat(matcher.indexOf(bytes("Plugin [fake] started"))).isEqualTo(1);
+        assertThat(matcher.indexOf(bytes("Started"))).isEqualTo(-1);
+    }
+
+    @Test
+    void testsFrames() {
+        var matcher = LogMatcher.literal("Started");
+
+        assertThat(matcher.test(new OutputFrame(OutputFrame.OutputType.STDOUT,
+            bytes("Started Application")))).isTrue();
+        assertThat(matcher.test(OutputFrame.END)).isFalse();
+    }
+
+    private static byte[] bytes(String line) {
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+}
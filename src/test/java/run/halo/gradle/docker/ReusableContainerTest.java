@@ -0,0 +1,70 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ReusableContainer}.
+ */
+class ReusableContainerTest {
+
+    private static final String IMAGE = "halohub/halo:2.21";
+
+    private static final String[] ENV = {"SPRING_APPLICATION_JSON={\"server\":{\"port\":8090}}"};
+
+    private static final String[] BINDS = {"/workspace/plugin/build:/plugins/fake/build:ro"};
+
+    @Test
+    void sameConfigurationHasSameKey() {
+        String key = ReusableContainer.key(IMAGE, null, ENV, BINDS, false);
+
+        assertThat(key).matches("[0-9a-f]{32}");
+        assertThat(ReusableContainer.key(IMAGE, new String[0], ENV.clone(), BINDS.clone(), false))
+            .isEqualTo(key);
+    }
+
+    @Test
+    void otherConfigurationHasOtherKey() {
+        String key = ReusableContainer.key(IMAGE, null, ENV, BINDS, false);
+
+        assertThat(ReusableContainer.key("halohub/halo:2.22", null, ENV, BINDS, false))
+            .isNotEqualTo(key);
+        assertThat(ReusableContainer.key(IMAGE, null,
+            new String[] {"SPRING_APPLICATION_JSON={\"server\":{\"port\":8091}}"}, BINDS, false))
+            .isNotEqualTo(key);
+        assertThat(ReusableContainer.key(IMAGE, null, ENV,
+            new String[] {"/workspace/other/build:/plugins/other/build:ro"}, false))
+            .isNotEqualTo(key);
+    }
+
+    @Test
+    void randomDebugPortIsIgnored() {
+        String key = ReusableContainer.key(IMAGE, null, debugEnv("n", 5005), BINDS, true);
+
+        assertThat(ReusableContainer.key(IMAGE, null, debugEnv("n", 5006), BINDS, true))
+            .isEqualTo(key);
+        // whether the container can be debugged and the other debug options still matter
+        assertThat(ReusableContainer.key(IMAGE, null, ENV, BINDS, true)).isNotEqualTo(key);
+        assertThat(ReusableContainer.key(IMAGE, null, debugEnv("y", 5005), BINDS, true))
+            .isNotEqualTo(key);
+    }
+
+    @Test
+    void configuredDebugPortIsKept() {
+        String key = ReusableContainer.key(IMAGE, null, debugEnv("n", 5005), BINDS, false);
+
+        assertThat(ReusableContainer.key(IMAGE, null, debugEnv("n", 5005), BINDS, false))
+            .isEqualTo(key);
+        assertThat(ReusableContainer.key(IMAGE, null, debugEnv("n", 5006), BINDS, false))
+            .isNotEqualTo(key);
+        assertThat(ReusableContainer.key(IMAGE, null, debugEnv("y", 5005), BINDS, false))
+            .isNotEqualTo(key);
+    }
+
+    private static String[] debugEnv(String suspend, int port) {
+        return new String[] {ENV[0],
+            "JAVA_TOOL_OPTIONS=-agentlib:jdwp=transport=dt_socket,server=y,suspend=" + suspend
+                + ",address=*:" + port};
+    }
+}
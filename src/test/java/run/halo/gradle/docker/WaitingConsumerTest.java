@@ -0,0 +1,74 @@
+package run.halo.gradle.docker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link WaitingConsumer}.
+ */
+class WaitingConsumerTest {
+
+    @Test
+    void keepsNewestFrames() {
+        var consumer = new WaitingConsumer(3);
+        for (int i = 0; i < 10; i++) {
+            consumer.accept(stdout("line " + i));
+        }
+
+        assertThat(consumer.getFrames()).extracting(OutputFrame::getUtf8String)
+            .containsExactly("line 7", "line 8", "line 9");
+        assertThat(consumer.getDroppedFrames()).isEqualTo(7);
+    }
+
+    @Test
+    void waitsForMatchingFrame() throws Exception {
+        var consumer = new WaitingConsumer(4);
+        var producer = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                consumer.accept(stdout("DEBUG line " + i));
+            }
+            consumer.accept(stdout("Started Application in 8.1 seconds"));
+        });
+        producer.start();
+
+        consumer.waitUntil(LogMatcher.literal("Started Application"), 5, TimeUnit.SECONDS);
+        producer.join();
+        assertThat(consumer.getFrames()).isEmpty();
+    }
+
+    @Test
+    void timesOutAtDeadline() {
+        var consumer = new WaitingConsumer();
+        consumer.accept(stdout("Starting Application"));
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> consumer.waitUntil(LogMatcher.literal("Started"), 200,
+            TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            .isBetween(150L, 2_000L);
+    }
+
+    @Test
+    void stopsAtEndOfOutput() throws TimeoutException {
+        var consumer = new WaitingConsumer();
+        consumer.accept(stdout("Starting Application"));
+        consumer.accept(OutputFrame.END);
+
+        assertThatThrownBy(() -> consumer.waitUntil(LogMatcher.literal("Started"), 5,
+            TimeUnit.SECONDS)).isInstanceOf(TimeoutException.class)
+            .hasMessageContaining("End of output");
+
+        consumer.accept(OutputFrame.END);
+        consumer.waitUntilEnd(1, TimeUnit.SECONDS);
+    }
+
+    private static OutputFrame stdout(String line) {
+        return new OutputFrame(OutputFrame.OutputType.STDOUT,
+            line.getBytes(StandardCharsets.UTF_8));
+    }
+}
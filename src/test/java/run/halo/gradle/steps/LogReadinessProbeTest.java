@@ -0,0 +1,74 @@
+package run.halo.gradle.steps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import run.halo.gradle.docker.FrameConsumerResultCallback;
+
+/**
+ * Tests for {@link LogReadinessProbe}.
+ */
+class LogReadinessProbeTest {
+
+    private static final String STARTED = "2024-01-01T10:00:00.000+08:00  INFO 1 --- [main] "
+        + "run.halo.app.Application : Started Application in 8.1 seconds (process running for 9)";
+
+    private final FrameConsumerResultCallback callback = new FrameConsumerResultCallback();
+
+    private final AtomicInteger checks = new AtomicInteger();
+
+    @Test
+    void readyOnceStartedIsLogged() {
+        var probe = new LogReadinessProbe(Duration.ofMinutes(1));
+        probe.attachTo(callback);
+        new Thread(() -> {
+            log("Starting Application using Java 17");
+            log(STARTED);
+        }).start();
+
+        long start = System.nanoTime();
+        assertThat(probe.awaitStarted(Duration.ofMinutes(1), () -> {
+            checks.incrementAndGet();
+            return true;
+        })).isTrue();
+        // confirmed with a single check, without waiting for the check interval
+        assertThat(checks.get()).isEqualTo(1);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000L);
+    }
+
+    @Test
+    void notReadyIfCheckFailsAfterStarted() {
+        var probe = new LogReadinessProbe(Duration.ofMinutes(1));
+        probe.attachTo(callback);
+        log(STARTED);
+
+        assertThat(probe.awaitStarted(Duration.ofMinutes(1), () -> {
+            checks.incrementAndGet();
+            return false;
+        })).isFalse();
+        assertThat(checks.get()).isEqualTo(1);
+    }
+
+    @Test
+    void checksWhileStartedIsNotLogged() {
+        var probe = new LogReadinessProbe(Duration.ofMillis(10));
+        probe.attachTo(callback);
+        log("Starting Application using Java 17");
+
+        assertThat(probe.awaitStarted(Duration.ofMinutes(1), () -> checks.incrementAndGet() == 3))
+            .isTrue();
+        assertThat(checks.get()).isEqualTo(3);
+        assertThat(probe.awaitStarted(Duration.ofMillis(50), () -> false)).isFalse();
+    }
+
+    private void log(String line) {
+        callback.onNext(new Frame(StreamType.STDOUT,
+            (line + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+}
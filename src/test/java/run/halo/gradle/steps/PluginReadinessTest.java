@@ -0,0 +1,145 @@
+package run.halo.gradle.steps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import run.halo.gradle.model.Plugin;
+import run.halo.gradle.utils.JsonUtils;
+
+/**
+ * Tests for {@link PluginReadiness}.
+ */
+class PluginReadinessTest {
+
+    private static final long READY_AFTER_MILLIS = 1050;
+
+    private HttpServer server;
+
+    private CloseableHttpClient client;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile long startedAt;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // the plugin is reloaded at version 10 and started after READY_AFTER_MILLIS
+        server.createContext("/apis/plugin.halo.run/v1alpha1/plugins/fake", exchange -> {
+            requests.incrementAndGet();
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            String body = (elapsed < READY_AFTER_MILLIS)
+                ? plugin(11, "STARTING") : plugin(12, "STARTED");
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        });
+        server.start();
+        client = HaloHttpClientService.createHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void detectsStartedPluginWithinOnePollInterval() {
+        startedAt = System.nanoTime();
+        var readiness = new PluginReadiness(getPlugin(), PluginReadiness.DEFAULT_POLL_INTERVAL,
+            Duration.ofSeconds(10));
+
+        Plugin plugin = readiness.await(10);
+
+        long detectedAfter = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        assertThat(plugin.getStatus().getPhase()).isEqualTo(Plugin.Phase.STARTED);
+        // one poll interval plus its jitter, and some slack for the requests
+        assertThat(detectedAfter - READY_AFTER_MILLIS).isLessThan(300);
+        System.out.printf("Detected after %dms, %dms late, %d requests%n", detectedAfter,
+            detectedAfter - READY_AFTER_MILLIS, requests.get());
+    }
+
+    @Test
+    void ignoresStatesOlderThanReloadedVersion() throws IOException {
+        Plugin started = JsonUtils.mapper().readValue(plugin(12, "STARTED"), Plugin.class);
+
+        assertThat(PluginReadiness.isSettled(started, 12)).isFalse();
+        assertThat(PluginReadiness.isSettled(started, 11)).isTrue();
+        assertThat(PluginReadiness.isSettled(started, -1)).isTrue();
+    }
+
+    @Test
+    void failsAtDeadline() {
+        startedAt = System.nanoTime();
+        var readiness = new PluginReadiness(getPlugin(), PluginReadiness.DEFAULT_POLL_INTERVAL,
+            Duration.ofMillis(300));
+
+        assertThatThrownBy(() -> readiness.await(100))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Timed out after 300ms");
+    }
+
+    @Test
+    void delaysAreJitteredAroundPollInterval() throws IOException {
+        Plugin starting = JsonUtils.mapper().readValue(plugin(11, "STARTING"), Plugin.class);
+        Plugin started = JsonUtils.mapper().readValue(plugin(11, "STARTED"), Plugin.class);
+        AtomicInteger polls = new AtomicInteger();
+        List<Duration> delays = new ArrayList<>();
+        Supplier<Plugin> plugin = () -> polls.incrementAndGet() > 100 ? started : starting;
+        // the delays are recorded instead of slept
+        var readiness = new PluginReadiness(plugin, Duration.ofMillis(100),
+            Duration.ofMinutes(1), delays::add);
+
+        assertThat(readiness.await(10)).isSameAs(started);
+        assertThat(delays).hasSize(100);
+        for (Duration delay : delays) {
+            assertThat(delay).isBetween(Duration.ofMillis(75), Duration.ofMillis(125));
+        }
+        assertThat(delays.stream().distinct().count()).isGreaterThan(1);
+    }
+
+    private Supplier<Plugin> getPlugin() {
+        URI uri = URI.create("http://" + server.getAddress().getHostString() + ":"
+            + server.getAddress().getPort()
+            + "/apis/plugin.halo.run/v1alpha1/plugins/fake");
+        return () -> {
+            try (var response = client.execute(new HttpGet(uri))) {
+                var entity = HttpUtils.getEntityString(response);
+                return JsonUtils.mapper().readValue(entity, Plugin.class);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    private static String plugin(long version, String phase) {
+        return """
+            {
+              "metadata": {"name": "fake", "version": %d},
+              "spec": {"displayName": "Fake", "enabled": true},
+              "status": {"phase": "%s"}
+            }
+            """.formatted(version, phase);
+    }
+}
@@ -0,0 +1,97 @@
+package run.halo.gradle.steps;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import run.halo.gradle.model.Plugin;
+import run.halo.gradle.utils.JsonUtils;
+
+/**
+ * Tests for {@link PluginStateDecoder}.
+ */
+class PluginStateDecoderTest {
+
+    private static final String PLUGIN = """
+        {
+          "apiVersion": "plugin.halo.run/v1alpha1",
+          "kind": "Plugin",
+          "metadata": {
+            "name": "fake",
+            "labels": {"app": "fake"},
+            "annotations": {"checksum": "abc"},
+            "version": 42,
+            "finalizers": ["plugin-protection"]
+          },
+          "spec": {
+            "displayName": "Fake",
+            "version": "1.0.0",
+            "author": {"name": "halo", "website": "https://halo.run"},
+            "pluginDependencies": {},
+            "enabled": true
+          },
+          "status": {
+            "phase": "FAILED",
+            "conditions": [
+              {"type": "FAILED", "reason": "StartFailed", "message": "boom",
+               "lastTransitionTime": "2024-01-01T00:00:00Z"},
+              {"type": "STARTING", "reason": "Starting", "message": ""}
+            ],
+            "entry": "/plugins/fake/assets/console/main.js"
+          }
+        }
+        """;
+
+    @Test
+    void decodesStateLikeFullBinding() throws IOException {
+        Plugin plugin = PluginStateDecoder.decode(stream(PLUGIN));
+        Plugin bound = JsonUtils.mapper().readValue(PLUGIN, Plugin.class);
+
+        assertThat(plugin.getMetadata().getName()).isEqualTo(bound.getMetadata().getName());
+        assertThat(plugin.getMetadata().getVersion()).isEqualTo(42L);
+        assertThat(plugin.getSpec().getDisplayName()).isEqualTo("Fake");
+        assertThat(plugin.getSpec().getEnabled()).isTrue();
+        assertThat(plugin.getStatus().getPhase()).isEqualTo(Plugin.Phase.FAILED);
+        assertThat(plugin.getStatus().getConditions()).hasSize(1);
+        assertThat(plugin.getStatus().getConditions().peekFirst())
+            .isEqualTo(bound.getStatus().getConditions().peekFirst());
+    }
+
+    @Test
+    void stopsOnceStateIsRead() throws IOException {
+        // the rest of the body is neither parsed nor required to be valid
+        String truncated = PLUGIN.substring(0, PLUGIN.lastIndexOf('}')) + ", \"extra\": [1, 2,";
+
+        Plugin plugin = PluginStateDecoder.decode(stream(truncated));
+
+        assertThat(plugin.getStatus().getPhase()).isEqualTo(Plugin.Phase.FAILED);
+    }
+
+    @Test
+    void toleratesMissingAndUnknownValues() throws IOException {
+        Plugin plugin = PluginStateDecoder.decode(stream("""
+            {"metadata": {"name": "fake", "version": null}, "spec": null,
+             "status": {"phase": "SOMETHING_NEW", "conditions": null}}
+            """));
+
+        assertThat(plugin.getMetadata().getVersion()).isNull();
+        assertThat(plugin.getSpec().getEnabled()).isFalse();
+        assertThat(plugin.getStatus().getPhase()).isEqualTo(Plugin.Phase.UNKNOWN);
+        assertThat(plugin.getStatus().getConditions()).isEmpty();
+    }
+
+    @Test
+    void decodesNullBody() throws IOException {
+        assertThat(PluginStateDecoder.decode(stream("null"))).isNull();
+        assertThatThrownBy(() -> PluginStateDecoder.decode(stream("[]")))
+            .isInstanceOf(IOException.class);
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,128 @@
+package run.halo.gradle.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import run.halo.gradle.utils.RetryUtils.RetryOptions;
+
+/**
+ * Tests for {@link RetryUtils} and {@link BackoffPolicy}.
+ */
+class RetryUtilsTest {
+
+    @Test
+    void retriesFailuresUntilSuccess() {
+        AtomicInteger calls = new AtomicInteger();
+        List<Integer> retried = new ArrayList<>();
+        var options = RetryOptions.builder()
+            .backoff(BackoffPolicy.constant(Duration.ofMillis(1)))
+            .listener((attempt, failure, delay) -> retried.add(attempt))
+            .build();
+
+        boolean succeeded = RetryUtils.retry(options, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("not yet");
+            }
+            return calls.get() == 3;
+        });
+
+        assertThat(succeeded).isTrue();
+        assertThat(calls).hasValue(3);
+        assertThat(retried).containsExactly(1, 2);
+    }
+
+    @Test
+    void stopsAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+        var options = RetryOptions.builder()
+            .backoff(BackoffPolicy.constant(Duration.ZERO))
+            .maxAttempts(4)
+            .build();
+
+        assertThat(RetryUtils.retry(options, () -> calls.incrementAndGet() > 10)).isFalse();
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void stopsAtDeadline() {
+        var options = RetryOptions.builder()
+            .backoff(BackoffPolicy.constant(Duration.ofSeconds(10)))
+            .deadline(Duration.ofMillis(200))
+            .build();
+
+        long startedAt = System.nanoTime();
+        assertThat(RetryUtils.retry(options, () -> false)).isFalse();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        // the last delay is shortened to the deadline
+        assertThat(elapsed).isBetween(200L, 2000L);
+    }
+
+    @Test
+    void skipsAttemptWithoutMinimalTimeLeft() {
+        AtomicInteger calls = new AtomicInteger();
+        var options = RetryOptions.builder()
+            .backoff(BackoffPolicy.constant(Duration.ofSeconds(10)))
+            .deadline(Duration.ofSeconds(1))
+            .minAttemptTime(Duration.ofMillis(800))
+            .build();
+
+        long startedAt = System.nanoTime();
+        assertThat(RetryUtils.retry(options, () -> calls.incrementAndGet() > 10)).isFalse();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        // the delay leaves the minimal time to the second attempt, a third one has too little
+        assertThat(calls).hasValue(2);
+        assertThat(elapsed).isBetween(200L, 1000L);
+    }
+
+    @Test
+    void noAttemptWhenDeadlineIsBelowMinimalTime() {
+        AtomicInteger calls = new AtomicInteger();
+        var options = RetryOptions.builder()
+            .deadline(Duration.ofMillis(100))
+            .minAttemptTime(Duration.ofSeconds(1))
+            .build();
+
+        assertThat(RetryUtils.retry(options, () -> calls.incrementAndGet() > 0)).isFalse();
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void interruptionStopsRetries() {
+        var options = RetryOptions.builder()
+            .backoff(BackoffPolicy.constant(Duration.ofSeconds(10)))
+            .build();
+        Thread.currentThread().interrupt();
+
+        assertThatThrownBy(() -> RetryUtils.retry(options, () -> false))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(Thread.interrupted()).isTrue();
+    }
+
+    @Test
+    void exponentialBackoffIsCappedWithFullJitter() {
+        var backoff = BackoffPolicy.exponential(Duration.ofMillis(100), Duration.ofSeconds(1));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.delay(1)).isBetween(Duration.ZERO, Duration.ofMillis(100));
+            assertThat(backoff.delay(3)).isBetween(Duration.ZERO, Duration.ofMillis(400));
+            assertThat(backoff.delay(100)).isBetween(Duration.ZERO, Duration.ofSeconds(1));
+        }
+    }
+
+    @Test
+    void fibonacciBackoffIsCapped() {
+        var backoff = BackoffPolicy.fibonacci(Duration.ofMillis(100), Duration.ofSeconds(1));
+
+        assertThat(List.of(backoff.delay(1), backoff.delay(2), backoff.delay(3),
+            backoff.delay(4), backoff.delay(5), backoff.delay(6), backoff.delay(1000)))
+            .containsExactly(Duration.ofMillis(100), Duration.ofMillis(200),
+                Duration.ofMillis(300), Duration.ofMillis(500), Duration.ofMillis(800),
+                Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,126 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link BuildScheduler}.
+ */
+class BuildSchedulerTest {
+
+    @TempDir
+    Path projectDir;
+
+    private BlockingBuildAction action;
+
+    private BuildScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        action = new BlockingBuildAction();
+        scheduler = new BuildScheduler(new ChangeClassifier(projectDir.toFile()), action);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void changesDuringBuildAreCoalesced() throws InterruptedException {
+        scheduler.onChange(changeSet("src/main/java/A.java"));
+        assertThat(action.nextBuild()).containsExactly("src/main/java/A.java");
+
+        scheduler.onChange(changeSet("src/main/resources/templates/a.html"));
+        scheduler.onChange(changeSet("src/main/resources/templates/b.html"));
+        scheduler.onChange(changeSet("src/main/resources/templates/a.html"));
+        action.finish(true);
+
+        assertThat(action.nextBuild()).containsExactlyInAnyOrder(
+            "src/main/resources/templates/a.html", "src/main/resources/templates/b.html");
+        assertThat(action.cancellations.getCount()).isEqualTo(1L);
+        action.finish(true);
+    }
+
+    @Test
+    void supersedingChangesCancelRunningBuild() throws InterruptedException {
+        scheduler.onChange(changeSet("src/main/java/A.java"));
+        assertThat(action.nextBuild()).containsExactly("src/main/java/A.java");
+
+        scheduler.onChange(changeSet("src/main/java/B.java"));
+        assertThat(action.cancellations.await(5, TimeUnit.SECONDS)).isTrue();
+        action.finish(false);
+
+        assertThat(action.nextBuild())
+            .containsExactlyInAnyOrder("src/main/java/A.java", "src/main/java/B.java");
+        action.finish(true);
+    }
+
+    @Test
+    void cheaperChangesDoNotCancelRunningBuild() throws InterruptedException {
+        scheduler.onChange(changeSet("build.gradle"));
+        assertThat(action.nextBuild()).containsExactly("build.gradle");
+
+        scheduler.onChange(changeSet("src/main/java/A.java"));
+        action.finish(true);
+
+        assertThat(action.nextBuild()).containsExactly("src/main/java/A.java");
+        assertThat(action.cancellations.getCount()).isEqualTo(1L);
+        action.finish(true);
+    }
+
+    private Set<ChangedFiles> changeSet(String path) {
+        File root = projectDir.toFile();
+        var changedFile = new ChangedFile(root, new File(root, path), ChangedFile.Type.MODIFY);
+        return Set.of(new ChangedFiles(root, Set.of(changedFile)));
+    }
+
+    private class BlockingBuildAction implements BuildScheduler.BuildAction {
+
+        private final BlockingQueue<List<String>> builds = new LinkedBlockingQueue<>();
+
+        private final BlockingQueue<Boolean> results = new LinkedBlockingQueue<>();
+
+        private final CountDownLatch cancellations = new CountDownLatch(1);
+
+        @Override
+        public boolean build(Set<ChangedFiles> changeSet, RebuildStrategy strategy) {
+            builds.add(changeSet.stream()
+                .flatMap(changedFiles -> changedFiles.getFiles().stream())
+                .map(ChangedFile::getRelativeName)
+                .collect(Collectors.toList()));
+            try {
+                return results.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancellations.countDown();
+        }
+
+        List<String> nextBuild() throws InterruptedException {
+            return builds.poll(5, TimeUnit.SECONDS);
+        }
+
+        void finish(boolean succeeded) {
+            results.add(succeeded);
+        }
+    }
+}
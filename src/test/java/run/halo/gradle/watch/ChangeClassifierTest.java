@@ -0,0 +1,94 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link ChangeClassifier}.
+ */
+class ChangeClassifierTest {
+
+    @TempDir
+    Path projectDir;
+
+    private ChangeClassifier classifier;
+
+    @BeforeEach
+    void setUp() {
+        classifier = new ChangeClassifier(projectDir.toFile());
+    }
+
+    @Test
+    void templatesAndStaticFilesOnlyProcessResources() {
+        assertThat(classify("src/main/resources/templates/index.html"))
+            .isEqualTo(RebuildStrategy.RESOURCES);
+        assertThat(classify("src/main/resources/static/js/main.js"))
+            .isEqualTo(RebuildStrategy.RESOURCES);
+        assertThat(RebuildStrategy.RESOURCES.getTasks()).containsExactly("processResources");
+        assertThat(RebuildStrategy.RESOURCES.isReloadRequired()).isFalse();
+    }
+
+    @Test
+    void otherResourcesReloadPlugin() {
+        assertThat(classify("src/main/resources/extensions/settings.yaml"))
+            .isEqualTo(RebuildStrategy.RESOURCES_AND_RELOAD);
+        assertThat(classify("src/main/resources/templates"))
+            .isEqualTo(RebuildStrategy.RESOURCES_AND_RELOAD);
+    }
+
+    @Test
+    void sourcesCompileClasses() {
+        assertThat(classify("src/main/java/run/halo/Plugin.java"))
+            .isEqualTo(RebuildStrategy.CLASSES);
+        assertThat(classify("src/main/kotlin/run/halo/Plugin.kt"))
+            .isEqualTo(RebuildStrategy.CLASSES);
+    }
+
+    @Test
+    void manifestAndBuildScriptsRunFullBuild() {
+        assertThat(classify("src/main/resources/plugin.yaml")).isEqualTo(RebuildStrategy.BUILD);
+        assertThat(classify("src/main/resources/plugin.yml")).isEqualTo(RebuildStrategy.BUILD);
+        assertThat(classify("build.gradle")).isEqualTo(RebuildStrategy.BUILD);
+        assertThat(classify("ui/src/index.ts")).isEqualTo(RebuildStrategy.BUILD);
+    }
+
+    @Test
+    void changeSetUsesMostExpensiveStrategy() {
+        var root = projectDir.toFile();
+        var resources = changedFiles("src/main/resources/templates/index.html");
+        var sources = changedFiles("src/main/java/run/halo/Plugin.java");
+
+        assertThat(classifier.classify(Set.of(resources))).isEqualTo(RebuildStrategy.RESOURCES);
+        assertThat(classifier.classify(Set.of(resources, sources)))
+            .isEqualTo(RebuildStrategy.CLASSES);
+        assertThat(classifier.classify(Set.of(new ChangedFiles(root, Set.of()))))
+            .isEqualTo(RebuildStrategy.RESOURCES);
+    }
+
+    @Test
+    void onlySourcesAndReloadFreeResourcesAreHotSwappable() {
+        var sources = changedFiles("src/main/java/run/halo/Plugin.java");
+        var templates = changedFiles("src/main/resources/templates/index.html");
+        var settings = changedFiles("src/main/resources/extensions/settings.yaml");
+
+        assertThat(classifier.isHotSwappable(Set.of(sources, templates))).isTrue();
+        assertThat(classifier.isHotSwappable(Set.of(sources, settings))).isFalse();
+    }
+
+    private RebuildStrategy classify(String path) {
+        return classifier.classify(projectDir.resolve(path).toFile());
+    }
+
+    private ChangedFiles changedFiles(String path) {
+        File root = projectDir.toFile();
+        var changedFile =
+            new ChangedFile(root, new File(root, path), ChangedFile.Type.MODIFY);
+        return new ChangedFiles(root, Set.of(changedFile));
+    }
+}
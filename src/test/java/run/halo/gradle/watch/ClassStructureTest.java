@@ -0,0 +1,102 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Tests for {@link ClassStructure}.
+ */
+class ClassStructureTest {
+
+    @TempDir
+    Path classesDir;
+
+    @Test
+    void methodBodyChangeKeepsStructure() {
+        ClassStructure previous = ClassStructure.read(generate(1, false, false));
+        ClassStructure current = ClassStructure.read(generate(2, false, false));
+
+        assertThat(current).isEqualTo(previous);
+        assertThat(current.getClassName()).isEqualTo("com.example.Greeter");
+    }
+
+    @Test
+    void addedMethodChangesStructure() {
+        ClassStructure previous = ClassStructure.read(generate(1, false, false));
+        ClassStructure current = ClassStructure.read(generate(1, true, false));
+
+        assertThat(current).isNotEqualTo(previous);
+    }
+
+    @Test
+    void annotationChangesStructure() {
+        ClassStructure previous = ClassStructure.read(generate(1, false, false));
+        ClassStructure current = ClassStructure.read(generate(1, false, true));
+
+        assertThat(current).isNotEqualTo(previous);
+    }
+
+    @Test
+    void onlyModifiedClassesAreRedefined() {
+        Path greeter = classesDir.resolve("com/example/Greeter.class");
+        Map<Path, HotSwapper.ClassFile> previous = new LinkedHashMap<>();
+        previous.put(greeter, new HotSwapper.ClassFile(generate(1, false, false), null));
+        Map<Path, HotSwapper.ClassFile> current = new LinkedHashMap<>();
+        current.put(greeter,
+            new HotSwapper.ClassFile(generate(2, false, false), previous.get(greeter)));
+
+        assertThat(HotSwapper.getRedefinitions(previous, previous)).isEmpty();
+        assertThat(HotSwapper.getRedefinitions(previous, current))
+            .containsOnlyKeys("com.example.Greeter");
+
+        Map<Path, HotSwapper.ClassFile> structural = new LinkedHashMap<>();
+        structural.put(greeter,
+            new HotSwapper.ClassFile(generate(2, true, false), previous.get(greeter)));
+        assertThat(HotSwapper.getRedefinitions(previous, structural)).isNull();
+
+        Map<Path, HotSwapper.ClassFile> added = new LinkedHashMap<>(previous);
+        added.put(classesDir.resolve("com/example/Other.class"),
+            new HotSwapper.ClassFile(generate(1, false, false), null));
+        assertThat(HotSwapper.getRedefinitions(previous, added)).isNull();
+    }
+
+    private static byte[] generate(int greeting, boolean extraMethod, boolean annotated) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "com/example/Greeter", null,
+            "java/lang/Object", null);
+        if (annotated) {
+            AnnotationVisitor annotation =
+                writer.visitAnnotation("Lcom/example/Component;", true);
+            annotation.visit("value", "greeter");
+            annotation.visitEnd();
+        }
+        writer.visitField(Opcodes.ACC_PRIVATE, "name", "Ljava/lang/String;", null, null)
+            .visitEnd();
+        MethodVisitor method =
+            writer.visitMethod(Opcodes.ACC_PUBLIC, "greeting", "()I", null, null);
+        method.visitCode();
+        method.visitIntInsn(Opcodes.BIPUSH, greeting);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+        if (extraMethod) {
+            MethodVisitor extra =
+                writer.visitMethod(Opcodes.ACC_PUBLIC, "farewell", "()V", null, null);
+            extra.visitCode();
+            extra.visitInsn(Opcodes.RETURN);
+            extra.visitMaxs(0, 0);
+            extra.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -0,0 +1,94 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import run.halo.gradle.Benchmarks;
+
+/**
+ * Times the scans of {@link DirectorySnapshot} over a generated tree, against a walk that reads
+ * the attributes of every file one by one through {@link File}, as snapshots used to.
+ */
+@Tag(Benchmarks.TAG)
+class DirectorySnapshotBenchmark {
+
+    private static final int DIRECTORIES = 100;
+
+    private static final int SUB_DIRECTORIES = 10;
+
+    private static final int FILES = 20;
+
+    private static final int ITERATIONS = 10;
+
+    @TempDir
+    Path directory;
+
+    private File changedDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < DIRECTORIES; i++) {
+            for (int j = 0; j < SUB_DIRECTORIES; j++) {
+                Path parent = Files.createDirectories(directory.resolve("d" + i + "/s" + j));
+                for (int k = 0; k < FILES; k++) {
+                    Files.writeString(parent.resolve("File" + k + ".java"), "class File {}");
+                }
+                changedDirectory = parent.toFile();
+            }
+        }
+    }
+
+    @Test
+    void scan() {
+        File root = directory.toFile();
+        int expected = DIRECTORIES * SUB_DIRECTORIES * FILES;
+        assertThat(countFiles(new DirectorySnapshot(root, null).getRoot())).isEqualTo(expected);
+        assertThat(walk(root)).isEqualTo(expected);
+
+        Benchmarks.time("file walk, " + expected + " files", ITERATIONS, () -> walk(root));
+        Benchmarks.time("snapshot, " + expected + " files", ITERATIONS,
+            () -> new DirectorySnapshot(root, null));
+        DirectorySnapshot snapshot = new DirectorySnapshot(root, null);
+        Benchmarks.time("full rescan, " + expected + " files", ITERATIONS,
+            () -> snapshot.rescan(null));
+        Benchmarks.time("rescan of one directory", ITERATIONS,
+            () -> snapshot.rescan(Set.of(changedDirectory)));
+    }
+
+    /**
+     * Visit the tree with a stat per call, i.e. {@code isDirectory} and {@code isFile} per entry,
+     * then {@code exists}, {@code length} and {@code lastModified} per file.
+     */
+    private static int walk(File directory) {
+        int count = 0;
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return 0;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                count += walk(child);
+            } else if (child.isFile() && child.exists()
+                && child.length() + child.lastModified() >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int countFiles(DirectoryNode node) {
+        int count = node.getFiles().size();
+        for (DirectoryNode child : node.getDirectories().values()) {
+            count += countFiles(child);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,166 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link DirectorySnapshot}.
+ */
+class DirectorySnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private File templates;
+
+    private File java;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        templates = Files.createDirectories(directory.resolve("templates")).toFile();
+        java = Files.createDirectories(directory.resolve("java/run/halo")).toFile();
+        Files.writeString(templates.toPath().resolve("index.html"), "<html></html>");
+        Files.writeString(java.toPath().resolve("Plugin.java"), "class Plugin {}");
+    }
+
+    @Test
+    void detectAddedModifiedAndDeletedFiles() throws IOException {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        Files.writeString(templates.toPath().resolve("index.html"), "<html><body/></html>");
+        Files.writeString(templates.toPath().resolve("post.html"), "<html></html>");
+        Files.delete(java.toPath().resolve("Plugin.java"));
+
+        var changedFiles = snapshot.getChangedFiles(snapshot.rescan(null), null);
+        assertThat(changedFiles.getFiles()).containsExactlyInAnyOrder(
+            changedFile(templates, "index.html", ChangedFile.Type.MODIFY),
+            changedFile(templates, "post.html", ChangedFile.Type.ADD),
+            changedFile(java, "Plugin.java", ChangedFile.Type.DELETE));
+    }
+
+    @Test
+    void rescanSharesUnchangedDirectories() throws IOException {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        Files.writeString(templates.toPath().resolve("index.html"), "<html><body/></html>");
+        var rescanned = snapshot.rescan(Set.of(templates));
+
+        assertThat(rescanned.getRoot().getDirectories().get("java"))
+            .isSameAs(snapshot.getRoot().getDirectories().get("java"));
+        assertThat(snapshot.getChangedFiles(rescanned, null).getFiles())
+            .containsExactly(changedFile(templates, "index.html", ChangedFile.Type.MODIFY));
+    }
+
+    @Test
+    void rescanWithoutChangesReturnsSameTree() {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        assertThat(snapshot.rescan(null).getRoot()).isSameAs(snapshot.getRoot());
+        assertThat(snapshot.rescan(Set.of(templates)).getRoot()).isSameAs(snapshot.getRoot());
+    }
+
+    @Test
+    void rescanOnlyChecksChangedDirectories() throws IOException {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        Files.writeString(java.toPath().resolve("Plugin.java"), "class Plugin { }");
+        var rescanned = snapshot.rescan(Set.of(templates));
+
+        assertThat(snapshot.getChangedFiles(rescanned, null).getFiles()).isEmpty();
+        assertThat(snapshot.getChangedFiles(snapshot.rescan(Set.of(java)), null).getFiles())
+            .containsExactly(changedFile(java, "Plugin.java", ChangedFile.Type.MODIFY));
+    }
+
+    @Test
+    void rescanPicksUpNewDirectories() throws IOException {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        var statics = Files.createDirectories(directory.resolve("static/js")).toFile();
+        Files.writeString(statics.toPath().resolve("main.js"), "console.log()");
+
+        var rescanned = snapshot.rescan(Set.of(directory.toFile()));
+        assertThat(snapshot.getChangedFiles(rescanned, null).getFiles())
+            .containsExactly(changedFile(statics, "main.js", ChangedFile.Type.ADD));
+    }
+
+    @Test
+    void equalsIgnoresEmptyDirectories() throws IOException {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        Files.createDirectories(directory.resolve("empty"));
+
+        var rescanned = snapshot.rescan(null);
+        assertThat(rescanned).isEqualTo(snapshot);
+        assertThat(rescanned.hashCode()).isEqualTo(snapshot.hashCode());
+    }
+
+    @Test
+    void excludedDirectoriesAreNotScanned() throws IOException {
+        Files.createDirectories(directory.resolve("ui/node_modules/vue"));
+        Files.writeString(directory.resolve("ui/node_modules/vue/index.js"), "export {}");
+        var filter = new FileMatchingFilter(List.of("**/node_modules/**", "**/*.tmp"));
+        var snapshot = new DirectorySnapshot(directory.toFile(), filter);
+
+        Files.writeString(directory.resolve("ui/node_modules/vue/index.js"), "export default {}");
+        Files.writeString(templates.toPath().resolve("index.html.tmp"), "<html></html>");
+
+        assertThat(snapshot.getRoot().getDirectories().get("ui").getDirectories()).isEmpty();
+        assertThat(snapshot.getChangedFiles(snapshot.rescan(null), null).getFiles()).isEmpty();
+    }
+
+    @Test
+    void parallelScanMatchesSequentialScan() {
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        var pool = new ForkJoinPool(4);
+        try {
+            var parallelSnapshot =
+                pool.submit(() -> new DirectorySnapshot(directory.toFile(), null)).join();
+            assertThat(parallelSnapshot).isEqualTo(snapshot);
+            assertThat(snapshot.getChangedFiles(parallelSnapshot, null).getFiles()).isEmpty();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rewrittenFilesWithSameContentAreIgnored() throws IOException {
+        var contentDigests = new ContentDigests();
+        var index = templates.toPath().resolve("index.html");
+        var snapshot = new DirectorySnapshot(directory.toFile(), null);
+
+        Files.writeString(index, "<html><body/></html>");
+        Files.setLastModifiedTime(index, FileTime.fromMillis(1000));
+        var modified = snapshot.rescan(null);
+        assertThat(snapshot.getChangedFiles(modified, null, contentDigests).getFiles())
+            .containsExactly(changedFile(templates, "index.html", ChangedFile.Type.MODIFY));
+
+        Files.writeString(index, "<html><body/></html>");
+        Files.setLastModifiedTime(index, FileTime.fromMillis(2000));
+        var rewritten = modified.rescan(null);
+        assertThat(modified.getChangedFiles(rewritten, null, contentDigests).getFiles())
+            .isEmpty();
+        assertThat(contentDigests.takeUnchanged()).isEqualTo(1);
+
+        Files.writeString(index, "<html><head/></html>");
+        Files.setLastModifiedTime(index, FileTime.fromMillis(3000));
+        assertThat(rewritten.getChangedFiles(rewritten.rescan(null), null, contentDigests)
+            .getFiles())
+            .containsExactly(changedFile(templates, "index.html", ChangedFile.Type.MODIFY));
+    }
+
+    private ChangedFile changedFile(File parent, String name, ChangedFile.Type type) {
+        return new ChangedFile(directory.toFile(), new File(parent, name), type);
+    }
+}
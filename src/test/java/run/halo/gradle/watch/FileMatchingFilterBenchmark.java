@@ -0,0 +1,105 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.gradle.api.internal.file.pattern.PatternMatcher;
+import org.gradle.api.internal.file.pattern.PatternMatcherFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import run.halo.gradle.Benchmarks;
+
+/**
+ * Times {@link FileMatchingFilter} on the default excludes of the watch task over the entries
+ * of a generated plugin project, against Gradle's {@link PatternMatcher} fed with split paths and
+ * an {@code isFile} stat, as the filter used to.
+ */
+@Tag(Benchmarks.TAG)
+class FileMatchingFilterBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    @TempDir
+    Path directory;
+
+    private List<String> patterns;
+
+    private List<File> files;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        createFiles("src/main/java/run/halo/plugin/p", 50, 20, ".java");
+        createFiles("src/main/resources/templates/t", 20, 20, ".html");
+        createFiles("src/main/resources/console/c", 10, 20, ".js");
+        createFiles("node_modules/m", 100, 20, ".js");
+        createFiles("build/classes/java/main/c", 50, 20, ".class");
+        createFiles(".git/objects/o", 50, 20, "");
+        String project = directory.toString();
+        patterns = List.of("**/node_modules/**", "**/.idea/**", "**/.git/**", "**/.gradle/**",
+            project + "/src/main/resources/console/**", project + "/build/**",
+            project + "/gradle/**", project + "/dist/**", project + "/test/java/**",
+            project + "/test/resources/**");
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.map(Path::toFile).toList();
+        }
+    }
+
+    private void createFiles(String prefix, int directories, int filesPerDirectory,
+        String extension) throws IOException {
+        for (int i = 0; i < directories; i++) {
+            Path parent = Files.createDirectories(directory.resolve(prefix + i));
+            for (int j = 0; j < filesPerDirectory; j++) {
+                Files.writeString(parent.resolve("f" + j + extension), "");
+            }
+        }
+    }
+
+    @Test
+    void matchDefaultExcludes() {
+        var filter = new FileMatchingFilter(patterns);
+        var matcher = PatternMatcherFactory.getPatternsMatcher(false, true, patterns);
+        for (File file : files) {
+            assertThat(filter.accept(file)).as(file.getPath())
+                .isEqualTo(gradleMatches(matcher, file));
+        }
+
+        String entries = files.size() + " entries";
+        Benchmarks.time("split and match, " + entries, ITERATIONS, () -> {
+            for (File file : files) {
+                gradleMatches(matcher, file);
+            }
+        });
+        Benchmarks.time("compiled filter, " + entries, ITERATIONS, () -> {
+            for (File file : files) {
+                filter.accept(file);
+            }
+        });
+        // as DirectoryNode lists a directory: one scope, then the names of its entries
+        Map<File, List<String>> names = files.stream().filter(file -> file.getParentFile() != null)
+            .collect(Collectors.groupingBy(File::getParentFile,
+                Collectors.mapping(File::getName, Collectors.toList())));
+        Benchmarks.time("directory scopes, " + entries, ITERATIONS, () -> {
+            names.forEach((parent, children) -> {
+                FileMatchingFilter.Scope scope = filter.scope(parent);
+                for (String name : children) {
+                    scope.accept(name);
+                }
+            });
+        });
+    }
+
+    private static boolean gradleMatches(PatternMatcher matcher, File file) {
+        String[] segments = StringUtils.split(file.getPath(), File.separator);
+        return matcher.test(segments, file.isFile());
+    }
+}
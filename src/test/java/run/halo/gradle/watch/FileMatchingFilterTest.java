@@ -0,0 +1,120 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import org.gradle.api.internal.file.pattern.PatternMatcher;
+import org.gradle.api.internal.file.pattern.PatternMatcherFactory;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link FileMatchingFilter}.
+ */
+class FileMatchingFilterTest {
+
+    private static final List<String> PATTERNS = List.of(
+        "**/node_modules/**",
+        "**/.git/**",
+        "/home/halo/plugin/build/**",
+        "/home/halo/plugin/src/main/resources/console/**",
+        "**/*.tmp",
+        "src/**/generated/",
+        "**/te?t/*.java",
+        "**/*Test*.java",
+        "docs",
+        "");
+
+    private static final List<String> PATHS = List.of(
+        "/home/halo/plugin",
+        "/home/halo/plugin/node_modules",
+        "/home/halo/plugin/node_modules/vue/index.js",
+        "/home/halo/plugin/ui/node_modules",
+        "/home/halo/plugin/.git",
+        "/home/halo/plugin/.github/workflows",
+        "/home/halo/plugin/build",
+        "/home/halo/plugin/build/libs/plugin.jar",
+        "/home/halo/plugin/builds",
+        "/home/halo/plugin/src/main/build",
+        "/home/halo/plugin/src/main/resources/console",
+        "/home/halo/plugin/src/main/resources/console/main.js",
+        "/home/halo/plugin/src/main/resources/templates/index.html",
+        "/home/halo/plugin/index.tmp",
+        "/home/halo/plugin/.tmp",
+        "/home/halo/plugin/index.tmp/file",
+        "src/main/generated",
+        "src/generated/Foo.java",
+        "/src/generated",
+        "/home/halo/plugin/test/Foo.java",
+        "/home/halo/plugin/text/Foo.java",
+        "/home/halo/plugin/tet/Foo.java",
+        "/home/halo/plugin/test/sub/Foo.java",
+        "/home/halo/plugin/src/FooTest.java",
+        "/home/halo/plugin/src/Test.java",
+        "/home/halo/plugin/src/FooTests.javax",
+        "docs",
+        "/docs",
+        "/home/docs",
+        "");
+
+    @Test
+    void matchesLikeGradlePatternMatcher() {
+        for (String pattern : PATTERNS) {
+            var filter = new FileMatchingFilter(List.of(pattern));
+            var matcher = PatternMatcherFactory.getPatternsMatcher(false, true, List.of(pattern));
+            for (String path : PATHS) {
+                assertThat(filter.accept(file(path)))
+                    .as("%s matches %s", pattern, path)
+                    .isEqualTo(gradleMatches(matcher, path));
+            }
+        }
+    }
+
+    @Test
+    void matchesAnyPattern() {
+        var filter = new FileMatchingFilter(PATTERNS.subList(0, 4));
+        var matcher = PatternMatcherFactory.getPatternsMatcher(false, true, PATTERNS.subList(0, 4));
+
+        for (String path : PATHS) {
+            assertThat(filter.accept(file(path))).as(path).isEqualTo(gradleMatches(matcher, path));
+        }
+    }
+
+    @Test
+    void matchesCaseInsensitive() {
+        var filter = new FileMatchingFilter(Set.of("**/Build/**"), false);
+
+        assertThat(filter.accept(file("/home/halo/plugin/build/libs"))).isTrue();
+        assertThat(new FileMatchingFilter(Set.of("**/Build/**")).accept(file("/home/build")))
+            .isFalse();
+    }
+
+    @Test
+    void scopeMatchesEntriesOfDirectory() {
+        var filter = new FileMatchingFilter(PATTERNS);
+
+        for (String path : PATHS) {
+            File file = file(path);
+            if (file.getParentFile() == null) {
+                continue;
+            }
+            assertThat(filter.scope(file.getParentFile()).accept(file.getName()))
+                .as(path)
+                .isEqualTo(filter.accept(file));
+        }
+    }
+
+    private static boolean gradleMatches(PatternMatcher matcher, String path) {
+        String[] segments = path.isEmpty() ? new String[0] : List.of(path.split("/")).stream()
+            .filter(segment -> !segment.isEmpty())
+            .toArray(String[]::new);
+        boolean matches = matcher.test(segments, true);
+        assertThat(matcher.test(segments, false)).isEqualTo(matches);
+        return matches;
+    }
+
+    private static File file(String path) {
+        return new File(path.replace('/', File.separatorChar));
+    }
+}
@@ -0,0 +1,107 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileSnapshotStateRepository}.
+ */
+class FileSnapshotStateRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path cacheDirectory;
+
+    private FileSnapshotStateRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(directory.resolve("templates"));
+        Files.createDirectories(directory.resolve("node_modules"));
+        Files.writeString(directory.resolve("templates/index.html"), "<html></html>");
+        Files.writeString(directory.resolve("node_modules/index.js"), "export {}");
+        repository = new FileSnapshotStateRepository(
+            cacheDirectory.resolve("halo-devtools/watch-snapshots.bin"));
+    }
+
+    @Test
+    void restoreSavedSnapshots() {
+        var filter = new FileMatchingFilter(List.of("**/node_modules/**"));
+        var snapshot = new DirectorySnapshot(directory.toFile(), filter);
+        repository.save(Map.of(directory.toFile(), snapshot));
+
+        var restored = restore().get(directory.toFile());
+
+        assertThat(restored).isEqualTo(snapshot);
+        assertThat(restored.getExcludeFilter()).isEqualTo(filter);
+        assertThat(restored.getRoot().getDirectories()).containsOnlyKeys("templates");
+        assertThat(snapshot.getChangedFiles(restored, null).getFiles()).isEmpty();
+    }
+
+    @Test
+    void restoredSnapshotsReportChangesMadeSinceSaving() throws IOException {
+        File file = directory.toFile();
+        repository.save(Map.of(file, new DirectorySnapshot(file, null)));
+
+        Files.writeString(directory.resolve("templates/post.html"), "<html></html>");
+        var restored = restore().get(file);
+
+        assertThat(restored.getChangedFiles(restored.rescan(null), null).getFiles())
+            .containsExactly(new ChangedFile(file,
+                directory.resolve("templates/post.html").toFile(), ChangedFile.Type.ADD));
+    }
+
+    @Test
+    void saveReplacesRestoredFile() throws IOException {
+        File file = directory.toFile();
+        repository.save(Map.of(file, new DirectorySnapshot(file, null)));
+        assertThat(restore()).containsOnlyKeys(file);
+
+        Files.writeString(directory.resolve("templates/post.html"), "<html></html>");
+        var snapshot = new DirectorySnapshot(file, null);
+        repository.save(Map.of(file, snapshot));
+
+        assertThat(restore().get(file)).isEqualTo(snapshot);
+    }
+
+    @Test
+    void snapshotsWithUnknownFiltersAreNotSaved() {
+        File file = directory.toFile();
+        repository.save(Map.of(file, new DirectorySnapshot(file, pathname -> false)));
+
+        assertThat(restore()).isEmpty();
+    }
+
+    @Test
+    void corruptFileIsIgnored() throws IOException {
+        File file = directory.toFile();
+        repository.save(Map.of(file, new DirectorySnapshot(file, null)));
+        Path cache = cacheDirectory.resolve("halo-devtools/watch-snapshots.bin");
+        byte[] bytes = Files.readAllBytes(cache);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(cache, bytes);
+
+        assertThat(repository.restore()).isNull();
+    }
+
+    @Test
+    void missingFileIsIgnored() {
+        assertThat(repository.restore()).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<File, DirectorySnapshot> restore() {
+        return (Map<File, DirectorySnapshot>) repository.restore();
+    }
+}
@@ -0,0 +1,114 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link FileTable}.
+ */
+class FileTableTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void buildReusesUnchangedTable() throws IOException {
+        Files.writeString(directory.resolve("index.html"), "<html></html>");
+        Files.writeString(directory.resolve("post.html"), "<html></html>");
+        FileTable table = table("index.html", "post.html");
+
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.indexOf("post.html")).isEqualTo(1);
+        assertThat(table.indexOf("page.html")).isLessThan(0);
+        assertThat(table("index.html", "post.html").hashCode()).isEqualTo(table.hashCode());
+        assertThat(builder("index.html", "post.html").build(table)).isSameAs(table);
+        assertThat(table.refresh(directory.toFile())).isSameAs(table);
+    }
+
+    @Test
+    void refreshDetectsModifiedFiles() throws IOException {
+        Files.writeString(directory.resolve("index.html"), "<html></html>");
+        Files.writeString(directory.resolve("post.html"), "<html></html>");
+        FileTable table = table("index.html", "post.html");
+
+        Files.writeString(directory.resolve("post.html"), "<html><body/></html>");
+        FileTable refreshed = table.refresh(directory.toFile());
+
+        assertThat(refreshed).isNotSameAs(table);
+        assertThat(refreshed.isSameFile(0, table, 0)).isTrue();
+        assertThat(refreshed.isSameFile(1, table, 1)).isFalse();
+    }
+
+    @Test
+    void refreshRequiresListingWhenFileIsDeleted() throws IOException {
+        Files.writeString(directory.resolve("index.html"), "<html></html>");
+        FileTable table = table("index.html");
+
+        Files.delete(directory.resolve("index.html"));
+
+        assertThat(table.refresh(directory.toFile())).isNull();
+    }
+
+    @Test
+    void modificationWithinSameMillisecondIsDetected() throws IOException {
+        Path path = Files.writeString(directory.resolve("index.html"), "<html></html>");
+        Instant instant = Instant.parse("2024-01-01T00:00:00.000000100Z");
+        Files.setLastModifiedTime(path, FileTime.from(instant));
+        FileTable table = table("index.html");
+        Files.setLastModifiedTime(path, FileTime.from(instant.plusNanos(100_000)));
+        if (Files.getLastModifiedTime(path).toMillis() != instant.toEpochMilli()
+            || Files.getLastModifiedTime(path).toInstant().equals(instant)) {
+            // the file system does not store sub-millisecond timestamps
+            return;
+        }
+
+        assertThat(table("index.html").isSameFile(0, table, 0)).isFalse();
+    }
+
+    @Test
+    void replacedFileIsDetected() throws IOException {
+        Path path = Files.writeString(directory.resolve("index.html"), "<html></html>");
+        FileTime lastModifiedTime = Files.getLastModifiedTime(path);
+        FileTable table = table("index.html");
+        Path replacement = Files.writeString(directory.resolve("index.html.tmp"), "<html></html>");
+        Files.setLastModifiedTime(replacement, lastModifiedTime);
+        Files.move(replacement, path, StandardCopyOption.REPLACE_EXISTING);
+
+        assertThat(table("index.html").isSameFile(0, table, 0)).isFalse();
+    }
+
+    @Test
+    void filesMustBeAddedInOrder() throws IOException {
+        Files.writeString(directory.resolve("index.html"), "<html></html>");
+        Files.writeString(directory.resolve("post.html"), "<html></html>");
+        Files.createDirectories(directory.resolve("templates"));
+
+        assertThatThrownBy(() -> builder("post.html", "index.html"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder("templates"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private FileTable table(String... names) {
+        return builder(names).build(null);
+    }
+
+    private FileTable.Builder builder(String... names) {
+        FileTable.Builder builder = FileTable.builder(names.length);
+        for (String name : names) {
+            File file = directory.resolve(name).toFile();
+            builder.add(name, FileTable.readAttributes(file));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,119 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import run.halo.gradle.utils.JsonUtils;
+
+/**
+ * Tests for {@link WatchMetrics}.
+ */
+class WatchMetricsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void percentileUsesNearestRank() {
+        long[] sorted = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+
+        assertThat(WatchMetrics.percentile(sorted, 50)).isEqualTo(50L);
+        assertThat(WatchMetrics.percentile(sorted, 95)).isEqualTo(100L);
+        assertThat(WatchMetrics.percentile(new long[] {7}, 50)).isEqualTo(7L);
+    }
+
+    @Test
+    void cycleIsAppendedToFile() throws IOException {
+        var file = directory.resolve("metrics/watch-metrics.jsonl");
+        var metrics = new WatchMetrics("1.0.0", file);
+        metrics.onChange(Set.of(), System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+
+        var cycle = metrics.startCycle(RebuildStrategy.CLASSES);
+        cycle.buildFinished(true);
+        cycle.reloadRequested();
+        cycle.reloadResponded();
+        cycle.pluginStarted();
+        cycle.finish();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(1);
+        JsonNode entry = JsonUtils.mapper().readTree(lines.get(0));
+        assertThat(entry.get("pluginVersion").asText()).isEqualTo("1.0.0");
+        assertThat(entry.get("strategy").asText()).isEqualTo("CLASSES");
+        assertThat(entry.get("succeeded").asBoolean()).isTrue();
+        assertThat(entry.get("quietMillis").asLong() >= 1000).isTrue();
+        assertThat(entry.get("totalMillis").asLong() >= 1000).isTrue();
+        assertThat(entry.has("reloadMillis")).isTrue();
+        assertThat(entry.has("startMillis")).isTrue();
+    }
+
+    @Test
+    void cancelledCycleKeepsDetectionForNextCycle() throws IOException {
+        var file = directory.resolve("watch-metrics.jsonl");
+        var metrics = new WatchMetrics("1.0.0", file);
+        metrics.onChange(Set.of(), System.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+
+        var cancelled = metrics.startCycle(RebuildStrategy.CLASSES);
+        metrics.onChange(Set.of(), System.nanoTime());
+        cancelled.buildFinished(false);
+        cancelled.cancel();
+        cancelled.finish();
+        assertThat(Files.exists(file)).isFalse();
+
+        var cycle = metrics.startCycle(RebuildStrategy.RESOURCES);
+        cycle.buildFinished(true);
+        cycle.finish();
+
+        JsonNode entry = JsonUtils.mapper().readTree(Files.readAllLines(file).get(0));
+        assertThat(entry.get("totalMillis").asLong() >= 1000).isTrue();
+        assertThat(entry.has("reloadMillis")).isFalse();
+    }
+
+    @Test
+    void failedReloadIsNotRecordedAsReady() throws IOException {
+        var file = directory.resolve("watch-metrics.jsonl");
+        var metrics = new WatchMetrics("1.0.0", file);
+        metrics.onChange(Set.of(), System.nanoTime());
+
+        var cycle = metrics.startCycle(RebuildStrategy.CLASSES);
+        cycle.buildFinished(true);
+        cycle.reloadRequested();
+        cycle.reloadResponded();
+        // the plugin settled in the FAILED phase, so it is never reported as started
+        String summary = finishAndCapture(cycle);
+
+        assertThat(summary).startsWith("> Reload failed in ");
+        // not added to the latency window
+        assertThat(summary).doesNotContain("p50");
+        JsonNode entry = JsonUtils.mapper().readTree(Files.readAllLines(file).get(0));
+        assertThat(entry.get("succeeded").asBoolean()).isFalse();
+        assertThat(entry.has("startMillis")).isFalse();
+
+        var next = metrics.startCycle(RebuildStrategy.RESOURCES);
+        next.buildFinished(true);
+        assertThat(finishAndCapture(next)).contains("over 1 cycles");
+    }
+
+    private static String finishAndCapture(WatchMetrics.Cycle cycle) {
+        PrintStream out = System.out;
+        var captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            cycle.finish();
+        } finally {
+            System.setOut(out);
+        }
+        return captured.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link WatchSchedule}.
+ */
+class WatchScheduleTest {
+
+    @Test
+    void fixedScheduleKeepsConfiguredValues() {
+        var schedule = WatchSchedule.fixed(2000, 500);
+
+        schedule.scanned(true, TimeUnit.SECONDS.toNanos(10));
+        schedule.scanned(false, 0);
+
+        assertThat(schedule.getPollInterval()).isEqualTo(2000L);
+        assertThat(schedule.getPollDelay()).isEqualTo(1500L);
+        assertThat(schedule.getQuietPeriod()).isEqualTo(500L);
+    }
+
+    @Test
+    void adaptivePollIntervalBacksOffWhenIdle() {
+        var schedule = WatchSchedule.adaptive(1000, 500);
+        assertThat(schedule.getPollDelay()).isEqualTo(WatchSchedule.MIN_POLL_INTERVAL);
+
+        schedule.scanned(false, 0);
+        assertThat(schedule.getPollDelay()).isEqualTo(200L);
+        schedule.scanned(false, 0);
+        schedule.scanned(false, 0);
+        assertThat(schedule.getPollDelay()).isEqualTo(800L);
+        schedule.scanned(false, 0);
+        assertThat(schedule.getPollDelay()).isEqualTo(1000L);
+
+        schedule.scanned(true, 0);
+        assertThat(schedule.getPollDelay()).isEqualTo(WatchSchedule.MIN_POLL_INTERVAL);
+    }
+
+    @Test
+    void adaptiveQuietPeriodFollowsWriteBursts() {
+        var schedule = WatchSchedule.adaptive(2000, 500);
+        assertThat(schedule.getQuietPeriod()).isEqualTo(WatchSchedule.MIN_QUIET_PERIOD);
+
+        // single saves keep the quiet period short
+        schedule.scanned(true, 0);
+        assertThat(schedule.getQuietPeriod()).isEqualTo(WatchSchedule.MIN_QUIET_PERIOD);
+
+        // long bursts lengthen it up to the configured quiet period
+        for (int i = 0; i < 20; i++) {
+            schedule.scanned(true, TimeUnit.SECONDS.toNanos(5));
+        }
+        assertThat(schedule.getQuietPeriod()).isEqualTo(500L);
+
+        for (int i = 0; i < 20; i++) {
+            schedule.scanned(true, 0);
+        }
+        assertThat(schedule.getQuietPeriod()).isEqualTo(WatchSchedule.MIN_QUIET_PERIOD);
+    }
+}
@@ -0,0 +1,182 @@
+package run.halo.gradle.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link WatchServiceWatcher}.
+ */
+class WatchServiceWatcherTest {
+
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @TempDir
+    Path directory;
+
+    private WatchServiceWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        watcher = new WatchServiceWatcher(FileSystems.getDefault(), null);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    void reportsCreatedModifiedAndDeletedFiles() throws Exception {
+        Path file = Files.writeString(directory.resolve("index.html"), "<html></html>");
+        watcher.register(directory);
+
+        Files.writeString(directory.resolve("post.html"), "<html></html>");
+        assertThat(awaitEvent(directory, ENTRY_CREATE, "post.html")).isTrue();
+
+        Files.writeString(file, "<html><body/></html>");
+        assertThat(awaitEvent(directory, ENTRY_MODIFY, "index.html")).isTrue();
+
+        Files.delete(file);
+        assertThat(awaitEvent(directory, ENTRY_DELETE, "index.html")).isTrue();
+    }
+
+    @Test
+    void registersCreatedSubDirectories() throws Exception {
+        watcher.register(directory);
+
+        Path templates = Files.createDirectory(directory.resolve("templates"));
+        WatchKey key = watcher.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertThat(key).isNotNull();
+        assertThat(watcher.processEvents(key)).isTrue();
+        assertThat(watcher.isWatching(templates)).isTrue();
+
+        Files.writeString(templates.resolve("index.html"), "<html></html>");
+        assertThat(awaitEvent(templates, ENTRY_CREATE, "index.html")).isTrue();
+    }
+
+    @Test
+    void registersExistingSubDirectories() throws Exception {
+        Path java = Files.createDirectories(directory.resolve("java/run/halo"));
+        watcher.register(directory);
+
+        assertThat(watcher.isWatching(java)).isTrue();
+        Files.writeString(java.resolve("Plugin.java"), "class Plugin {}");
+        assertThat(awaitEvent(java, ENTRY_CREATE, "Plugin.java")).isTrue();
+    }
+
+    @Test
+    void excludedDirectoriesAreNotRegistered() throws Exception {
+        Path nodeModules = Files.createDirectories(directory.resolve("node_modules/vue"));
+        watcher.close();
+        watcher = new WatchServiceWatcher(FileSystems.getDefault(),
+            new FileMatchingFilter(List.of("**/node_modules/**")));
+        watcher.register(directory);
+
+        assertThat(watcher.isWatching(directory)).isTrue();
+        assertThat(watcher.isWatching(nodeModules.getParent())).isFalse();
+        assertThat(watcher.isWatching(nodeModules)).isFalse();
+    }
+
+    @Test
+    void registersMissingDirectoryOnceCreated() throws Exception {
+        Path resources = directory.resolve("src/main/resources");
+        watcher.register(resources);
+        assertThat(watcher.isWatching(resources)).isFalse();
+
+        Files.createDirectories(resources);
+        Files.writeString(resources.resolve("plugin.yaml"), "name: plugin");
+        // reported as lost events, so that the files created along with it are scanned
+        assertThat(awaitIncomplete()).isTrue();
+        assertThat(watcher.isWatching(resources)).isTrue();
+
+        Files.writeString(resources.resolve("index.html"), "<html></html>");
+        assertThat(awaitEvent(resources, ENTRY_CREATE, "index.html")).isTrue();
+    }
+
+    @Test
+    void registersDeletedDirectoryAgainOnceCreated() throws Exception {
+        Path templates = Files.createDirectory(directory.resolve("templates"));
+        watcher.register(templates);
+
+        Files.delete(templates);
+        awaitInvalid(templates);
+        assertThat(watcher.isWatching(templates)).isFalse();
+
+        Files.createDirectory(templates);
+        assertThat(awaitIncomplete()).isTrue();
+        assertThat(watcher.isWatching(templates)).isTrue();
+    }
+
+    /**
+     * Wait for an event of the given kind for the given entry of the directory, processing the
+     * other keys.
+     */
+    private boolean awaitEvent(Path directory, WatchEvent.Kind<?> kind, String name)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long remaining;
+        while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+            WatchKey key = watcher.poll(remaining, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                return false;
+            }
+            List<String> events = new ArrayList<>();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                events.add(event.kind().name() + " " + event.context());
+            }
+            key.reset();
+            if (key.watchable().equals(directory)
+                && events.contains(kind.name() + " " + name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Process the keys until one reports lost events.
+     */
+    private boolean awaitIncomplete() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long remaining;
+        while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+            WatchKey key = watcher.poll(remaining, TimeUnit.MILLISECONDS);
+            if (key == null) {
+                return false;
+            }
+            if (!watcher.processEvents(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Process the keys until the given directory is no longer watched.
+     */
+    private void awaitInvalid(Path directory) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (watcher.isWatching(directory) && System.currentTimeMillis() < deadline) {
+            WatchKey key = watcher.poll(100, TimeUnit.MILLISECONDS);
+            if (key != null) {
+                watcher.processEvents(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package run.halo.gradle.watch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.ProjectConnection;
+import org.junit.jupiter.api.Test;
+import run.halo.gradle.WatchExecutionParameters;
+
+/**
+ * Tests for {@link WatchTaskRunner}, with stubbed connections whose builds run the given
+ * {@link Build}.
+ */
+class WatchTaskRunnerTest {
+
+    private final List<StubConnection> connections = new ArrayList<>();
+
+    private final WatchExecutionParameters parameters = WatchExecutionParameters.builder()
+        .projectDir(new File("."))
+        .buildArgs(List.of("classes"))
+        .build();
+
+    @Test
+    void reusesConnectionAcrossBuilds() {
+        WatchTaskRunner runner = new WatchTaskRunner(connector(token -> {
+        }));
+
+        assertThat(runner.run(parameters)).isTrue();
+        assertThat(runner.run(parameters)).isTrue();
+
+        assertThat(connections).hasSize(1);
+        assertThat(connections.get(0).builds.get()).isEqualTo(2);
+        assertThat(connections.get(0).closed).isFalse();
+    }
+
+    @Test
+    void failedBuildKeepsConnection() {
+        AtomicInteger builds = new AtomicInteger();
+        WatchTaskRunner runner = new WatchTaskRunner(connector(token -> {
+            if (builds.incrementAndGet() == 1) {
+                throw new BuildException("Compilation failed", null);
+            }
+        }));
+
+        assertThat(runner.run(parameters)).isFalse();
+        assertThat(runner.run(parameters)).isTrue();
+
+        assertThat(connections).hasSize(1);
+        assertThat(connections.get(0).closed).isFalse();
+    }
+
+    @Test
+    void cancelStopsBuildInProgress() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        WatchTaskRunner runner = new WatchTaskRunner(connector(token -> {
+            started.countDown();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!token.isCancellationRequested()) {
+                if (System.currentTimeMillis() > deadline) {
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+            throw new BuildCancelledException("Build cancelled");
+        }));
+
+        CompletableFuture<Boolean> build = CompletableFuture.supplyAsync(
+            () -> runner.run(parameters));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        runner.cancel();
+
+        assertThat(build.get(5, TimeUnit.SECONDS)).isFalse();
+        // a cancelled build does not lose the connection
+        assertThat(connections.get(0).closed).isFalse();
+    }
+
+    @Test
+    void cancelWithoutBuildDoesNotAffectNextBuild() {
+        WatchTaskRunner runner = new WatchTaskRunner(connector(token -> {
+            assertThat(token.isCancellationRequested()).isFalse();
+        }));
+
+        runner.cancel();
+
+        assertThat(runner.run(parameters)).isTrue();
+    }
+
+    @Test
+    void reconnectsAfterConnectionLost() {
+        AtomicInteger builds = new AtomicInteger();
+        WatchTaskRunner runner = new WatchTaskRunner(connector(token -> {
+            if (builds.incrementAndGet() == 1) {
+                throw new GradleConnectionException("The daemon disappeared");
+            }
+        }));
+
+        assertThat(runner.run(parameters)).isFalse();
+        assertThat(connections).hasSize(1);
+        assertThat(connections.get(0).closed).isTrue();
+
+        assertThat(runner.run(parameters)).isTrue();
+        assertThat(connections).hasSize(2);
+        assertThat(connections.get(1).closed).isFalse();
+    }
+
+    @Test
+    void failedConnectIsRetriedOnNextBuild() {
+        AtomicInteger attempts = new AtomicInteger();
+        WatchTaskRunner runner = new WatchTaskRunner(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new GradleConnectionException("Could not install Gradle distribution");
+            }
+            return connect(token -> {
+            });
+        });
+
+        assertThat(runner.run(parameters)).isFalse();
+        assertThat(runner.run(parameters)).isTrue();
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void closeClosesConnectionAndRejectsBuilds() {
+        WatchTaskRunner runner = new WatchTaskRunner(connector(token -> {
+        }));
+        assertThat(runner.run(parameters)).isTrue();
+
+        runner.close();
+
+        assertThat(connections.get(0).closed).isTrue();
+        assertThat(runner.run(parameters)).isFalse();
+        assertThat(connections).hasSize(1);
+    }
+
+    private Supplier<ProjectConnection> connector(Build build) {
+        return () -> connect(build);
+    }
+
+    private ProjectConnection connect(Build build) {
+        StubConnection connection = new StubConnection(build);
+        connections.add(connection);
+        return connection.proxy;
+    }
+
+    /**
+     * The work of a stubbed build, given the cancellation token of the build.
+     */
+    interface Build {
+        void run(CancellationToken token);
+    }
+
+    /**
+     * A {@link ProjectConnection} whose launchers run the given {@link Build}, the configuration
+     * of the launchers is ignored.
+     */
+    static class StubConnection {
+
+        final AtomicInteger builds = new AtomicInteger();
+
+        final ProjectConnection proxy;
+
+        volatile boolean closed;
+
+        StubConnection(Build build) {
+            this.proxy = (ProjectConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ProjectConnection.class}, (connection, method, args) -> {
+                    switch (method.getName()) {
+                        case "newBuild" -> {
+                            builds.incrementAndGet();
+                            return newLauncher(build);
+                        }
+                        case "close" -> closed = true;
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                    return null;
+                });
+        }
+
+        private static BuildLauncher newLauncher(Build build) {
+            CancellationToken[] token = new CancellationToken[1];
+            return (BuildLauncher) Proxy.newProxyInstance(StubConnection.class.getClassLoader(),
+                new Class<?>[] {BuildLauncher.class}, (launcher, method, args) -> {
+                    if (method.getName().equals("withCancellationToken")) {
+                        token[0] = (CancellationToken) args[0];
+                    }
+                    if (method.getName().equals("run") && (args == null || args.length == 0)) {
+                        build.run(token[0]);
+                        return null;
+                    }
+                    return launcher;
+                });
+        }
+    }
+}